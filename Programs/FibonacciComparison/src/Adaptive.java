@@ -0,0 +1,136 @@
+import java.math.BigInteger;
+
+public class Adaptive {
+
+    // The largest n for which F(n) fits in a long
+    public static final int MAX_LONG_N = 92;
+
+    // Returned by fibonacciLong when F(n) doesn't fit in a long. No Fibonacci
+    // number is negative, so this can't be mistaken for a result.
+    public static final long NEEDS_BIG_INTEGER = -1;
+
+    // The allocation-free entry point. The iterative method, starting in int
+    // arithmetic and moving up to long once F(i) no longer fits in an int.
+    // Returns NEEDS_BIG_INTEGER instead of a result past F(92), where the
+    // caller should use fibonacci instead.
+    public static long fibonacciLong(int n) {
+
+        if (n < 0) {
+            throw new IllegalArgumentException("n must be non-negative");
+        } else if (n > MAX_LONG_N) {
+            return NEEDS_BIG_INTEGER;
+        } else if (n == 0) {
+            return 0;
+        }
+
+        // Each tier keeps a = F(i - 1) and b = F(i)
+
+        // int tier, stopping before the first addition that would overflow
+        int intA = 0;
+        int intB = 1;
+        int i = 1;
+
+        for (; i < n && intA <= Integer.MAX_VALUE - intB; i++) {
+            int next = intA + intB;
+            intA = intB;
+            intB = next;
+        }
+
+        if (i == n) {
+            return intB;
+        }
+
+        // long tier, which n <= MAX_LONG_N keeps from overflowing
+        long longA = intA;
+        long longB = intB;
+
+        for (; i < n; i++) {
+            long next = longA + longB;
+            longA = longB;
+            longB = next;
+        }
+
+        return longB;
+
+    }
+
+    // Always exact, with the type of the result being the smallest tier that
+    // holds it: Integer up to F(46), Long up to F(92), and BigInteger beyond
+    // that. Results from F(12) = 144 up are boxed into a new object, so only
+    // use this when F(n) may need a BigInteger, and fibonacciLong otherwise.
+    public static Number fibonacci(int n) {
+
+        long small = fibonacciLong(n);
+
+        if (small != NEEDS_BIG_INTEGER) {
+
+            if (small <= Integer.MAX_VALUE) {
+                return (int) small;
+            }
+
+            return small;
+
+        }
+
+        // BigInteger tier, which can't overflow, continuing
+        // from the last two numbers that fit in a long
+        BigInteger bigA = BigInteger.valueOf(fibonacciLong(MAX_LONG_N - 1));
+        BigInteger bigB = BigInteger.valueOf(fibonacciLong(MAX_LONG_N));
+
+        for (int i = MAX_LONG_N; i < n; i++) {
+            BigInteger next = bigA.add(bigB);
+            bigA = bigB;
+            bigB = next;
+        }
+
+        return bigB;
+
+    }
+
+    // F(n) as an int, without allocating anything.
+    // Throws ArithmeticException past F(46) instead of overflowing.
+    public static int intFibonacciExact(int n) {
+
+        if (n < 0) {
+            throw new IllegalArgumentException("n must be non-negative");
+        } else if (n == 0) {
+            return 0;
+        }
+
+        int a = 0;
+        int b = 1;
+
+        for (int i = 1; i < n; i++) {
+            int next = Math.addExact(a, b);
+            a = b;
+            b = next;
+        }
+
+        return b;
+
+    }
+
+    // F(n) as a long, without allocating anything.
+    // Throws ArithmeticException past F(92) instead of overflowing.
+    public static long longFibonacciExact(int n) {
+
+        if (n < 0) {
+            throw new IllegalArgumentException("n must be non-negative");
+        } else if (n == 0) {
+            return 0;
+        }
+
+        long a = 0;
+        long b = 1;
+
+        for (int i = 1; i < n; i++) {
+            long next = Math.addExact(a, b);
+            a = b;
+            b = next;
+        }
+
+        return b;
+
+    }
+
+}
@@ -0,0 +1,332 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+// A benchmark harness for every Fibonacci implementation, replacing the single
+// currentTimeMillis() measurement in Main. Each run happens in several freshly
+// forked JVMs so JIT decisions in one don't skew the others, every (method, n)
+// pair is warmed up before it is measured, and each measurement times a batch
+// of calls with nanoTime so fast methods don't round down to 0.
+//
+// Usage: java Benchmark [--bigint] [--forks 3] [--warmup 5] [--iterations 10]
+//                       [--max-n 50] [--budget-ms 1000] [--out results.csv]
+//
+// The CSV has the same N column and one time column per method as Main, in
+// milliseconds per call, followed for each method by the 99.9% confidence
+// error of the time and the bytes allocated per call. Methods returning a
+// primitive are boxed by the harness, which shows up as 16-24 bytes per call.
+// Allocation is counted over every thread in the JVM, so the worker threads
+// of Parallel are included. Methods that use a thread pool reuse one that is
+// already running by the time they're measured, so neither column includes
+// starting threads.
+//
+// The memoized Recursive methods share their memo across calls, which is the
+// point of them, so their columns are warm: the memo is cleared once before
+// each method's sweep, outside any timing, and every measured call after
+// that finds F(n) already in the memo from the calls before it. They show
+// the cost of a memo hit, not of filling the memo.
+public class Benchmark {
+
+    // Measured iterations time batches of calls that take at least this long
+    private static final long MIN_ITERATION_NANOS = 10_000_000L;
+
+    // Results are folded into this so the JIT can't eliminate the calls
+    private static volatile int sink;
+
+    public static void main(String[] args) throws Exception {
+
+        boolean useBigInt = false;
+        boolean child = false;
+        int forks = 3;
+        int warmup = 5;
+        int iterations = 10;
+        int maxN = 50;
+        long budgetMillis = 1000;
+        String out = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--bigint" -> useBigInt = true;
+                case "--child" -> child = true;
+                case "--forks" -> forks = Integer.parseInt(args[++i]);
+                case "--warmup" -> warmup = Integer.parseInt(args[++i]);
+                case "--iterations" -> iterations = Integer.parseInt(args[++i]);
+                case "--max-n" -> maxN = Integer.parseInt(args[++i]);
+                case "--budget-ms" -> budgetMillis = Long.parseLong(args[++i]);
+                case "--out" -> out = args[++i];
+                default -> throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+
+        if (child) {
+            runFork(useBigInt, warmup, iterations, maxN, budgetMillis);
+            return;
+        }
+
+        // Launch the forks and collect their samples
+        Map<String, List<Sample>> samples = new LinkedHashMap<>();
+
+        for (String name : implementations(useBigInt).keySet()) {
+            samples.put(name, new ArrayList<>());
+        }
+
+        for (int fork = 0; fork < forks; fork++) {
+
+            List<String> command = new ArrayList<>(List.of(
+                    System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+                    "-cp", System.getProperty("java.class.path"), "Benchmark", "--child",
+                    "--warmup", Integer.toString(warmup), "--iterations", Integer.toString(iterations),
+                    "--max-n", Integer.toString(maxN), "--budget-ms", Long.toString(budgetMillis)));
+
+            if (useBigInt) {
+                command.add("--bigint");
+            }
+
+            Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Sample sample = Sample.parse(line);
+                    samples.get(sample.name).add(sample);
+                }
+            }
+
+            if (process.waitFor() != 0) {
+                throw new IOException("Benchmark fork " + fork + " failed");
+            }
+
+        }
+
+        try (PrintStream csv = out == null ? System.out : new PrintStream(out)) {
+            writeCsv(csv, samples, maxN);
+        }
+
+    }
+
+    private static Map<String, IntFunction<Object>> implementations(boolean useBigInt) {
+
+        // Same columns as Main, then every implementation added since
+        Map<String, IntFunction<Object>> implementations = new LinkedHashMap<>();
+
+        if (useBigInt) {
+            implementations.put("Recursive", n -> Recursive.bigIntFibonacci(BigInteger.valueOf(n)));
+            implementations.put("Iterative", n -> Iterative.bigIntFibonacci(BigInteger.valueOf(n)));
+            implementations.put("FastDoubling", FastDoubling::bigIntFibonacci);
+            implementations.put("MatrixPower", MatrixPower::bigIntFibonacci);
+            implementations.put("StreamingIterative", Iterative::streamingBigIntFibonacci);
+            implementations.put("MemoizedRecursive", Recursive::memoizedBigIntFibonacci);
+            implementations.put("StackSafeRecursive", Recursive::stackSafeBigIntFibonacci);
+            implementations.put("Parallel", ParallelFibonacci::bigIntFibonacci);
+        } else {
+            implementations.put("Recursive", Recursive::intFibonacci);
+            implementations.put("Iterative", Iterative::intFibonacci);
+            implementations.put("FastDoubling", FastDoubling::longFibonacci);
+            implementations.put("MatrixPower", MatrixPower::longFibonacci);
+            implementations.put("MemoizedRecursive", Recursive::memoizedIntFibonacci);
+        }
+
+        implementations.put("Adaptive", Adaptive::fibonacci);
+        return implementations;
+
+    }
+
+    // Runs inside a forked JVM, printing one line per (method, n) pair
+    private static void runFork(boolean useBigInt, int warmup, int iterations, int maxN, long budgetMillis) {
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        for (Map.Entry<String, IntFunction<Object>> implementation : implementations(useBigInt).entrySet()) {
+
+            IntFunction<Object> method = implementation.getValue();
+
+            // Start every sweep with an empty memo, so the memoized
+            // columns don't depend on which methods ran before them
+            Recursive.clearMemo();
+
+            for (int n = 0; n < maxN; n++) {
+
+                // Size the batch so an iteration lasts long enough for nanoTime
+                long single = time(method, n, 1);
+
+                // Skip the rest of the sweep once a single call blows the budget,
+                // which is where the exponential methods give up
+                if (single > budgetMillis * 1_000_000L) {
+                    break;
+                }
+
+                int batch = (int) Math.max(1, Math.min(Integer.MAX_VALUE, MIN_ITERATION_NANOS / Math.max(1, single)));
+
+                for (int i = 0; i < warmup; i++) {
+                    time(method, n, batch);
+                }
+
+                StringBuilder line = new StringBuilder(implementation.getKey()).append(',').append(n);
+
+                long[] threadIds = threads.getAllThreadIds();
+                long[] allocatedBefore = threads.getThreadAllocatedBytes(threadIds);
+                long calls = 0;
+
+                for (int i = 0; i < iterations; i++) {
+                    line.append(',').append(time(method, n, batch) / (double) batch);
+                    calls += batch;
+                }
+
+                long allocated = allocatedSince(threads, threadIds, allocatedBefore);
+                line.append(",bytes=").append(allocated / (double) calls);
+
+                System.out.println(line);
+
+            }
+
+        }
+
+    }
+
+    // Bytes allocated by every thread since the given snapshot. Threads started
+    // since then count from zero, and threads that have exited since then are
+    // missed, which can't happen to the threads of a pool that's in use.
+    private static long allocatedSince(com.sun.management.ThreadMXBean threads, long[] threadIds, long[] before) {
+
+        Map<Long, Long> snapshot = new HashMap<>();
+
+        for (int i = 0; i < threadIds.length; i++) {
+            if (before[i] >= 0) {
+                snapshot.put(threadIds[i], before[i]);
+            }
+        }
+
+        long[] nowIds = threads.getAllThreadIds();
+        long[] now = threads.getThreadAllocatedBytes(nowIds);
+        long allocated = 0;
+
+        for (int i = 0; i < nowIds.length; i++) {
+            if (now[i] >= 0) {
+                allocated += now[i] - snapshot.getOrDefault(nowIds[i], 0L);
+            }
+        }
+
+        return allocated;
+
+    }
+
+    private static long time(IntFunction<Object> method, int n, int batch) {
+
+        int hash = 0;
+        long start = System.nanoTime();
+
+        for (int i = 0; i < batch; i++) {
+            hash += method.apply(n).hashCode();
+        }
+
+        long elapsed = System.nanoTime() - start;
+        sink += hash;
+        return elapsed;
+
+    }
+
+    private static void writeCsv(PrintStream csv, Map<String, List<Sample>> samples, int maxN) {
+
+        StringBuilder header = new StringBuilder("N");
+
+        for (String name : samples.keySet()) {
+            header.append(',').append(name);
+        }
+
+        for (String name : samples.keySet()) {
+            header.append(',').append(name).append("Error,").append(name).append("BytesPerOp");
+        }
+
+        csv.println(header);
+
+        for (int n = 0; n < maxN; n++) {
+
+            StringBuilder times = new StringBuilder(Integer.toString(n));
+            StringBuilder extras = new StringBuilder();
+
+            for (List<Sample> runs : samples.values()) {
+
+                // Pool the iterations of every fork for this n
+                List<Double> nanos = new ArrayList<>();
+                double bytes = 0;
+                int forks = 0;
+
+                for (Sample sample : runs) {
+                    if (sample.n == n) {
+                        nanos.addAll(sample.nanosPerOp);
+                        bytes += sample.bytesPerOp;
+                        forks++;
+                    }
+                }
+
+                if (nanos.isEmpty()) {
+                    times.append(',');
+                    extras.append(",,");
+                    continue;
+                }
+
+                double mean = 0;
+                for (double value : nanos) {
+                    mean += value;
+                }
+                mean /= nanos.size();
+
+                double variance = 0;
+                for (double value : nanos) {
+                    variance += (value - mean) * (value - mean);
+                }
+                variance /= Math.max(1, nanos.size() - 1);
+
+                // 3.291 is the z-score of a 99.9% confidence interval
+                double error = 3.291 * Math.sqrt(variance / nanos.size());
+
+                times.append(',').append(mean / 1e6);
+                extras.append(',').append(error / 1e6).append(',').append(bytes / forks);
+
+            }
+
+            csv.println(times.append(extras));
+
+        }
+
+    }
+
+    private static class Sample {
+
+        String name;
+        int n;
+        List<Double> nanosPerOp = new ArrayList<>();
+        double bytesPerOp;
+
+        static Sample parse(String line) {
+
+            String[] parts = line.split(",");
+            Sample sample = new Sample();
+            sample.name = parts[0];
+            sample.n = Integer.parseInt(parts[1]);
+
+            for (int i = 2; i < parts.length; i++) {
+                if (parts[i].startsWith("bytes=")) {
+                    sample.bytesPerOp = Double.parseDouble(parts[i].substring("bytes=".length()));
+                } else {
+                    sample.nanosPerOp.add(Double.parseDouble(parts[i]));
+                }
+            }
+
+            return sample;
+
+        }
+
+    }
+
+}
@@ -0,0 +1,89 @@
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Answers F(n) with the streaming iterative method, but starts from the
+// nearest cached checkpoint at or below n instead of from F(0). A checkpoint
+// is the pair (F(i), F(i+1)), which is all the iteration needs to continue.
+// Checkpoints are recorded every `spacing` values along the way, and the
+// least recently used ones are evicted once there are more than `capacity`.
+public class CheckpointCache {
+
+    private final int capacity;
+    private final int spacing;
+
+    // Checkpoints ordered by index, for finding the nearest one below n
+    private final TreeMap<Integer, BigInteger[]> checkpoints = new TreeMap<>();
+
+    // The same indices in access order, for eviction
+    private final LinkedHashMap<Integer, Boolean> recency = new LinkedHashMap<>(16, 0.75f, true);
+
+    public CheckpointCache(int capacity, int spacing) {
+
+        if (capacity < 1 || spacing < 1) {
+            throw new IllegalArgumentException("capacity and spacing must be positive");
+        }
+
+        this.capacity = capacity;
+        this.spacing = spacing;
+
+    }
+
+    public synchronized BigInteger bigIntFibonacci(int n) {
+
+        if (n < 0) {
+            throw new IllegalArgumentException("n must be non-negative");
+        }
+
+        // Start from the nearest checkpoint, or from F(0)
+        Map.Entry<Integer, BigInteger[]> nearest = checkpoints.floorEntry(n);
+        int from = 0;
+        BigInteger a = BigInteger.ZERO;
+        BigInteger b = BigInteger.ONE;
+
+        if (nearest != null) {
+            from = nearest.getKey();
+            a = nearest.getValue()[0];
+            b = nearest.getValue()[1];
+            recency.get(from);
+        }
+
+        // Walk forward, dropping a checkpoint every `spacing` values
+        for (int i = from; i < n; i++) {
+
+            BigInteger next = a.add(b);
+            a = b;
+            b = next;
+
+            if ((i + 1) % spacing == 0) {
+                put(i + 1, a, b);
+            }
+
+        }
+
+        return a;
+
+    }
+
+    public synchronized int size() {
+        return checkpoints.size();
+    }
+
+    private void put(int index, BigInteger a, BigInteger b) {
+
+        checkpoints.put(index, new BigInteger[]{a, b});
+        recency.put(index, Boolean.TRUE);
+
+        // Evict the least recently used checkpoints
+        Iterator<Integer> oldest = recency.keySet().iterator();
+
+        while (checkpoints.size() > capacity) {
+            checkpoints.remove(oldest.next());
+            oldest.remove();
+        }
+
+    }
+
+}
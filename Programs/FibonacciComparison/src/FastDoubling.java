@@ -0,0 +1,121 @@
+import java.math.BigInteger;
+
+public class FastDoubling {
+
+    // F(2k) = F(k) * (2F(k+1) - F(k))
+    // F(2k+1) = F(k)^2 + F(k+1)^2
+    // Walking the bits of n from the top, each step doubles k
+    // and then adds one if the bit is set, so F(n) takes
+    // O(log n) steps instead of O(n).
+
+    public static BigInteger bigIntFibonacci(int n) {
+        return bigIntPair(n)[0];
+    }
+
+    // {F(n), F(n + 1)}, which is enough to continue the sequence from n
+    static BigInteger[] bigIntPair(int n) {
+
+        if (n < 0) {
+            throw new IllegalArgumentException("n must be non-negative");
+        }
+
+        BigInteger a = BigInteger.ZERO; // F(k)
+        BigInteger b = BigInteger.ONE;  // F(k+1)
+
+        for (int bit = 31 - Integer.numberOfLeadingZeros(n); bit >= 0; bit--) {
+
+            BigInteger c = a.multiply(b.shiftLeft(1).subtract(a)); // F(2k)
+            BigInteger d = a.multiply(a).add(b.multiply(b));       // F(2k+1)
+
+            if (((n >>> bit) & 1) == 0) {
+                a = c;
+                b = d;
+            } else {
+                a = d;
+                b = c.add(d);
+            }
+
+        }
+
+        return new BigInteger[]{a, b};
+
+    }
+
+    public static long longFibonacci(int n) {
+
+        if (n < 0) {
+            throw new IllegalArgumentException("n must be non-negative");
+        }
+
+        long a = 0;
+        long b = 1;
+
+        for (int bit = 31 - Integer.numberOfLeadingZeros(n); bit >= 0; bit--) {
+
+            long c = a * (2 * b - a);
+            long d = a * a + b * b;
+
+            if (((n >>> bit) & 1) == 0) {
+                a = c;
+                b = d;
+            } else {
+                a = d;
+                b = c + d;
+            }
+
+        }
+
+        return a;
+
+    }
+
+    public static long modFibonacci(long n, long mod) {
+
+        if (n < 0 || mod < 1) {
+            throw new IllegalArgumentException("n must be non-negative and mod must be positive");
+        }
+
+        long a = 0;
+        long b = 1 % mod;
+
+        for (int bit = 63 - Long.numberOfLeadingZeros(n); bit >= 0; bit--) {
+
+            long c = mulMod(a, subMod(addMod(b, b, mod), a, mod), mod);
+            long d = addMod(mulMod(a, a, mod), mulMod(b, b, mod), mod);
+
+            if (((n >>> bit) & 1) == 0) {
+                a = c;
+                b = d;
+            } else {
+                a = d;
+                b = addMod(c, d, mod);
+            }
+
+        }
+
+        return a;
+
+    }
+
+    // a + b mod m for a, b in [0, m), without overflowing
+    static long addMod(long a, long b, long mod) {
+        return a >= mod - b ? a - (mod - b) : a + b;
+    }
+
+    // a - b mod m for a, b in [0, m)
+    static long subMod(long a, long b, long mod) {
+        return a >= b ? a - b : a + (mod - b);
+    }
+
+    static long mulMod(long a, long b, long mod) {
+
+        // Small enough that the product can't overflow
+        if (mod <= 3037000499L) {
+            return (a * b) % mod;
+        }
+
+        return BigInteger.valueOf(a).multiply(BigInteger.valueOf(b)).mod(BigInteger.valueOf(mod)).longValue();
+
+    }
+
+}
@@ -0,0 +1,133 @@
+import java.math.BigInteger;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Produces F(from), F(from + 1), ..., F(to - 1) in order. The first value is
+// reached with fast doubling, and every value after it costs a single addition,
+// so the range costs O(log from) multiplications plus O(to - from) additions
+// instead of recomputing each F(n) from scratch. Splitting hands the lower
+// half of the range to a new spliterator and keeps the upper half, as ORDERED
+// requires, and each half jumps to its own start, which lets parallel streams
+// divide a range between threads.
+public class FibonacciSpliterator implements Spliterator<BigInteger> {
+
+    // Splitting below this many values isn't worth the extra jump
+    private static final int MIN_SPLIT_SIZE = 1024;
+
+    private int next;
+    private final int to;
+
+    // F(next) and F(next + 1), or null until the first value is needed
+    private BigInteger a;
+    private BigInteger b;
+
+    public FibonacciSpliterator(int from, int to) {
+
+        if (from < 0 || to < from) {
+            throw new IllegalArgumentException("Invalid range [" + from + ", " + to + ")");
+        }
+
+        this.next = from;
+        this.to = to;
+
+    }
+
+    public static Stream<BigInteger> stream(int from, int to, boolean parallel) {
+        return StreamSupport.stream(new FibonacciSpliterator(from, to), parallel);
+    }
+
+    // Passes each F(n) in [from, to) to the consumer along with n,
+    // without ever holding more than two values of the range
+    public static void forEach(int from, int to, ObjIntConsumer<BigInteger> consumer) {
+
+        FibonacciSpliterator spliterator = new FibonacciSpliterator(from, to);
+
+        while (spliterator.next < spliterator.to) {
+            int n = spliterator.next;
+            spliterator.tryAdvance(value -> consumer.accept(value, n));
+        }
+
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+    }
+
+    @Override
+    public long estimateSize() {
+        return to - next;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super BigInteger> action) {
+
+        if (next >= to) {
+            return;
+        }
+
+        jump();
+
+        BigInteger a = this.a;
+        BigInteger b = this.b;
+
+        for (int n = next; n < to; n++) {
+            action.accept(a);
+            BigInteger sum = a.add(b);
+            a = b;
+            b = sum;
+        }
+
+        this.a = a;
+        this.b = b;
+        this.next = to;
+
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super BigInteger> action) {
+
+        if (next >= to) {
+            return false;
+        }
+
+        jump();
+        action.accept(a);
+
+        BigInteger sum = a.add(b);
+        a = b;
+        b = sum;
+        next++;
+
+        return true;
+
+    }
+
+    @Override
+    public Spliterator<BigInteger> trySplit() {
+
+        // Only split before the first value has been computed,
+        // so neither half wastes a jump it won't use
+        if (a != null || to - next < MIN_SPLIT_SIZE * 2) {
+            return null;
+        }
+
+        int middle = next + (to - next) / 2;
+        FibonacciSpliterator prefix = new FibonacciSpliterator(next, middle);
+        next = middle;
+        return prefix;
+
+    }
+
+    private void jump() {
+        if (a == null) {
+            BigInteger[] pair = FastDoubling.bigIntPair(next);
+            a = pair[0];
+            b = pair[1];
+        }
+    }
+
+}
@@ -1,5 +1,6 @@
 import java.math.BigInteger;
 import java.util.HashMap;
+import java.util.function.ObjIntConsumer;
 
 public class Iterative {
 
@@ -27,4 +28,47 @@ public class Iterative {
 
     }
 
+    // Same loop as bigIntFibonacci, but only the last two values are kept
+    // and the loop counter is an int, so memory stays at O(n) bits
+    // instead of storing every intermediate value.
+    public static BigInteger streamingBigIntFibonacci(int n) {
+        return streamingBigIntFibonacci(n, 0, null);
+    }
+
+    // Passes every kth value F(0), F(k), F(2k), ... up to F(n) to the consumer,
+    // along with its index. A k of 0 or less emits nothing.
+    public static BigInteger streamingBigIntFibonacci(int n, int k, ObjIntConsumer<BigInteger> consumer) {
+        return streamingBigIntFibonacci(BigInteger.ZERO, BigInteger.ONE, 0, n, k, consumer);
+    }
+
+    // Continues the sequence from F(from) = a and F(from + 1) = b up to F(n).
+    static BigInteger streamingBigIntFibonacci(BigInteger a, BigInteger b, int from, int n,
+                                               int k, ObjIntConsumer<BigInteger> consumer) {
+
+        if (n < from) {
+            throw new IllegalArgumentException("n must be at least " + from);
+        }
+
+        boolean emit = k > 0 && consumer != null;
+
+        for (int i = from; i < n; i++) {
+
+            if (emit && i % k == 0) {
+                consumer.accept(a, i);
+            }
+
+            BigInteger next = a.add(b);
+            a = b;
+            b = next;
+
+        }
+
+        if (emit && n % k == 0) {
+            consumer.accept(a, n);
+        }
+
+        return a;
+
+    }
+
 }
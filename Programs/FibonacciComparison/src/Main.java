@@ -3,7 +3,7 @@ import java.math.BigInteger;
 public class Main {
     public static void main(String[] args) {
 
-        System.out.println("N,Recursive,Iterative");
+        System.out.println("N,Recursive,Iterative,FastDoubling,MatrixPower");
         boolean useBigInt = false;
 
         for (long target = 0; target < 50; target++) {
@@ -33,8 +33,35 @@ public class Main {
 
             long iterativeEnd = System.currentTimeMillis();
 
+            // Calculate the Fibonacci number using fast doubling
+            Object fastDoublingResult;
+
+            long fastDoublingStart = System.currentTimeMillis();
+
+            if (useBigInt) {
+                fastDoublingResult = FastDoubling.bigIntFibonacci((int) target);
+            } else {
+                fastDoublingResult = FastDoubling.longFibonacci((int) target);
+            }
+
+            long fastDoublingEnd = System.currentTimeMillis();
+
+            // Calculate the Fibonacci number using matrix exponentiation
+            Object matrixPowerResult;
+
+            long matrixPowerStart = System.currentTimeMillis();
+
+            if (useBigInt) {
+                matrixPowerResult = MatrixPower.bigIntFibonacci((int) target);
+            } else {
+                matrixPowerResult = MatrixPower.longFibonacci((int) target);
+            }
+
+            long matrixPowerEnd = System.currentTimeMillis();
+
             // Report results
-            System.out.println(target + "," + (recursiveEnd - recursiveStart) + "," + (iterativeEnd - iterativeStart));
+            System.out.println(target + "," + (recursiveEnd - recursiveStart) + "," + (iterativeEnd - iterativeStart) +
+                    "," + (fastDoublingEnd - fastDoublingStart) + "," + (matrixPowerEnd - matrixPowerStart));
 
         }
 
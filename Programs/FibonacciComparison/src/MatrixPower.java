@@ -0,0 +1,111 @@
+import java.math.BigInteger;
+
+public class MatrixPower {
+
+    // [[F(n+1), F(n)], [F(n), F(n-1)]] = [[1, 1], [1, 0]]^n
+    // The matrix is raised to the nth power by repeated squaring.
+    // Every power of Q is symmetric, so only three entries are kept:
+    // {a, b, c} = [[a, b], [b, c]].
+
+    public static BigInteger bigIntFibonacci(int n) {
+
+        if (n < 0) {
+            throw new IllegalArgumentException("n must be non-negative");
+        }
+
+        BigInteger[] result = {BigInteger.ONE, BigInteger.ZERO, BigInteger.ONE}; // identity
+        BigInteger[] base = {BigInteger.ONE, BigInteger.ONE, BigInteger.ZERO};   // Q
+
+        for (int e = n; e > 0; e >>>= 1) {
+            if ((e & 1) == 1) {
+                result = multiply(result, base);
+            }
+            if (e > 1) {
+                base = multiply(base, base);
+            }
+        }
+
+        return result[1];
+
+    }
+
+    public static long longFibonacci(int n) {
+
+        if (n < 0) {
+            throw new IllegalArgumentException("n must be non-negative");
+        }
+
+        long ra = 1, rb = 0, rc = 1;
+        long ba = 1, bb = 1, bc = 0;
+
+        for (int e = n; e > 0; e >>>= 1) {
+
+            if ((e & 1) == 1) {
+                long a = ra * ba + rb * bb;
+                long b = ra * bb + rb * bc;
+                long c = rb * bb + rc * bc;
+                ra = a;
+                rb = b;
+                rc = c;
+            }
+
+            if (e > 1) {
+                long a = ba * ba + bb * bb;
+                long b = bb * (ba + bc);
+                long c = bb * bb + bc * bc;
+                ba = a;
+                bb = b;
+                bc = c;
+            }
+
+        }
+
+        return rb;
+
+    }
+
+    public static long modFibonacci(long n, long mod) {
+
+        if (n < 0 || mod < 1) {
+            throw new IllegalArgumentException("n must be non-negative and mod must be positive");
+        }
+
+        long ra = 1 % mod, rb = 0, rc = 1 % mod;
+        long ba = 1 % mod, bb = 1 % mod, bc = 0;
+
+        for (long e = n; e > 0; e >>>= 1) {
+
+            if ((e & 1) == 1) {
+                long a = FastDoubling.addMod(FastDoubling.mulMod(ra, ba, mod), FastDoubling.mulMod(rb, bb, mod), mod);
+                long b = FastDoubling.addMod(FastDoubling.mulMod(ra, bb, mod), FastDoubling.mulMod(rb, bc, mod), mod);
+                long c = FastDoubling.addMod(FastDoubling.mulMod(rb, bb, mod), FastDoubling.mulMod(rc, bc, mod), mod);
+                ra = a;
+                rb = b;
+                rc = c;
+            }
+
+            if (e > 1) {
+                long a = FastDoubling.addMod(FastDoubling.mulMod(ba, ba, mod), FastDoubling.mulMod(bb, bb, mod), mod);
+                long b = FastDoubling.mulMod(bb, FastDoubling.addMod(ba, bc, mod), mod);
+                long c = FastDoubling.addMod(FastDoubling.mulMod(bb, bb, mod), FastDoubling.mulMod(bc, bc, mod), mod);
+                ba = a;
+                bb = b;
+                bc = c;
+            }
+
+        }
+
+        return rb;
+
+    }
+
+    // Product of two symmetric 2x2 matrices stored as {a, b, c}.
+    // Only valid because powers of Q commute, so the product stays symmetric.
+    private static BigInteger[] multiply(BigInteger[] x, BigInteger[] y) {
+        BigInteger a = x[0].multiply(y[0]).add(x[1].multiply(y[1]));
+        BigInteger b = x[0].multiply(y[1]).add(x[1].multiply(y[2]));
+        BigInteger c = x[1].multiply(y[1]).add(x[2].multiply(y[2]));
+        return new BigInteger[]{a, b, c};
+    }
+
+}
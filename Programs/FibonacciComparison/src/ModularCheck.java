@@ -0,0 +1,76 @@
+import java.math.BigInteger;
+
+// Checks every method that computes F(n) mod m against BigInteger, which
+// can't overflow. Each method changes how it multiplies at some modulus, so
+// the moduli checked sit on both sides of each of those points. Throws an
+// IllegalStateException at the first mismatch.
+//
+// Usage: java ModularCheck
+public class ModularCheck {
+
+    public static void main(String[] args) {
+        check();
+        System.out.println("Every modular method matches BigInteger");
+    }
+
+    // Squares of residues overflow a long once the modulus reaches 2^31.5, and
+    // their sum already once it reaches 2^31, so check the moduli around both
+    // points, along with some even ones that PisanoCache splits with the CRT.
+    private static void check() {
+
+        long[] moduli = {
+                1, 2, 10, 1_000_000_007L,
+                (1L << 31) - 1, 1L << 31, (1L << 31) + 1, 2_500_000_000L, 3_000_000_000L,
+                3_037_000_499L, 3_037_000_500L, 3_037_000_501L,
+                1L << 40, 999_999_999_989L * 6, Long.MAX_VALUE
+        };
+        long[] ns = {0, 1, 2, 93, 1000, 123_456_789L, 1_000_000_000_000_000_000L, Long.MAX_VALUE};
+
+        PisanoCache cache = new PisanoCache(moduli.length);
+
+        for (long mod : moduli) {
+            for (long n : ns) {
+
+                long expected = referenceModFibonacci(n, mod);
+                long[] actual = {cache.fibonacci(n, mod), FastDoubling.modFibonacci(n, mod),
+                        MatrixPower.modFibonacci(n, mod)};
+
+                for (long value : actual) {
+                    if (value != expected) {
+                        throw new IllegalStateException("F(" + n + ") mod " + mod + " should be " + expected +
+                                " but was " + value);
+                    }
+                }
+
+            }
+        }
+
+    }
+
+    // Fast doubling with BigInteger, which can't overflow
+    private static long referenceModFibonacci(long n, long mod) {
+
+        BigInteger m = BigInteger.valueOf(mod);
+        BigInteger a = BigInteger.ZERO;
+        BigInteger b = BigInteger.ONE.mod(m);
+
+        for (int bit = 63 - Long.numberOfLeadingZeros(n); bit >= 0; bit--) {
+
+            BigInteger c = a.multiply(b.shiftLeft(1).subtract(a)).mod(m);
+            BigInteger d = a.multiply(a).add(b.multiply(b)).mod(m);
+
+            if (((n >>> bit) & 1) == 0) {
+                a = c;
+                b = d;
+            } else {
+                a = d;
+                b = c.add(d).mod(m);
+            }
+
+        }
+
+        return a.longValueExact();
+
+    }
+
+}
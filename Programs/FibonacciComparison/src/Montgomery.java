@@ -0,0 +1,85 @@
+import java.math.BigInteger;
+
+// Montgomery multiplication for odd moduli up to 2^63. Values are kept in
+// Montgomery form (x * 2^64 mod m), where a product can be reduced with two
+// multiplications and a shift instead of a 128-bit division. Addition and
+// subtraction work on Montgomery form unchanged.
+final class Montgomery {
+
+    final long mod;
+
+    // -mod^-1 mod 2^64
+    private final long negInverse;
+
+    // 2^64 mod m, which is 1 in Montgomery form
+    private final long one;
+
+    // 2^128 mod m, for converting into Montgomery form
+    private final long rSquared;
+
+    Montgomery(long mod) {
+
+        if (mod < 1 || (mod & 1) == 0) {
+            throw new IllegalArgumentException("mod must be positive and odd");
+        }
+
+        this.mod = mod;
+
+        // Newton's iteration doubles the correct low bits each step,
+        // and mod * mod = 1 mod 8 gives the first 3
+        long inverse = mod;
+        for (int i = 0; i < 5; i++) {
+            inverse *= 2 - mod * inverse;
+        }
+
+        this.negInverse = -inverse;
+        this.one = (Long.remainderUnsigned(-1L, mod) + 1) % mod;
+        this.rSquared = BigInteger.ONE.shiftLeft(128).mod(BigInteger.valueOf(mod)).longValue();
+
+    }
+
+    long one() {
+        return one;
+    }
+
+    long toMontgomery(long a) {
+        return multiply(a % mod, rSquared);
+    }
+
+    long fromMontgomery(long a) {
+        return multiply(a, 1);
+    }
+
+    // a * b / 2^64 mod m for a, b in [0, m)
+    long multiply(long a, long b) {
+
+        long low = a * b;
+        long high = Math.multiplyHigh(a, b);
+
+        // u * mod cancels the low word, carrying out of it unless it was already 0
+        long u = low * negInverse;
+        long uHigh = Math.multiplyHigh(u, mod) + ((u >> 63) & mod);
+        long t = high + uHigh + (low != 0 ? 1 : 0);
+
+        // t < 2m, which can pass 2^63 when m does, so compare unsigned
+        return Long.compareUnsigned(t, mod) >= 0 ? t - mod : t;
+
+    }
+
+    long pow(long base, long exponent) {
+
+        long result = one;
+        long square = toMontgomery(base);
+
+        for (; exponent > 0; exponent >>>= 1) {
+            if ((exponent & 1) != 0) {
+                result = multiply(result, square);
+            }
+            square = multiply(square, square);
+        }
+
+        return fromMontgomery(result);
+
+    }
+
+}
@@ -0,0 +1,143 @@
+import java.io.Serial;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigInteger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+public class ParallelFibonacci {
+
+    // Below this many bits, forking costs more than the multiplications save
+    private static final int PARALLEL_THRESHOLD_BITS = 1 << 16;
+
+    // log2 of the golden ratio. F(k) has at most k * LOG2_PHI + 1 bits.
+    private static final double LOG2_PHI = Math.log((1 + Math.sqrt(5)) / 2) / Math.log(2);
+
+    // The largest F(k + 1) squared has k <= n / 2, so below this n, with a few
+    // bits to spare, nothing would be forked and there's no point handing off
+    // to a pool
+    private static final int SEQUENTIAL_BELOW_N = 2 * (int) ((PARALLEL_THRESHOLD_BITS - 2) / LOG2_PHI) - 4;
+
+    // Pools for explicitly requested parallelisms, kept so that each call
+    // doesn't pay for starting and stopping threads. Their threads are
+    // daemons, so they don't keep the JVM alive.
+    private static final ConcurrentHashMap<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+    // BigInteger.parallelMultiply only exists from Java 19 onwards. It splits
+    // a single huge product across the fork/join pool it's called from.
+    private static final MethodHandle PARALLEL_MULTIPLY = findParallelMultiply();
+
+    // Fast doubling (see FastDoubling), where the three products in each
+    // doubling step, F(k)^2, F(k+1)^2 and F(k) * (2F(k+1) - F(k)), are
+    // independent of each other and are computed at the same time.
+    public static BigInteger bigIntFibonacci(int n, int parallelism) {
+
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+
+        return bigIntFibonacci(n, POOLS.computeIfAbsent(parallelism, ForkJoinPool::new));
+
+    }
+
+    // The same, on the common pool
+    public static BigInteger bigIntFibonacci(int n) {
+        return bigIntFibonacci(n, ForkJoinPool.commonPool());
+    }
+
+    private static BigInteger bigIntFibonacci(int n, ForkJoinPool pool) {
+
+        if (n < 0) {
+            throw new IllegalArgumentException("n must be non-negative");
+        }
+
+        DoublingTask task = new DoublingTask(n);
+        return n < SEQUENTIAL_BELOW_N ? task.compute() : pool.invoke(task);
+
+    }
+
+    private static MethodHandle findParallelMultiply() {
+        try {
+            return MethodHandles.publicLookup().findVirtual(BigInteger.class, "parallelMultiply",
+                    MethodType.methodType(BigInteger.class, BigInteger.class));
+        } catch (NoSuchMethodException | IllegalAccessException ex) {
+            return null;
+        }
+    }
+
+    private static BigInteger multiply(BigInteger x, BigInteger y) {
+
+        if (PARALLEL_MULTIPLY == null || x.bitLength() < PARALLEL_THRESHOLD_BITS) {
+            return x.multiply(y);
+        }
+
+        try {
+            return (BigInteger) PARALLEL_MULTIPLY.invokeExact(x, y);
+        } catch (Throwable ex) {
+            throw new IllegalStateException(ex);
+        }
+
+    }
+
+    private static class DoublingTask extends RecursiveTask<BigInteger> {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final int n;
+
+        DoublingTask(int n) {
+            this.n = n;
+        }
+
+        @Override
+        protected BigInteger compute() {
+
+            BigInteger a = BigInteger.ZERO; // F(k)
+            BigInteger b = BigInteger.ONE;  // F(k+1)
+
+            for (int bit = 31 - Integer.numberOfLeadingZeros(n); bit >= 0; bit--) {
+
+                BigInteger aSquared;
+                BigInteger bSquared;
+                BigInteger cross;
+
+                // Outside a pool, fork() would go to the common pool
+                // rather than the one the caller asked for
+                if (b.bitLength() < PARALLEL_THRESHOLD_BITS || !ForkJoinTask.inForkJoinPool()) {
+                    aSquared = a.multiply(a);
+                    bSquared = b.multiply(b);
+                    cross = a.multiply(b.shiftLeft(1).subtract(a));
+                } else {
+                    BigInteger finalA = a;
+                    BigInteger finalB = b;
+                    ForkJoinTask<BigInteger> aTask = ForkJoinTask.adapt(() -> multiply(finalA, finalA)).fork();
+                    ForkJoinTask<BigInteger> bTask = ForkJoinTask.adapt(() -> multiply(finalB, finalB)).fork();
+                    cross = multiply(a, b.shiftLeft(1).subtract(a));
+                    bSquared = bTask.join();
+                    aSquared = aTask.join();
+                }
+
+                BigInteger c = cross;                  // F(2k)
+                BigInteger d = aSquared.add(bSquared); // F(2k+1)
+
+                if (((n >>> bit) & 1) == 0) {
+                    a = c;
+                    b = d;
+                } else {
+                    a = d;
+                    b = c.add(d);
+                }
+
+            }
+
+            return a;
+
+        }
+
+    }
+
+}
@@ -0,0 +1,441 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Answers F(n) mod m for huge n and many moduli. The Fibonacci sequence
+// modulo m repeats with the Pisano period pi(m), so F(n) = F(n mod pi(m))
+// mod m, and pi(m) <= 6m. The period of each modulus is found once from
+// its factorization and cached with everything needed to do arithmetic
+// modulo it, so every later query for that modulus costs O(log m) no
+// matter how large n is. The least recently used moduli are evicted once
+// there are more than `capacity`.
+public class PisanoCache {
+
+    private final Map<Long, Ring> rings;
+
+    public PisanoCache(int capacity) {
+
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+
+        this.rings = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Ring> eldest) {
+                return size() > capacity;
+            }
+        };
+
+    }
+
+    public synchronized long fibonacci(long n, long mod) {
+
+        if (n < 0 || mod < 1) {
+            throw new IllegalArgumentException("n must be non-negative and mod must be positive");
+        }
+
+        Ring ring = ring(mod);
+
+        if (ring.period > 0) {
+            n %= ring.period;
+        }
+
+        return ring.pair(n)[0];
+
+    }
+
+    // Answers F(n[i]) mod mod[i] for every i
+    public long[] fibonacci(long[] n, long[] mod) {
+
+        if (n.length != mod.length) {
+            throw new IllegalArgumentException("n and mod must have the same length");
+        }
+
+        long[] results = new long[n.length];
+
+        for (int i = 0; i < n.length; i++) {
+            results[i] = fibonacci(n[i], mod[i]);
+        }
+
+        return results;
+
+    }
+
+    // The Pisano period of mod, or 0 if it doesn't fit in a long
+    public synchronized long period(long mod) {
+
+        if (mod < 1) {
+            throw new IllegalArgumentException("mod must be positive");
+        }
+
+        return ring(mod).period;
+
+    }
+
+    public synchronized int size() {
+        return rings.size();
+    }
+
+    private Ring ring(long mod) {
+
+        Ring ring = rings.get(mod);
+
+        if (ring == null) {
+            ring = new Ring(mod);
+            ring.period = pisanoPeriod(mod, ring);
+            rings.put(mod, ring);
+        }
+
+        return ring;
+
+    }
+
+    // pi(m) is the lcm of pi(p^k) over the prime powers dividing m
+    private static long pisanoPeriod(long mod, Ring ring) {
+
+        TreeMap<Long, Integer> factors = new TreeMap<>();
+        factor(mod, factors);
+
+        long period = 1;
+
+        try {
+
+            for (Map.Entry<Long, Integer> factor : factors.entrySet()) {
+                long p = factor.getKey();
+                int k = factor.getValue();
+                long primePower = factors.size() == 1 ? mod : power(p, k);
+                Ring primeRing = factors.size() == 1 ? ring : new Ring(primePower);
+                long primePeriod = primePowerPeriod(p, k, primeRing);
+                period = Math.multiplyExact(period / gcd(period, primePeriod), primePeriod);
+            }
+
+        } catch (ArithmeticException ex) {
+            // Only possible for moduli close to 2^63. Any n is already
+            // below the period, so there is nothing to reduce anyway.
+            return 0;
+        }
+
+        return period;
+
+    }
+
+    // pi(p^k) divides p^(k-1) * pi(p), and pi(p) divides p - 1 when
+    // p = +-1 mod 5, or 2(p + 1) when p = +-2 mod 5, with pi(2) = 3 and
+    // pi(5) = 20. Starting from that multiple, divide out every prime
+    // factor for which the sequence still returns to (0, 1).
+    private static long primePowerPeriod(long p, int k, Ring ring) {
+
+        TreeMap<Long, Integer> factors = new TreeMap<>();
+        long base;
+
+        if (p == 2) {
+            base = 3;
+            factors.put(3L, 1);
+        } else if (p == 5) {
+            base = 20;
+            factors.put(2L, 2);
+            factors.put(5L, 1);
+        } else if (p % 5 == 1 || p % 5 == 4) {
+            base = p - 1;
+            factor(p - 1, factors);
+        } else {
+            base = Math.multiplyExact(2, p + 1);
+            factor(p + 1, factors);
+            factors.merge(2L, 1, Integer::sum);
+        }
+
+        long period = Math.multiplyExact(base, power(p, k - 1));
+        factors.merge(p, k - 1, Integer::sum);
+
+        for (long q : factors.keySet()) {
+            while (period % q == 0 && ring.isIdentity(period / q)) {
+                period /= q;
+            }
+        }
+
+        return period;
+
+    }
+
+    // Arithmetic modulo one modulus. Small moduli multiply directly, larger ones
+    // split m = odd * 2^s, work modulo the odd part with Montgomery reduction and
+    // modulo 2^s with wrapping longs, and recombine with the CRT.
+    private static final class Ring {
+
+        final long mod;
+        final int twos;
+        final long odd;
+        final Montgomery montgomery;
+
+        // odd^-1 mod 2^64
+        final long oddInverse;
+
+        long period;
+
+        Ring(long mod) {
+
+            this.mod = mod;
+            this.twos = Long.numberOfTrailingZeros(mod);
+            this.odd = mod >>> twos;
+
+            // Small enough that FastDoubling.mulMod can't overflow
+            if (mod <= 3037000499L) {
+                this.montgomery = null;
+                this.oddInverse = 0;
+                return;
+            }
+
+            this.montgomery = new Montgomery(odd);
+
+            long inverse = odd;
+            for (int i = 0; i < 5; i++) {
+                inverse *= 2 - odd * inverse;
+            }
+            this.oddInverse = inverse;
+
+        }
+
+        boolean isIdentity(long n) {
+            long[] pair = pair(n);
+            return pair[0] == 0 && pair[1] == 1 % mod;
+        }
+
+        // {F(n), F(n + 1)} mod m
+        long[] pair(long n) {
+
+            if (montgomery == null) {
+                return smallPair(n);
+            }
+
+            long[] oddPair = montgomeryPair(n);
+
+            if (twos == 0) {
+                return oddPair;
+            }
+
+            long[] twoPair = wrappingPair(n);
+            long mask = (1L << twos) - 1;
+
+            // x = xOdd + odd * t, with t chosen so that x = xTwo mod 2^s
+            for (int i = 0; i < 2; i++) {
+                long t = ((twoPair[i] - oddPair[i]) * oddInverse) & mask;
+                oddPair[i] += odd * t;
+            }
+
+            return oddPair;
+
+        }
+
+        private long[] smallPair(long n) {
+
+            long a = 0;
+            long b = 1 % mod;
+
+            for (int bit = 63 - Long.numberOfLeadingZeros(n); bit >= 0; bit--) {
+
+                long c = (a * FastDoubling.subMod(FastDoubling.addMod(b, b, mod), a, mod)) % mod;
+                // Each square fits in a long, but their sum may not
+                long d = FastDoubling.addMod((a * a) % mod, (b * b) % mod, mod);
+
+                if (((n >>> bit) & 1) == 0) {
+                    a = c;
+                    b = d;
+                } else {
+                    a = d;
+                    b = FastDoubling.addMod(c, d, mod);
+                }
+
+            }
+
+            return new long[]{a, b};
+
+        }
+
+        // The same identities in Montgomery form modulo the odd part
+        private long[] montgomeryPair(long n) {
+
+            long a = 0;
+            long b = montgomery.one();
+
+            for (int bit = 63 - Long.numberOfLeadingZeros(n); bit >= 0; bit--) {
+
+                long c = montgomery.multiply(a, FastDoubling.subMod(FastDoubling.addMod(b, b, odd), a, odd));
+                long d = FastDoubling.addMod(montgomery.multiply(a, a), montgomery.multiply(b, b), odd);
+
+                if (((n >>> bit) & 1) == 0) {
+                    a = c;
+                    b = d;
+                } else {
+                    a = d;
+                    b = FastDoubling.addMod(c, d, odd);
+                }
+
+            }
+
+            return new long[]{montgomery.fromMontgomery(a), montgomery.fromMontgomery(b)};
+
+        }
+
+        // Overflowing long arithmetic is exact modulo 2^64, so also modulo 2^s
+        private long[] wrappingPair(long n) {
+
+            long a = 0;
+            long b = 1;
+
+            for (int bit = 63 - Long.numberOfLeadingZeros(n); bit >= 0; bit--) {
+
+                long c = a * (2 * b - a);
+                long d = a * a + b * b;
+
+                if (((n >>> bit) & 1) == 0) {
+                    a = c;
+                    b = d;
+                } else {
+                    a = d;
+                    b = c + d;
+                }
+
+            }
+
+            long mask = (1L << twos) - 1;
+            return new long[]{a & mask, b & mask};
+
+        }
+
+    }
+
+    // Adds the prime factorization of n to factors
+    private static void factor(long n, Map<Long, Integer> factors) {
+
+        // Trial division strips the small factors cheaply
+        for (long p = 2; p < 1000 && p * p <= n; p += p == 2 ? 1 : 2) {
+            while (n % p == 0) {
+                factors.merge(p, 1, Integer::sum);
+                n /= p;
+            }
+        }
+
+        if (n > 1) {
+            factorLarge(n, factors);
+        }
+
+    }
+
+    // n is odd and has no factors below 1000
+    private static void factorLarge(long n, Map<Long, Integer> factors) {
+
+        if (n < 1_000_000 || isPrime(n)) {
+            factors.merge(n, 1, Integer::sum);
+            return;
+        }
+
+        long divisor = pollardRho(n);
+        factorLarge(divisor, factors);
+        factorLarge(n / divisor, factors);
+
+    }
+
+    // Miller-Rabin with bases that are exact for every 64-bit n
+    private static boolean isPrime(long n) {
+
+        Montgomery montgomery = new Montgomery(n);
+        long d = n - 1;
+        int s = Long.numberOfTrailingZeros(d);
+        d >>>= s;
+
+        for (long base : new long[]{2, 325, 9375, 28178, 450775, 9780504, 1795265022}) {
+
+            long x = montgomery.pow(base, d);
+
+            if (base % n == 0 || x == 1 || x == n - 1) {
+                continue;
+            }
+
+            boolean composite = true;
+
+            for (int i = 1; i < s && composite; i++) {
+                x = montgomery.pow(x, 2);
+                composite = x != n - 1;
+            }
+
+            if (composite) {
+                return false;
+            }
+
+        }
+
+        return true;
+
+    }
+
+    // Brent's variant, batching the gcds over 128 steps. The map x -> x^2 + c
+    // is applied in Montgomery form, which is just as pseudo-random.
+    private static long pollardRho(long n) {
+
+        Montgomery montgomery = new Montgomery(n);
+
+        for (long c = 1; ; c++) {
+
+            long y = 2;
+            long product = montgomery.one();
+            long g = 1;
+            long x = y;
+            long saved = y;
+
+            for (long r = 1; g == 1; r <<= 1) {
+
+                x = y;
+
+                for (long i = 0; i < r; i++) {
+                    y = FastDoubling.addMod(montgomery.multiply(y, y), c, n);
+                }
+
+                for (long k = 0; k < r && g == 1; k += 128) {
+
+                    saved = y;
+
+                    for (long i = 0; i < Math.min(128, r - k); i++) {
+                        y = FastDoubling.addMod(montgomery.multiply(y, y), c, n);
+                        product = montgomery.multiply(product, FastDoubling.subMod(Math.max(x, y), Math.min(x, y), n));
+                    }
+
+                    g = gcd(product, n);
+
+                }
+
+            }
+
+            // The batch overshot, so step through it one at a time
+            if (g == n) {
+                do {
+                    saved = FastDoubling.addMod(montgomery.multiply(saved, saved), c, n);
+                    g = gcd(FastDoubling.subMod(Math.max(x, saved), Math.min(x, saved), n), n);
+                } while (g == 1);
+            }
+
+            if (g != n) {
+                return g;
+            }
+
+        }
+
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    private static long power(long base, int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result = Math.multiplyExact(result, base);
+        }
+        return result;
+    }
+
+}
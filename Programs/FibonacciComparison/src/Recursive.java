@@ -1,7 +1,18 @@
 import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Recursive {
 
+    // Results shared by every call to the memoized methods, on every thread,
+    // so a sweep over 0..N only computes each value once.
+    private static final ConcurrentHashMap<Integer, BigInteger> bigIntMemo = new ConcurrentHashMap<>();
+
+    // F(0)..F(intMemoSize - 1), guarded by the class lock
+    private static int[] intMemo = new int[64];
+    private static int intMemoSize = 0;
+
     public static BigInteger bigIntFibonacci(BigInteger n) {
         if (n.equals(new BigInteger("0"))) {
             return new BigInteger("0");
@@ -22,4 +33,107 @@ public class Recursive {
         }
     }
 
+    public static synchronized void clearMemo() {
+        bigIntMemo.clear();
+        intMemoSize = 0;
+    }
+
+    // Same recursion as bigIntFibonacci, but each F(n) is only computed once.
+    // The first call for a large n still recurses n levels deep, so use
+    // stackSafeBigIntFibonacci if n can be in the thousands.
+    public static BigInteger memoizedBigIntFibonacci(int n) {
+
+        if (n < 0) {
+            throw new IllegalArgumentException("n must be non-negative");
+        } else if (n == 0) {
+            return BigInteger.ZERO;
+        } else if (n == 1) {
+            return BigInteger.ONE;
+        }
+
+        BigInteger known = bigIntMemo.get(n);
+
+        if (known != null) {
+            return known;
+        }
+
+        // computeIfAbsent can't be used here, since the map doesn't
+        // allow it to be called recursively. Two threads may compute
+        // the same value, but they'll always agree on it.
+        BigInteger result = memoizedBigIntFibonacci(n - 1).add(memoizedBigIntFibonacci(n - 2));
+        bigIntMemo.putIfAbsent(n, result);
+        return result;
+
+    }
+
+    public static synchronized int memoizedIntFibonacci(int n) {
+
+        if (n < 0) {
+            throw new IllegalArgumentException("n must be non-negative");
+        }
+
+        if (n < intMemoSize) {
+            return intMemo[n];
+        }
+
+        int result;
+
+        if (n == 0) {
+            result = 0;
+        } else if (n == 1) {
+            result = 1;
+        } else {
+            // Recursing on n - 1 first fills in every value below n
+            result = memoizedIntFibonacci(n - 1) + memoizedIntFibonacci(n - 2);
+        }
+
+        if (n >= intMemo.length) {
+            intMemo = Arrays.copyOf(intMemo, Math.max(n + 1, intMemo.length * 2));
+        }
+
+        intMemo[n] = result;
+        intMemoSize = n + 1;
+        return result;
+
+    }
+
+    // The memoized recursion with the call stack replaced by an explicit one
+    // on the heap, so large n can't overflow the thread's stack. Each frame
+    // waits until both of its subproblems are in the memo, then adds them.
+    public static BigInteger stackSafeBigIntFibonacci(int n) {
+
+        if (n < 0) {
+            throw new IllegalArgumentException("n must be non-negative");
+        }
+
+        ArrayDeque<Integer> stack = new ArrayDeque<>();
+        stack.push(n);
+
+        while (!stack.isEmpty()) {
+
+            int k = stack.peek();
+
+            if (k < 2 || bigIntMemo.containsKey(k)) {
+                stack.pop();
+                continue;
+            }
+
+            BigInteger first = k - 1 < 2 ? BigInteger.valueOf(k - 1) : bigIntMemo.get(k - 1);
+            BigInteger second = k - 2 < 2 ? BigInteger.valueOf(k - 2) : bigIntMemo.get(k - 2);
+
+            if (first == null) {
+                stack.push(k - 1);
+            } else if (second == null) {
+                stack.push(k - 2);
+            } else {
+                bigIntMemo.putIfAbsent(k, first.add(second));
+                stack.pop();
+            }
+
+        }
+
+        return n < 2 ? BigInteger.valueOf(n) : bigIntMemo.get(n);
+
+    }
+
 }
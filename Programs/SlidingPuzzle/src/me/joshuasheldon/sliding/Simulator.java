@@ -1,12 +1,28 @@
 package me.joshuasheldon.sliding;
 
+import me.joshuasheldon.sliding.io.Checkpoint;
+import me.joshuasheldon.sliding.io.Checkpointer;
 import me.joshuasheldon.sliding.objs.Move;
+import me.joshuasheldon.sliding.objs.MoveGenerator;
 import me.joshuasheldon.sliding.objs.State;
-import me.joshuasheldon.sliding.state_lib.HashMapStateLibraryNode;
+import me.joshuasheldon.sliding.open_list.BucketOpenList;
+import me.joshuasheldon.sliding.open_list.StatePool;
+import me.joshuasheldon.sliding.search.ParallelIDAStar;
+import me.joshuasheldon.sliding.search.PartialExpansionAStar;
+import me.joshuasheldon.sliding.search.ReductionSolver;
+import me.joshuasheldon.sliding.search.Solution;
+import me.joshuasheldon.sliding.search.WeightedAStar;
 import me.joshuasheldon.sliding.state_lib.StateLibrary;
+import me.joshuasheldon.sliding.state_lib.SymmetricStateLibrary;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
-import java.util.PriorityQueue;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 
 public class Simulator {
@@ -19,46 +35,317 @@ public class Simulator {
      * @param state The state to start from.
      */
     public static void solveWithBestFirstSearch(State state) {
+        try {
+            bestFirstSearch(state, null, null);
+        } catch (IOException ex) {
+            // Only checkpointing does I/O
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Get to the goal state from the given state using
+     * best first search, checkpointing the search to the
+     * given directory so it can be continued with
+     * {@link #resume(Path)} if it is interrupted.
+     *
+     * @param state              The state to start from.
+     * @param checkpointPath     The directory to write checkpoints to.
+     * @param checkpointInterval The number of states to expand
+     *                           between checkpoints.
+     * @throws IOException If a checkpoint could not be written.
+     */
+    public static void solveWithBestFirstSearch(State state, Path checkpointPath, long checkpointInterval)
+            throws IOException {
+        try (Checkpointer checkpointer = Checkpointer.create(checkpointPath, Checkpoint.BEST_FIRST_SEARCH,
+                state, checkpointInterval)) {
+            bestFirstSearch(state, null, checkpointer);
+        }
+    }
+
+    /**
+     * Get to the goal state from the given state using
+     * breadth first search.
+     *
+     * @param state The state to start from.
+     */
+    public static void solveWithBreadthFirstSearch(State state) {
+        try {
+            breadthFirstSearch(state, null, null);
+        } catch (IOException ex) {
+            // Only checkpointing does I/O
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Get to the goal state from the given state using
+     * breadth first search, checkpointing the search to the
+     * given directory so it can be continued with
+     * {@link #resume(Path)} if it is interrupted.
+     *
+     * @param state              The state to start from.
+     * @param checkpointPath     The directory to write checkpoints to.
+     * @param checkpointInterval The number of states to expand
+     *                           between checkpoints.
+     * @throws IOException If a checkpoint could not be written.
+     */
+    public static void solveWithBreadthFirstSearch(State state, Path checkpointPath, long checkpointInterval)
+            throws IOException {
+        try (Checkpointer checkpointer = Checkpointer.create(checkpointPath, Checkpoint.BREADTH_FIRST_SEARCH,
+                state, checkpointInterval)) {
+            breadthFirstSearch(state, null, checkpointer);
+        }
+    }
+
+    /**
+     * Get to the goal state from the given state using
+     * weighted A* search, which finds a solution at most
+     * <code>weight</code> times longer than the shortest one.
+     *
+     * @param state  The state to start from.
+     * @param weight How many times longer than the shortest
+     *               solution the solution may be, at least
+     *               <code>1</code>.
+     * @see WeightedAStar
+     */
+    public static void solveWithWeightedAStar(State state, double weight) {
+
+        WeightedAStar search = new WeightedAStar(state);
+        Solution solution = search.search(weight);
+
+        if (solution == null) {
+            System.out.println("No solution found!");
+            return;
+        }
+
+        System.out.println("Successfully found solution in " + solution.cost() + " moves, at most " +
+                solution.bound() + " times the fewest possible! Expanded " + search.getExpanded() +
+                " states and reached " + search.getReached() + " states!");
+
+    }
+
+    /**
+     * Get to the goal state from the given state using A*
+     * search with partial expansion, which finds the shortest
+     * solution while only adding the children of a state to
+     * the queue once they are about to be needed.
+     *
+     * @param state The state to start from.
+     * @see PartialExpansionAStar
+     */
+    public static void solveWithPartialExpansionAStar(State state) {
+
+        PartialExpansionAStar search = new PartialExpansionAStar(state);
+        Solution solution = search.search();
+
+        if (solution == null) {
+            System.out.println("No solution found!");
+            return;
+        }
+
+        System.out.println("Successfully found solution in " + solution.cost() + " moves! Made " +
+                search.getExpansions() + " expansions, created " + search.getReached() +
+                " states, and held at most " + search.getLargestOpenList() + " states in the queue!");
+
+    }
+
+    /**
+     * Get to the goal state from the given state using IDA*
+     * search spread across several threads, which finds the
+     * shortest solution while only keeping the current path
+     * of each thread in memory. The same solution is found
+     * no matter how many threads are used.
+     *
+     * @param state       The state to start from.
+     * @param parallelism The number of threads to search with.
+     * @see ParallelIDAStar
+     */
+    public static void solveWithParallelIDAStar(State state, int parallelism) {
+
+        ParallelIDAStar search = new ParallelIDAStar(state, parallelism);
+        Solution solution = search.search();
+
+        if (solution == null) {
+            System.out.println("No solution found!");
+            return;
+        }
+
+        System.out.println("Successfully found solution in " + solution.cost() + " moves! Expanded " +
+                search.getExpanded() + " states over " + search.getIterations() + " iterations!");
+
+    }
+
+    /**
+     * Get to the goal state from the given state by placing
+     * tiles one row or column at a time, which works for
+     * boards of any size but doesn't find a short solution.
+     *
+     * @param state The state to start from.
+     * @see ReductionSolver
+     */
+    public static void solveWithReduction(State state) {
+
+        List<Move> moves = ReductionSolver.solve(state);
+
+        if (moves == null) {
+            System.out.println("No solution found!");
+            return;
+        }
+
+        System.out.println("Successfully found solution in " + moves.size() + " moves!");
+
+    }
+
+    /**
+     * Get to the goal state from the given state using
+     * breadth first frontier search, which finds the
+     * same shortest solution as breadth first search
+     * without remembering every state it has visited.
+     *
+     * @param state The state to start from.
+     * @see #frontierSearch(State, State)
+     */
+    public static void solveWithFrontierSearch(State state) {
+        frontierSearch(state, state.goalState());
+    }
+
+    /**
+     * Counts how many states are at each distance from the
+     * given state, by exhaustively searching the whole space
+     * of states reachable from it with breadth first frontier
+     * search. Only the two layers being worked on are ever
+     * held in memory.
+     *
+     * @param state The state to start from.
+     * @return The number of states at each distance from the
+     * given state, starting with the state itself at distance
+     * <code>0</code>.
+     * @see #frontierSearch(State, State)
+     */
+    public static List<Long> countStatesByDepth(State state) {
+        return frontierSearch(state, null);
+    }
+
+    /**
+     * Continues a search from the latest checkpoint in the
+     * given directory. The visited states, the frontier and
+     * the statistics are restored exactly as they were, so
+     * the search continues as if it had never been stopped,
+     * and keeps checkpointing to the same directory.
+     *
+     * @param checkpointPath     The directory the search was checkpointed to.
+     * @param checkpointInterval The number of states to expand
+     *                           between checkpoints.
+     * @throws IOException If the checkpoint could not be read,
+     *                     or a new checkpoint could not be written.
+     */
+    public static void resume(Path checkpointPath, long checkpointInterval) throws IOException {
+
+        Checkpoint checkpoint = Checkpoint.load(checkpointPath);
+        State start = checkpoint.getStartState();
+
+        try (Checkpointer checkpointer = Checkpointer.resume(checkpoint, checkpointInterval)) {
+            switch (checkpoint.getAlgorithm()) {
+                case Checkpoint.BEST_FIRST_SEARCH -> bestFirstSearch(start, checkpoint, checkpointer);
+                case Checkpoint.BREADTH_FIRST_SEARCH -> breadthFirstSearch(start, checkpoint, checkpointer);
+                default -> throw new IOException("Unknown search in checkpoint!");
+            }
+        }
+
+    }
+
+    /**
+     * Continues a search from the latest checkpoint in the
+     * given directory, checkpointing every 100,000 expansions.
+     *
+     * @param checkpointPath The directory the search was checkpointed to.
+     * @throws IOException If the checkpoint could not be read,
+     *                     or a new checkpoint could not be written.
+     * @see #resume(Path, long)
+     */
+    public static void resume(Path checkpointPath) throws IOException {
+        resume(checkpointPath, 100_000);
+    }
+
+    /**
+     * Best first search, optionally restored from a checkpoint
+     * and optionally checkpointing as it goes.
+     *
+     * @param state        The state to start from.
+     * @param restored     The checkpoint to restore from, or <code>null</code>.
+     * @param checkpointer The checkpointer to record progress
+     *                     with, or <code>null</code>.
+     */
+    private static void bestFirstSearch(State state, Checkpoint restored, Checkpointer checkpointer)
+            throws IOException {
 
         // Establish library
-        HashMapStateLibraryNode root = new HashMapStateLibraryNode(false, 2);
-        StateLibrary library = new StateLibrary(state.getBoardSize(), root);
-        library.addStateToLibrary(state);
+        StateLibrary library = StateLibrary.createAdaptive(state.getBoardSize());
 
-        // Set up queue
-        PriorityQueue<State> queue = new PriorityQueue<>();
-        queue.add(state);
+        // Set up queue. States are stored in a pool and
+        // the queue only holds their handles, bucketed by
+        // their distance from the goal.
+        StatePool pool = new StatePool();
+        BucketOpenList queue = new BucketOpenList();
 
         // Calculate the goal so we can
         // verify our moves
         State goal = state.goalState();
 
-        // Sanity check
-        if (state.equals(goal)) {
-            System.out.println("Given state is already at the goal!");
-            return;
-        }
+        // Reused by every expansion to hold the
+        // moves that can be made from a state
+        int[] moveBuffer = new int[MoveGenerator.maxMoves(state.getBlankCount())];
 
         // Record statistics
         int moves = -1;   // number of moves made to get to the goal
         int explored = 0; // number of states added to the queue
         int denied = 0;   // number of states that weren't added to the queue because they were already visited
 
+        if (restored == null) {
+
+            library.addStateToLibrary(state);
+            queue.push(pool.add(state), state.getDistanceFromGoal(), state.getDistanceFromGoal());
+
+            if (checkpointer != null) {
+                checkpointer.visited(state);
+            }
+
+            // Sanity check
+            if (state.equals(goal)) {
+                System.out.println("Given state is already at the goal!");
+                return;
+            }
+
+        } else {
+
+            // Restore everything as it was
+            restored.forEachVisitedState(library::addStateToLibrary);
+            restored.forEachFrontierState(frontierState -> queue.push(pool.add(frontierState),
+                    frontierState.getDistanceFromGoal(), frontierState.getDistanceFromGoal()));
+            moves = (int) restored.getCounter(0);
+            explored = (int) restored.getCounter(1);
+            denied = (int) restored.getCounter(2);
+
+        }
+
         // Keep going until we've explored all states
         while (!queue.isEmpty()) {
 
             // Go to next state, update statistics,
             // and print position
             moves++;
-            State current = queue.poll();
+            State current = pool.release(queue.pop());
 
             // Investigate all valid moves that could be
             // made from the current state
-            for (Move move : current.validMoves()) {
+            int moveCount = current.validMoves(moveBuffer);
+
+            for (int i = 0; i < moveCount; i++) {
 
                 // Create new state object by applying
                 // this move to this state
-                State next = current.apply(move);
+                State next = current.apply(moveBuffer[i]);
 
                 // Check if the neighbor is the goal
                 if (next.equals(goal)) {
@@ -73,17 +360,24 @@ public class Simulator {
                             " states to queue and denied " + denied + " previously explored states! Using " +
                             memoryInUseBeforeGC + " bytes of memory before GC, and " + memoryInUseAfterGC +
                             " bytes of memory after GC!");
+                    System.out.println("State library holds " + library.getFootprintReport() + "!");
                     return;
 
                 }
 
                 // Check if we've encountered this state before
                 if (!library.isStateInLibrary(next)) {
+
                     // Mark state as visited, add it to
                     // the queue, and update statistics
                     library.addStateToLibrary(next);
-                    queue.add(next);
+                    queue.push(pool.add(next), next.getDistanceFromGoal(), next.getDistanceFromGoal());
                     explored++;
+
+                    if (checkpointer != null) {
+                        checkpointer.visited(next);
+                    }
+
                 } else {
                     // We've seen this state before, its either
                     // already in the queue or we've already
@@ -94,6 +388,13 @@ public class Simulator {
 
             }
 
+            // Checkpoint between expansions, writing the queue
+            // in an order that rebuilds it exactly
+            if (checkpointer != null && checkpointer.tick()) {
+                queue.forEach((handle, f, h) -> checkpointer.addToFrontier(pool.get(handle)));
+                checkpointer.commit(moves, explored, denied);
+            }
+
         }
 
         // If we escape the loop, we didn't find a solution
@@ -102,23 +403,36 @@ public class Simulator {
     }
 
     /**
-     * Get to the goal state from the given state using
-     * breadth first search.
+     * Breadth first search, optionally restored from a checkpoint
+     * and optionally checkpointing as it goes.
      *
-     * @param state The state to start from.
+     * @param state        The state to start from.
+     * @param restored     The checkpoint to restore from, or <code>null</code>.
+     * @param checkpointer The checkpointer to record progress
+     *                     with, or <code>null</code>.
      */
-    public static void solveWithBreadthFirstSearch(State state) {
+    private static void breadthFirstSearch(State state, Checkpoint restored, Checkpointer checkpointer)
+            throws IOException {
 
-        HashMapStateLibraryNode root = new HashMapStateLibraryNode(false, 2);
-        StateLibrary library = new StateLibrary(state.getBoardSize(), root);
+        // A state's reflection is as far from the goal as the
+        // state itself, and was reached no sooner, so only
+        // one of the two ever needs to be visited
+        SymmetricStateLibrary library = new SymmetricStateLibrary(state.getBoardSize());
 
         State goal = state.goalState();
 
         Queue<State> queue = new LinkedList<>();
-        queue.add(state);
 
         int runs = 0;
 
+        if (restored == null) {
+            queue.add(state);
+        } else {
+            restored.forEachVisitedState(library::addStateToLibrary);
+            restored.forEachFrontierState(queue::add);
+            runs = (int) restored.getCounter(0);
+        }
+
         while (!queue.isEmpty()) {
 
             runs++;
@@ -126,10 +440,21 @@ public class Simulator {
 
             if (current.equals(goal)) {
                 System.out.println("Successfully found solution in " + runs + " runs!");
+                System.out.println("State library holds " + library.getFootprintReport() + "!");
                 return;
             }
 
-            library.addStateToLibrary(current);
+            // The queue can hold a state more than once, so it's
+            // only recorded the first time it's expanded
+            if (!library.isStateInLibrary(current)) {
+
+                library.addStateToLibrary(current);
+
+                if (checkpointer != null) {
+                    checkpointer.visited(current);
+                }
+
+            }
 
             for (Move move : current.validMoves()) {
                 State next = current.apply(move);
@@ -139,10 +464,151 @@ public class Simulator {
                 }
             }
 
+            if (checkpointer != null && checkpointer.tick()) {
+                queue.forEach(checkpointer::addToFrontier);
+                checkpointer.commit(runs);
+            }
+
         }
 
         System.out.println("No solution found!");
 
     }
 
+    /**
+     * Breadth first frontier search, which keeps only the layer
+     * being expanded and the layer being generated, instead of
+     * every visited state.<br><br>
+     * <p>
+     * Every move slides one tile one space, so moves always lead
+     * to the layer before or the layer after. Each state carries
+     * a bit for every move leading back to a state in the layer
+     * before it, set when that state generated it, and those moves
+     * are skipped when it is expanded. Parents are therefore never
+     * generated again, and the only duplicates left are states
+     * reached from several parents in the same layer, which are
+     * merged by combining their bits. A move is identified by the
+     * rank of the blank space it slides a tile into among the
+     * state's blank spaces, and the direction of the tile from
+     * that blank space, which fits in a <code>long</code> for up
+     * to 16 blank spaces.
+     *
+     * @param state The state to start from.
+     * @param goal  The state to stop at, or <code>null</code>
+     *              to search the whole space.
+     * @return The number of states in each layer searched.
+     */
+    private static List<Long> frontierSearch(State state, State goal) {
+
+        if (state.getBlankCount() > 16) {
+            throw new IllegalArgumentException("Frontier search supports at most 16 blank spaces!");
+        }
+
+        MoveGenerator generator = MoveGenerator.forBoardSize(state.getBoardSize());
+        int[] moveBuffer = new int[MoveGenerator.maxMoves(state.getBlankCount())];
+        int[] blankCells = new int[state.getBlankCount()];
+        int[] childBlankCells = new int[state.getBlankCount()];
+
+        // Each state in a layer is mapped to the
+        // moves that lead back to the layer before
+        Map<State, Long> layer = new HashMap<>();
+        layer.put(state, 0L);
+
+        List<Long> layerSizes = new ArrayList<>();
+        layerSizes.add(1L);
+
+        long explored = 1;
+        long largestFrontier = 1;
+
+        if (state.equals(goal)) {
+            System.out.println("Given state is already at the goal!");
+            return layerSizes;
+        }
+
+        while (!layer.isEmpty()) {
+
+            Map<State, Long> nextLayer = new HashMap<>();
+
+            for (Map.Entry<State, Long> entry : layer.entrySet()) {
+
+                State current = entry.getKey();
+                long usedMoves = entry.getValue();
+
+                current.copyBlankCellsInto(blankCells);
+                int moveCount = current.validMoves(moveBuffer);
+
+                for (int i = 0; i < moveCount; i++) {
+
+                    int code = moveBuffer[i];
+                    int direction = MoveGenerator.directionOf(code);
+                    int blankCell = generator.target(code);
+
+                    // The tile is in the opposite direction
+                    // of its move from the blank space
+                    if ((usedMoves & (1L << moveId(blankCells, blankCell, direction ^ 1))) != 0) {
+                        continue;
+                    }
+
+                    State next = current.apply(code);
+
+                    // Moving the tile back slides it from where the blank
+                    // space now is, in the direction it just moved
+                    next.copyBlankCellsInto(childBlankCells);
+                    long backMove = 1L << moveId(childBlankCells, MoveGenerator.cellOf(code), direction);
+
+                    nextLayer.merge(next, backMove, (a, b) -> a | b);
+
+                }
+
+                largestFrontier = Math.max(largestFrontier, layer.size() + nextLayer.size());
+
+            }
+
+            layer = nextLayer;
+
+            if (layer.isEmpty()) {
+                break;
+            }
+
+            layerSizes.add((long) layer.size());
+            explored += layer.size();
+
+            if (goal != null && layer.containsKey(goal)) {
+                System.out.println("Successfully found solution in " + (layerSizes.size() - 1) + " moves! " +
+                        "Explored " + explored + " states, holding at most " + largestFrontier +
+                        " of them in memory at once!");
+                return layerSizes;
+            }
+
+        }
+
+        if (goal != null) {
+            System.out.println("No solution found!");
+        } else {
+            System.out.println("Explored all " + explored + " reachable states in " + (layerSizes.size() - 1) +
+                    " layers, holding at most " + largestFrontier + " of them in memory at once!");
+        }
+
+        return layerSizes;
+
+    }
+
+    /**
+     * @param blankCells The cells of the blank spaces of a state, in ascending order.
+     * @param blankCell  The cell of the blank space a tile is slid into.
+     * @param direction  The code of the direction of the tile from the blank space.
+     * @return The bit used for the move by frontier search.
+     */
+    private static int moveId(int[] blankCells, int blankCell, int direction) {
+
+        int rank = 0;
+
+        while (blankCells[rank] != blankCell) {
+            rank++;
+        }
+
+        return (rank << 2) | direction;
+
+    }
+
 }
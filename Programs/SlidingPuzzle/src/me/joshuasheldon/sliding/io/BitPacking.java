@@ -0,0 +1,86 @@
+package me.joshuasheldon.sliding.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Packs small non-negative integers into a byte buffer
+ * using a fixed number of bits each, least significant
+ * bits first.
+ */
+class BitPacking {
+
+    /**
+     * @param count The number of values.
+     * @param bits  The number of bits per value.
+     * @return The number of bytes the packed values take up.
+     */
+    static int packedBytes(int count, int bits) {
+        return (int) (((long) count * bits + 7) / 8);
+    }
+
+    /**
+     * Writes the first <code>count</code> values of the array
+     * into the buffer, using <code>bits</code> bits for each.
+     * The buffer must have at least {@link #packedBytes(int, int)}
+     * bytes remaining.
+     *
+     * @param values The values to pack.
+     * @param count  The number of values to pack.
+     * @param bits   The number of bits per value, at most 24.
+     * @param out    The buffer to write into.
+     */
+    static void pack(int[] values, int count, int bits, ByteBuffer out) {
+
+        long accumulator = 0;
+        int accumulatedBits = 0;
+
+        for (int i = 0; i < count; i++) {
+
+            accumulator |= ((long) values[i]) << accumulatedBits;
+            accumulatedBits += bits;
+
+            while (accumulatedBits >= 8) {
+                out.put((byte) accumulator);
+                accumulator >>>= 8;
+                accumulatedBits -= 8;
+            }
+
+        }
+
+        if (accumulatedBits > 0) {
+            out.put((byte) accumulator);
+        }
+
+    }
+
+    /**
+     * Reads <code>count</code> values packed by
+     * {@link #pack(int[], int, int, ByteBuffer)} into the array.
+     *
+     * @param in     The buffer to read from.
+     * @param bits   The number of bits per value, at most 24.
+     * @param values The array to read into.
+     * @param count  The number of values to read.
+     */
+    static void unpack(ByteBuffer in, int bits, int[] values, int count) {
+
+        long accumulator = 0;
+        int accumulatedBits = 0;
+        int mask = (1 << bits) - 1;
+
+        for (int i = 0; i < count; i++) {
+
+            while (accumulatedBits < bits) {
+                accumulator |= ((long) (in.get() & 0xFF)) << accumulatedBits;
+                accumulatedBits += 8;
+            }
+
+            values[i] = (int) (accumulator & mask);
+            accumulator >>>= bits;
+            accumulatedBits -= bits;
+
+        }
+
+    }
+
+}
@@ -0,0 +1,121 @@
+package me.joshuasheldon.sliding.io;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * Reads a channel in large sequential chunks into a
+ * reused byte buffer that records are decoded from.
+ */
+abstract class BufferedChannelReader implements Closeable {
+
+    /**
+     * The most bytes a single record may take up, which
+     * bounds how far the buffer is ever grown.
+     */
+    static final int MAX_RECORD_BYTES = 1 << 30;
+
+    /**
+     * The channel to read from.
+     */
+    private final ReadableByteChannel channel;
+
+    /**
+     * The buffer records are decoded from. Kept in
+     * read mode between calls to {@link #fill(int)}.
+     */
+    protected ByteBuffer buffer;
+
+    /**
+     * @param channel The channel to read from.
+     */
+    protected BufferedChannelReader(ReadableByteChannel channel) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(BufferedChannelWriter.DEFAULT_BUFFER_BYTES);
+        this.buffer.flip();
+    }
+
+    /**
+     * Closes the channel.
+     *
+     * @throws IOException If the channel could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * Makes sure the buffer has at least the given number
+     * of bytes remaining, reading from the channel if needed.
+     *
+     * @param bytes The number of bytes needed.
+     * @return <code>true</code> if the bytes are available,
+     * <code>false</code> if the channel ended cleanly
+     * before any of them could be read.
+     * @throws IOException If the channel could not be read from, if
+     *                     it ended in the middle of a record, or if more
+     *                     than {@link #MAX_RECORD_BYTES} bytes are needed.
+     */
+    protected boolean fill(int bytes) throws IOException {
+
+        if (this.buffer.remaining() >= bytes) {
+            return true;
+        }
+
+        if (bytes > MAX_RECORD_BYTES) {
+            throw new IOException("Record is too large to read!");
+        }
+
+        // Grow the buffer for records larger than it, to the
+        // next power of two, which can't pass the largest record
+        if (this.buffer.capacity() < bytes) {
+            long capacity = Math.min(Long.highestOneBit(bytes - 1L) << 1, MAX_RECORD_BYTES);
+            ByteBuffer larger = ByteBuffer.allocateDirect((int) Math.max(bytes, capacity));
+            larger.put(this.buffer);
+            this.buffer = larger;
+        } else {
+            this.buffer.compact();
+        }
+
+        while (this.buffer.position() < bytes) {
+            if (this.channel.read(this.buffer) < 0) {
+                break;
+            }
+        }
+
+        this.buffer.flip();
+
+        if (this.buffer.remaining() >= bytes) {
+            return true;
+        }
+
+        if (this.buffer.remaining() == 0) {
+            return false;
+        }
+
+        throw new EOFException("Channel ended in the middle of a record!");
+
+    }
+
+    /**
+     * @return The number of bytes left to read, including those
+     * already in the buffer, or <code>-1</code> if the channel
+     * can't tell, such as when it wraps a stream.
+     * @throws IOException If the size or position of the channel could not be read.
+     */
+    protected long remainingBytes() throws IOException {
+
+        if (this.channel instanceof SeekableByteChannel seekable) {
+            return this.buffer.remaining() + seekable.size() - seekable.position();
+        }
+
+        return -1;
+
+    }
+
+}
@@ -0,0 +1,89 @@
+package me.joshuasheldon.sliding.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Buffers records in a reused byte buffer and writes
+ * them to a channel in large sequential chunks.
+ */
+abstract class BufferedChannelWriter implements Closeable {
+
+    /**
+     * The default size of the buffer, in bytes.
+     */
+    static final int DEFAULT_BUFFER_BYTES = 1 << 16;
+
+    /**
+     * The channel to write to.
+     */
+    private final WritableByteChannel channel;
+
+    /**
+     * The buffer records are written into before
+     * being written to the channel.
+     */
+    protected ByteBuffer buffer;
+
+    /**
+     * @param channel The channel to write to.
+     */
+    protected BufferedChannelWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(DEFAULT_BUFFER_BYTES);
+    }
+
+    /**
+     * Flushes the buffer and closes the channel.
+     *
+     * @throws IOException If the channel could not be written to or closed.
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        this.channel.close();
+    }
+
+    /**
+     * Makes sure the buffer has at least the given number
+     * of bytes remaining, flushing it or growing it if needed.
+     *
+     * @param bytes The number of bytes needed.
+     * @throws IOException If the channel could not be written to.
+     */
+    protected void ensureRemaining(int bytes) throws IOException {
+
+        if (this.buffer.remaining() >= bytes) {
+            return;
+        }
+
+        flush();
+
+        // Only happens for records larger than
+        // the whole buffer, like very long paths
+        if (this.buffer.capacity() < bytes) {
+            this.buffer = ByteBuffer.allocateDirect(Integer.highestOneBit(bytes - 1) << 1);
+        }
+
+    }
+
+    /**
+     * Writes everything in the buffer to the channel.
+     *
+     * @throws IOException If the channel could not be written to.
+     */
+    public void flush() throws IOException {
+
+        this.buffer.flip();
+
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+
+        this.buffer.clear();
+
+    }
+
+}
@@ -0,0 +1,286 @@
+package me.joshuasheldon.sliding.io;
+
+import me.joshuasheldon.sliding.objs.State;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * A checkpoint of a search, written by a {@link Checkpointer}
+ * and loaded from its directory. A checkpoint records which
+ * search was running, the state it started from, the states
+ * it had visited, the states on its frontier and its counters.
+ */
+public class Checkpoint {
+
+    /**
+     * Identifies a checkpoint of best first search.
+     */
+    public static final byte BEST_FIRST_SEARCH = 0;
+
+    /**
+     * Identifies a checkpoint of breadth first search.
+     */
+    public static final byte BREADTH_FIRST_SEARCH = 1;
+
+    /**
+     * The magic number at the start of the metadata file ("SPCK").
+     */
+    static final int META_MAGIC = 0x5350434B;
+
+    /**
+     * The name of the metadata file, which is replaced
+     * atomically once everything it refers to is on disk.
+     */
+    static final String META_FILE = "checkpoint.meta";
+
+    /**
+     * The name of the append-only log of visited states.
+     */
+    static final String VISITED_FILE = "visited.bin";
+
+    /**
+     * The search that was checkpointed.
+     */
+    private final byte algorithm;
+
+    /**
+     * The length of one side of the board.
+     */
+    private final int boardSize;
+
+    /**
+     * The number of blank spaces on the board.
+     */
+    private final int blankCount;
+
+    /**
+     * The state the search started from, by cell.
+     */
+    private final int[] startCells;
+
+    /**
+     * The number of the checkpoint, which names its frontier file.
+     */
+    private final long generation;
+
+    /**
+     * The number of states in the visited log that belong to
+     * this checkpoint. Anything after them was written by a
+     * checkpoint that never finished and is ignored.
+     */
+    private final long visitedCount;
+
+    /**
+     * The number of states on the frontier.
+     */
+    private final long frontierCount;
+
+    /**
+     * The search-specific counters.
+     */
+    private final long[] counters;
+
+    /**
+     * The directory the checkpoint was loaded from.
+     */
+    private final Path directory;
+
+    private Checkpoint(Path directory, byte algorithm, int boardSize, int blankCount, int[] startCells,
+                       long generation, long visitedCount, long frontierCount, long[] counters) {
+        this.directory = directory;
+        this.algorithm = algorithm;
+        this.boardSize = boardSize;
+        this.blankCount = blankCount;
+        this.startCells = startCells;
+        this.generation = generation;
+        this.visitedCount = visitedCount;
+        this.frontierCount = frontierCount;
+        this.counters = counters;
+    }
+
+    /**
+     * @param generation The number of a checkpoint.
+     * @return The name of the frontier file of the checkpoint.
+     */
+    static String frontierFile(long generation) {
+        return "frontier-" + generation + ".bin";
+    }
+
+    /**
+     * Loads the latest complete checkpoint from a directory.
+     *
+     * @param directory The directory written to by a {@link Checkpointer}.
+     * @return The checkpoint.
+     * @throws IOException If the checkpoint could not be read or is corrupt.
+     */
+    public static Checkpoint load(Path directory) throws IOException {
+
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(directory.resolve(META_FILE)));
+
+        if (in.getInt() != META_MAGIC || in.get() != StateCodec.VERSION) {
+            throw new IOException("Unrecognized checkpoint format!");
+        }
+
+        byte algorithm = in.get();
+        int boardSize = in.get() & 0xFF;
+        int blankCount = in.get() & 0xFF;
+
+        int[] startCells = new int[boardSize * boardSize];
+        StateCodec.readBoard(in, boardSize, startCells);
+
+        long generation = in.getLong();
+        long visitedCount = in.getLong();
+        long frontierCount = in.getLong();
+
+        long[] counters = new long[in.getInt()];
+
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = in.getLong();
+        }
+
+        return new Checkpoint(directory, algorithm, boardSize, blankCount, startCells,
+                generation, visitedCount, frontierCount, counters);
+
+    }
+
+    /**
+     * Reads up to <code>count</code> states from a state file.
+     */
+    private static void readStates(Path file, long count, Consumer<State> consumer) throws IOException {
+
+        try (StateReader reader = new StateReader(FileChannel.open(file, StandardOpenOption.READ))) {
+
+            for (long i = 0; i < count; i++) {
+
+                State state = reader.read();
+
+                if (state == null) {
+                    throw new IOException("Checkpoint file " + file + " is missing states!");
+                }
+
+                consumer.accept(state);
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Passes every state that was on the frontier to the
+     * consumer, in the order they were written.
+     *
+     * @param consumer The consumer of the states.
+     * @throws IOException If the frontier file could not be read.
+     */
+    public void forEachFrontierState(Consumer<State> consumer) throws IOException {
+        readStates(this.directory.resolve(frontierFile(this.generation)), this.frontierCount, consumer);
+    }
+
+    /**
+     * Passes every state that had been visited to the
+     * consumer, in the order they were visited.
+     *
+     * @param consumer The consumer of the states.
+     * @throws IOException If the visited log could not be read.
+     */
+    public void forEachVisitedState(Consumer<State> consumer) throws IOException {
+        readStates(this.directory.resolve(VISITED_FILE), this.visitedCount, consumer);
+    }
+
+    /**
+     * Writes the metadata of a checkpoint into the buffer.
+     */
+    static void writeMeta(ByteBuffer out, byte algorithm, int boardSize, int blankCount, int[] startCells,
+                          long generation, long visitedCount, long frontierCount, long[] counters) {
+
+        out.putInt(META_MAGIC);
+        out.put(StateCodec.VERSION);
+        out.put(algorithm);
+        out.put((byte) boardSize);
+        out.put((byte) blankCount);
+        StateCodec.writeBoard(startCells, boardSize, out);
+        out.putLong(generation);
+        out.putLong(visitedCount);
+        out.putLong(frontierCount);
+        out.putInt(counters.length);
+
+        for (long counter : counters) {
+            out.putLong(counter);
+        }
+
+    }
+
+    /**
+     * @return The search that was checkpointed, either
+     * {@link #BEST_FIRST_SEARCH} or {@link #BREADTH_FIRST_SEARCH}.
+     */
+    public byte getAlgorithm() {
+        return this.algorithm;
+    }
+
+    /**
+     * @return The number of blank spaces on the board.
+     */
+    public int getBlankCount() {
+        return this.blankCount;
+    }
+
+    /**
+     * @return The length of one side of the board.
+     */
+    public int getBoardSize() {
+        return this.boardSize;
+    }
+
+    /**
+     * @param index The index of the counter.
+     * @return The value of the counter, or <code>0</code>
+     * if the checkpoint has no counter at that index.
+     */
+    public long getCounter(int index) {
+        return index < this.counters.length ? this.counters[index] : 0;
+    }
+
+    /**
+     * @return The directory the checkpoint was loaded from.
+     */
+    public Path getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * @return The number of the checkpoint.
+     */
+    public long getGeneration() {
+        return this.generation;
+    }
+
+    /**
+     * @return The state the search started from.
+     * @throws IOException If the stored board is invalid.
+     */
+    public State getStartState() throws IOException {
+
+        try {
+            return State.fromCells(this.startCells.clone(), this.boardSize);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Corrupt start state in checkpoint!", ex);
+        }
+
+    }
+
+    /**
+     * @return The number of states that had been visited.
+     */
+    public long getVisitedCount() {
+        return this.visitedCount;
+    }
+
+}
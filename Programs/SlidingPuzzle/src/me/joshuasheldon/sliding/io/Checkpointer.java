@@ -0,0 +1,432 @@
+package me.joshuasheldon.sliding.io;
+
+import me.joshuasheldon.sliding.objs.State;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Periodically checkpoints a search to a directory, so that
+ * it can be resumed from {@link Checkpoint#load(Path)} if the
+ * JVM dies. The search thread only encodes states into memory
+ * buffers, and a background thread writes them to disk with
+ * sequential writes, so checkpointing barely stalls the search.<br><br>
+ * <p>
+ * Checkpoints are incremental where possible: visited states
+ * never leave the visited set, so they are appended to a log
+ * as they're visited and each checkpoint only writes the states
+ * visited since the last one. The frontier changes constantly,
+ * so it is written in full each time. A checkpoint only counts
+ * once its metadata file has been atomically replaced, so a
+ * crash in the middle of writing one leaves the previous
+ * checkpoint intact.
+ */
+public class Checkpointer implements Closeable {
+
+    /**
+     * The directory the checkpoints are written to.
+     */
+    private final Path directory;
+
+    /**
+     * The search being checkpointed.
+     */
+    private final byte algorithm;
+
+    /**
+     * The length of one side of the board.
+     */
+    private final int boardSize;
+
+    /**
+     * The number of blank spaces on the board.
+     */
+    private final int blankCount;
+
+    /**
+     * The state the search started from, by cell.
+     */
+    private final int[] startCells;
+
+    /**
+     * The number of expansions between checkpoints.
+     */
+    private final long interval;
+
+    /**
+     * Writes checkpoints to disk off the search thread.
+     */
+    private final ExecutorService writer;
+
+    /**
+     * The log of visited states. Only written to by the writer thread.
+     */
+    private final FileChannel visitedChannel;
+
+    /**
+     * Reused to hold the values of each state being encoded.
+     */
+    private final int[] cells;
+
+    /**
+     * States visited since the last checkpoint, encoded.
+     */
+    private ByteBuffer visitedDelta;
+
+    /**
+     * The frontier of the checkpoint being built, encoded.
+     */
+    private ByteBuffer frontier;
+
+    /**
+     * The buffers handed to the writer thread by the last
+     * checkpoint, reused once it has finished with them.
+     */
+    private ByteBuffer spareVisitedDelta;
+    private ByteBuffer spareFrontier;
+
+    /**
+     * The last checkpoint handed to the writer thread.
+     */
+    private Future<?> pending = null;
+
+    /**
+     * The number of the last checkpoint.
+     */
+    private long generation;
+
+    /**
+     * The number of states visited, including those
+     * not yet written to the log.
+     */
+    private long visitedCount;
+
+    /**
+     * The number of states on the frontier being built.
+     */
+    private long frontierCount = 0;
+
+    /**
+     * The number of expansions since the last checkpoint.
+     */
+    private long expansionsSinceCheckpoint = 0;
+
+    private Checkpointer(Path directory, byte algorithm, int boardSize, int blankCount, int[] startCells,
+                         long interval, FileChannel visitedChannel, long generation, long visitedCount) {
+
+        if (interval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive!");
+        }
+
+        this.directory = directory;
+        this.algorithm = algorithm;
+        this.boardSize = boardSize;
+        this.blankCount = blankCount;
+        this.startCells = startCells;
+        this.interval = interval;
+        this.visitedChannel = visitedChannel;
+        this.generation = generation;
+        this.visitedCount = visitedCount;
+        this.cells = new int[boardSize * boardSize];
+
+        this.visitedDelta = ByteBuffer.allocate(BufferedChannelWriter.DEFAULT_BUFFER_BYTES);
+        this.frontier = ByteBuffer.allocate(BufferedChannelWriter.DEFAULT_BUFFER_BYTES);
+        this.spareVisitedDelta = ByteBuffer.allocate(BufferedChannelWriter.DEFAULT_BUFFER_BYTES);
+        this.spareFrontier = ByteBuffer.allocate(BufferedChannelWriter.DEFAULT_BUFFER_BYTES);
+
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    }
+
+    /**
+     * Starts checkpointing a new search, replacing any
+     * checkpoint already in the directory.
+     *
+     * @param directory The directory to write checkpoints to.
+     * @param algorithm The search being checkpointed.
+     * @param start     The state the search starts from.
+     * @param interval  The number of expansions between checkpoints.
+     * @return The checkpointer.
+     * @throws IOException If the directory could not be prepared.
+     */
+    public static Checkpointer create(Path directory, byte algorithm, State start, long interval) throws IOException {
+
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve(Checkpoint.META_FILE));
+
+        // Remove frontiers left behind by an earlier search
+        try (DirectoryStream<Path> frontiers = Files.newDirectoryStream(directory, "frontier-*.bin")) {
+            for (Path frontier : frontiers) {
+                Files.delete(frontier);
+            }
+        }
+
+        int[] startCells = new int[start.getBoardSize() * start.getBoardSize()];
+        start.copyCellsInto(startCells);
+
+        // Start a fresh visited log
+        FileChannel visitedChannel = FileChannel.open(directory.resolve(Checkpoint.VISITED_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        ByteBuffer header = ByteBuffer.allocate(StateCodec.HEADER_BYTES);
+        StateCodec.writeHeader(header, StateCodec.STATE_MAGIC, start.getBoardSize(), start.getBlankCount());
+        header.flip();
+        writeFully(visitedChannel, header);
+
+        return new Checkpointer(directory, algorithm, start.getBoardSize(), start.getBlankCount(), startCells,
+                interval, visitedChannel, 0, 0);
+
+    }
+
+    /**
+     * Continues checkpointing a search resumed from a checkpoint.
+     * States written to the visited log after the checkpoint
+     * by a checkpoint that never finished are discarded.
+     *
+     * @param checkpoint The checkpoint the search was resumed from.
+     * @param interval   The number of expansions between checkpoints.
+     * @return The checkpointer.
+     * @throws IOException If the visited log could not be opened.
+     */
+    public static Checkpointer resume(Checkpoint checkpoint, long interval) throws IOException {
+
+        State start = checkpoint.getStartState();
+        int[] startCells = new int[start.getBoardSize() * start.getBoardSize()];
+        start.copyCellsInto(startCells);
+
+        FileChannel visitedChannel = FileChannel.open(checkpoint.getDirectory().resolve(Checkpoint.VISITED_FILE),
+                StandardOpenOption.WRITE);
+
+        long validBytes = StateCodec.HEADER_BYTES +
+                (checkpoint.getVisitedCount() * StateCodec.boardBytes(checkpoint.getBoardSize()));
+        visitedChannel.truncate(validBytes);
+        visitedChannel.position(validBytes);
+
+        return new Checkpointer(checkpoint.getDirectory(), checkpoint.getAlgorithm(), checkpoint.getBoardSize(),
+                checkpoint.getBlankCount(), startCells, interval, visitedChannel,
+                checkpoint.getGeneration(), checkpoint.getVisitedCount());
+
+    }
+
+    /**
+     * Writes the whole buffer to the channel.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Adds a state to the frontier of the checkpoint
+     * being built by the search thread.
+     *
+     * @param state The state on the frontier.
+     */
+    public void addToFrontier(State state) {
+
+        if (this.frontierCount == 0) {
+            this.frontier.clear();
+            this.frontier = ensureRemaining(this.frontier, StateCodec.HEADER_BYTES);
+            StateCodec.writeHeader(this.frontier, StateCodec.STATE_MAGIC, this.boardSize, this.blankCount);
+        }
+
+        this.frontier = encode(this.frontier, state);
+        this.frontierCount++;
+
+    }
+
+    /**
+     * Waits for the last checkpoint to finish writing,
+     * then stops the writer thread and closes the log.
+     *
+     * @throws IOException If the last checkpoint failed to write.
+     */
+    @Override
+    public void close() throws IOException {
+
+        try {
+            awaitPending();
+        } finally {
+            this.writer.shutdown();
+            this.visitedChannel.close();
+        }
+
+    }
+
+    /**
+     * Finishes the checkpoint being built, handing it to
+     * the writer thread. If the previous checkpoint is still
+     * being written, waits for it first, so at most one
+     * checkpoint is ever held in memory besides the one
+     * being built.
+     *
+     * @param counters The search-specific counters to record.
+     * @throws IOException If the previous checkpoint failed to write.
+     */
+    public void commit(long... counters) throws IOException {
+
+        awaitPending();
+
+        // Make sure the frontier has a header even
+        // if it is empty
+        if (this.frontierCount == 0) {
+            this.frontier.clear();
+            StateCodec.writeHeader(this.frontier, StateCodec.STATE_MAGIC, this.boardSize, this.blankCount);
+        }
+
+        ByteBuffer delta = this.visitedDelta.flip();
+        ByteBuffer frontier = this.frontier.flip();
+        long generation = ++this.generation;
+        long visitedCount = this.visitedCount;
+        long frontierCount = this.frontierCount;
+        long[] countersCopy = counters.clone();
+
+        // Swap in the spare buffers for the search
+        // thread to keep encoding into
+        this.visitedDelta = this.spareVisitedDelta;
+        this.visitedDelta.clear();
+        this.frontier = this.spareFrontier;
+        this.frontier.clear();
+        this.spareVisitedDelta = delta;
+        this.spareFrontier = frontier;
+        this.frontierCount = 0;
+        this.expansionsSinceCheckpoint = 0;
+
+        this.pending = this.writer.submit(() -> {
+            write(delta, frontier, generation, visitedCount, frontierCount, countersCopy);
+            return null;
+        });
+
+    }
+
+    /**
+     * Encodes a state into the buffer, growing it if needed.
+     *
+     * @return The buffer, which may be a new, larger buffer.
+     */
+    private ByteBuffer encode(ByteBuffer buffer, State state) {
+        buffer = ensureRemaining(buffer, StateCodec.boardBytes(this.boardSize));
+        state.copyCellsInto(this.cells);
+        StateCodec.writeBoard(this.cells, this.boardSize, buffer);
+        return buffer;
+    }
+
+    /**
+     * @return The buffer if it has enough bytes remaining, or
+     * a new buffer twice its size holding the same contents.
+     */
+    private static ByteBuffer ensureRemaining(ByteBuffer buffer, int bytes) {
+
+        if (buffer.remaining() >= bytes) {
+            return buffer;
+        }
+
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+
+    }
+
+    /**
+     * Waits for the last checkpoint to finish writing.
+     *
+     * @throws IOException If the last checkpoint failed to write.
+     */
+    private void awaitPending() throws IOException {
+
+        if (this.pending == null) {
+            return;
+        }
+
+        try {
+            this.pending.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for checkpoint to be written!", ex);
+        } catch (ExecutionException ex) {
+            throw new IOException("Failed to write checkpoint!", ex.getCause());
+        } finally {
+            this.pending = null;
+        }
+
+    }
+
+    /**
+     * Records that an expansion has happened.
+     *
+     * @return <code>true</code> if a checkpoint is due.
+     */
+    public boolean tick() {
+        return ++this.expansionsSinceCheckpoint >= this.interval;
+    }
+
+    /**
+     * Records that a state has been added to the visited set.
+     *
+     * @param state The visited state.
+     */
+    public void visited(State state) {
+        this.visitedDelta = encode(this.visitedDelta, state);
+        this.visitedCount++;
+    }
+
+    /**
+     * Writes a checkpoint to disk. Runs on the writer thread.
+     */
+    private void write(ByteBuffer delta, ByteBuffer frontier, long generation, long visitedCount,
+                       long frontierCount, long[] counters) throws IOException {
+
+        // Append the newly visited states to the log
+        writeFully(this.visitedChannel, delta);
+        this.visitedChannel.force(false);
+
+        // Write the frontier to its own file
+        Path frontierPath = this.directory.resolve(Checkpoint.frontierFile(generation));
+
+        try (FileChannel channel = FileChannel.open(frontierPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, frontier);
+            channel.force(false);
+        }
+
+        // Replace the metadata, which makes this
+        // checkpoint the current one
+        ByteBuffer meta = ByteBuffer.allocate(64 + StateCodec.boardBytes(this.boardSize) + (counters.length * Long.BYTES));
+        Checkpoint.writeMeta(meta, this.algorithm, this.boardSize, this.blankCount, this.startCells,
+                generation, visitedCount, frontierCount, counters);
+        meta.flip();
+
+        Path metaPath = this.directory.resolve(Checkpoint.META_FILE);
+        Path tempPath = this.directory.resolve(Checkpoint.META_FILE + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, meta);
+            channel.force(false);
+        }
+
+        Files.move(tempPath, metaPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // The previous frontier is no longer needed
+        Files.deleteIfExists(this.directory.resolve(Checkpoint.frontierFile(generation - 1)));
+
+    }
+
+}
@@ -0,0 +1,240 @@
+package me.joshuasheldon.sliding.io;
+
+import me.joshuasheldon.sliding.objs.Move;
+import me.joshuasheldon.sliding.objs.MoveGenerator;
+import me.joshuasheldon.sliding.objs.State;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads paths written by a {@link PathWriter}. Each call
+ * to {@link #next()} decodes a path into buffers owned by
+ * the reader, which stay valid until the next call, so no
+ * objects are allocated per path once the buffers have
+ * grown to the length of the longest path.
+ */
+public class PathReader extends BufferedChannelReader {
+
+    /**
+     * The most bytes the moves of a single path may take up,
+     * which is over 250 million moves with a single blank space.
+     */
+    public static final int MAX_PATH_BYTES = 1 << 26;
+
+    /**
+     * The length of one side of the boards being read.
+     */
+    private final int boardSize;
+
+    /**
+     * The number of blank spaces on the boards being read.
+     */
+    private final int blankCount;
+
+    /**
+     * The number of bits each move is stored with.
+     */
+    private final int bitsPerMove;
+
+    /**
+     * Used to find the neighbours of cells.
+     */
+    private final MoveGenerator generator;
+
+    /**
+     * The starting board of the last path read.
+     */
+    private final int[] startCells;
+
+    /**
+     * Reused to replay each path as it's read.
+     */
+    private final int[] cells;
+
+    /**
+     * The moves of the last path read, encoded
+     * as described in {@link MoveGenerator}.
+     */
+    private int[] moves = new int[256];
+
+    /**
+     * The number of moves in the last path read.
+     */
+    private int moveCount = 0;
+
+    /**
+     * Create a new reader, immediately reading the header.
+     *
+     * @param channel The channel to read from.
+     * @throws IOException If the header could not be read or is invalid.
+     */
+    public PathReader(ReadableByteChannel channel) throws IOException {
+
+        super(channel);
+
+        if (!fill(StateCodec.HEADER_BYTES)) {
+            throw new IOException("Missing header!");
+        }
+
+        int header = StateCodec.readHeader(this.buffer, StateCodec.PATH_MAGIC);
+        this.boardSize = header >>> 16;
+        this.blankCount = header & 0xFFFF;
+        this.bitsPerMove = 2 + StateCodec.bitsPerBlank(this.blankCount);
+        this.generator = MoveGenerator.forBoardSize(this.boardSize);
+        this.startCells = new int[this.boardSize * this.boardSize];
+        this.cells = new int[this.boardSize * this.boardSize];
+
+    }
+
+    /**
+     * Create a new reader, immediately reading the header.
+     *
+     * @param stream The stream to read from.
+     * @throws IOException If the header could not be read or is invalid.
+     */
+    public PathReader(InputStream stream) throws IOException {
+        this(Channels.newChannel(stream));
+    }
+
+    /**
+     * @return The length of one side of the boards being read.
+     */
+    public int getBoardSize() {
+        return this.boardSize;
+    }
+
+    /**
+     * @return The number of moves in the last path read.
+     */
+    public int getMoveCount() {
+        return this.moveCount;
+    }
+
+    /**
+     * @return The moves of the last path read, encoded as described
+     * in {@link MoveGenerator}. Only the first {@link #getMoveCount()}
+     * entries are part of the path. Overwritten by the next call
+     * to {@link #next()}.
+     */
+    public int[] getMoves() {
+        return this.moves;
+    }
+
+    /**
+     * @return The starting board of the last path read, by
+     * cell. Overwritten by the next call to {@link #next()}.
+     */
+    public int[] getStartCells() {
+        return this.startCells;
+    }
+
+    /**
+     * @return The moves of the last path read, as a new list.
+     */
+    public List<Move> moveList() {
+
+        ArrayList<Move> list = new ArrayList<>(this.moveCount);
+
+        for (int i = 0; i < this.moveCount; i++) {
+            list.add(Move.decode(this.moves[i], this.boardSize));
+        }
+
+        return list;
+
+    }
+
+    /**
+     * Reads the next path.
+     *
+     * @return The number of moves in the path, or
+     * <code>-1</code> if there are no more paths to read.
+     * @throws IOException If the channel could not be read
+     *                     from, or if the path is corrupt.
+     */
+    public int next() throws IOException {
+
+        int boardBytes = StateCodec.boardBytes(this.boardSize);
+
+        if (!fill(boardBytes + Integer.BYTES)) {
+            return -1;
+        }
+
+        StateCodec.readBoard(this.buffer, this.boardSize, this.startCells);
+        int count = this.buffer.getInt();
+
+        // Check the length before the buffer is grown to fit the
+        // moves, since a corrupt one could ask for gigabytes
+        long movesBytes = (((long) count * this.bitsPerMove) + 7) / 8;
+        long remaining = remainingBytes();
+
+        if (count < 0 || movesBytes > MAX_PATH_BYTES || (remaining >= 0 && movesBytes > remaining)) {
+            throw new IOException("Corrupt path length!");
+        }
+
+        if (!fill((int) movesBytes)) {
+            throw new IOException("Path ended before its moves!");
+        }
+
+        if (this.moves.length < count) {
+            this.moves = Arrays.copyOf(this.moves, Math.max(count, this.moves.length * 2));
+        }
+
+        BitPacking.unpack(this.buffer, this.bitsPerMove, this.moves, count);
+
+        // Replay the path to turn each stored blank space
+        // and direction back into the tile being slid
+        System.arraycopy(this.startCells, 0, this.cells, 0, this.cells.length);
+
+        for (int i = 0; i < count; i++) {
+
+            int blankRank = this.moves[i] >>> 2;
+            int direction = this.moves[i] & 3;
+            int blank = -1;
+
+            for (int cell = 0; cell < this.cells.length; cell++) {
+                if (this.cells[cell] == State.BLANK_SPACE_VALUE && blankRank-- == 0) {
+                    blank = cell;
+                    break;
+                }
+            }
+
+            // The tile came from the opposite direction
+            // of the direction it was slid in
+            int tile = blank < 0 ? -1 : this.generator.neighbour(blank, direction ^ 1);
+
+            if (tile < 0) {
+                throw new IOException("Corrupt move at index " + i + " of path!");
+            }
+
+            this.moves[i] = MoveGenerator.encode(tile, direction);
+            this.cells[blank] = this.cells[tile];
+            this.cells[tile] = State.BLANK_SPACE_VALUE;
+
+        }
+
+        this.moveCount = count;
+        return count;
+
+    }
+
+    /**
+     * @return The starting state of the last path read, as a new state.
+     * @throws IOException If the starting board is invalid.
+     */
+    public State startState() throws IOException {
+
+        try {
+            return State.fromCells(this.startCells.clone(), this.boardSize);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Corrupt board in path file!", ex);
+        }
+
+    }
+
+}
@@ -0,0 +1,173 @@
+package me.joshuasheldon.sliding.io;
+
+import me.joshuasheldon.sliding.objs.Move;
+import me.joshuasheldon.sliding.objs.MoveGenerator;
+import me.joshuasheldon.sliding.objs.State;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes solution paths to a channel. Each path is stored
+ * as its starting board in the format described in
+ * {@link StateCodec}, the number of moves, and then the
+ * moves themselves. Since every move slides a tile into
+ * a blank space, a move is stored as the direction the
+ * tile slides in (2 bits), plus which blank space it
+ * slides into when there is more than one, counting
+ * blank spaces from left to right, top to bottom.
+ * With a single blank space, four moves fit in a byte.
+ */
+public class PathWriter extends BufferedChannelWriter {
+
+    /**
+     * The length of one side of the boards being written.
+     */
+    private final int boardSize;
+
+    /**
+     * The number of blank spaces on the boards being written.
+     */
+    private final int blankCount;
+
+    /**
+     * The number of bits each move is stored with.
+     */
+    private final int bitsPerMove;
+
+    /**
+     * Used to find the neighbours of cells.
+     */
+    private final MoveGenerator generator;
+
+    /**
+     * Reused to replay each path as it's written.
+     */
+    private final int[] cells;
+
+    /**
+     * Reused to hold each path's moves before they're packed.
+     */
+    private int[] packedMoves = new int[256];
+
+    /**
+     * Create a new writer, immediately buffering the header.
+     *
+     * @param channel    The channel to write to.
+     * @param boardSize  The length of one side of the boards to write.
+     * @param blankCount The number of blank spaces on the boards to write.
+     */
+    public PathWriter(WritableByteChannel channel, int boardSize, int blankCount) {
+
+        super(channel);
+
+        this.boardSize = boardSize;
+        this.blankCount = blankCount;
+        this.bitsPerMove = 2 + StateCodec.bitsPerBlank(blankCount);
+        this.generator = MoveGenerator.forBoardSize(boardSize);
+        this.cells = new int[boardSize * boardSize];
+
+        StateCodec.writeHeader(this.buffer, StateCodec.PATH_MAGIC, boardSize, blankCount);
+
+    }
+
+    /**
+     * Create a new writer, immediately buffering the header.
+     *
+     * @param stream     The stream to write to.
+     * @param boardSize  The length of one side of the boards to write.
+     * @param blankCount The number of blank spaces on the boards to write.
+     */
+    public PathWriter(OutputStream stream, int boardSize, int blankCount) {
+        this(Channels.newChannel(stream), boardSize, blankCount);
+    }
+
+    /**
+     * Writes a path.
+     *
+     * @param start The state the path starts from.
+     * @param moves The moves of the path, in order.
+     * @throws IOException              If the channel could not be written to.
+     * @throws IllegalArgumentException If the state doesn't match the format
+     *                                  of the writer or a move is invalid.
+     */
+    public void write(State start, List<Move> moves) throws IOException {
+
+        int[] codes = new int[moves.size()];
+        int i = 0;
+
+        for (Move move : moves) {
+            codes[i++] = move.encode(this.boardSize);
+        }
+
+        write(start, codes, codes.length);
+
+    }
+
+    /**
+     * Writes a path given as encoded moves. Does not
+     * allocate any objects once the writer's buffers
+     * have grown to the length of the longest path.
+     *
+     * @param start The state the path starts from.
+     * @param moves The moves of the path, in order, encoded
+     *              as described in {@link MoveGenerator}.
+     * @param count The number of moves in the path.
+     * @throws IOException              If the channel could not be written to.
+     * @throws IllegalArgumentException If the state doesn't match the format
+     *                                  of the writer or a move is invalid.
+     */
+    public void write(State start, int[] moves, int count) throws IOException {
+
+        if (start.getBoardSize() != this.boardSize || start.getBlankCount() != this.blankCount) {
+            throw new IllegalArgumentException("State does not match the format of the writer!");
+        }
+
+        if (this.packedMoves.length < count) {
+            this.packedMoves = Arrays.copyOf(this.packedMoves, Math.max(count, this.packedMoves.length * 2));
+        }
+
+        start.copyCellsInto(this.cells);
+
+        // Replay the path, recording which blank space each tile
+        // is slid into, before anything is buffered, so that an
+        // invalid move doesn't leave part of a record behind
+        for (int i = 0; i < count; i++) {
+
+            int tile = MoveGenerator.cellOf(moves[i]);
+            int blank = this.generator.target(moves[i]);
+
+            if (tile >= this.cells.length || blank < 0 || this.cells[blank] != State.BLANK_SPACE_VALUE) {
+                throw new IllegalArgumentException("Invalid move at index " + i + " of path!");
+            }
+
+            int blankRank = 0;
+
+            for (int cell = 0; cell < blank; cell++) {
+                if (this.cells[cell] == State.BLANK_SPACE_VALUE) {
+                    blankRank++;
+                }
+            }
+
+            this.packedMoves[i] = (blankRank << 2) | MoveGenerator.directionOf(moves[i]);
+
+            this.cells[blank] = this.cells[tile];
+            this.cells[tile] = State.BLANK_SPACE_VALUE;
+
+        }
+
+        start.copyCellsInto(this.cells);
+
+        ensureRemaining(StateCodec.boardBytes(this.boardSize) + Integer.BYTES +
+                BitPacking.packedBytes(count, this.bitsPerMove));
+        StateCodec.writeBoard(this.cells, this.boardSize, this.buffer);
+        this.buffer.putInt(count);
+        BitPacking.pack(this.packedMoves, count, this.bitsPerMove, this.buffer);
+
+    }
+
+}
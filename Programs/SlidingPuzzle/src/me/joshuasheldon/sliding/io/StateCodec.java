@@ -0,0 +1,151 @@
+package me.joshuasheldon.sliding.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The compact binary format shared by {@link StateWriter},
+ * {@link StateReader}, {@link PathWriter} and {@link PathReader}.<br><br>
+ * <p>
+ * Every file starts with a header: a four byte magic number,
+ * a version byte, the board size and the number of blank
+ * spaces. Boards are then stored as fixed-size records of
+ * tile values packed using {@link #bitsPerTile(int)} bits
+ * each, which is a nibble per tile for boards up to 4x4.
+ * A 4x4 board therefore takes up 8 bytes, compared to
+ * around 50 characters for {@link me.joshuasheldon.sliding.objs.State#toCompactString()}.
+ */
+public class StateCodec {
+
+    /**
+     * The magic number at the start of a file of states ("SPST").
+     */
+    public static final int STATE_MAGIC = 0x53505354;
+
+    /**
+     * The magic number at the start of a file of paths ("SPPT").
+     */
+    public static final int PATH_MAGIC = 0x53505054;
+
+    /**
+     * The version of the format.
+     */
+    public static final byte VERSION = 1;
+
+    /**
+     * The number of bytes in a header.
+     */
+    public static final int HEADER_BYTES = 7;
+
+    /**
+     * The largest board size that can be stored, since
+     * the board size is stored in a single byte.
+     */
+    public static final int MAX_BOARD_SIZE = 255;
+
+    /**
+     * @param boardSize The length of one side of the board.
+     * @return The number of bits used to store each tile, which
+     * is 4 for boards up to 4x4, and the number of bits needed to
+     * store the largest tile value for larger boards.
+     */
+    public static int bitsPerTile(int boardSize) {
+        int largestValue = (boardSize * boardSize) - 1;
+        return Math.max(4, 32 - Integer.numberOfLeadingZeros(largestValue));
+    }
+
+    /**
+     * @param blankCount The number of blank spaces on the board.
+     * @return The number of bits used to store which blank space
+     * a move slides a tile into, which is <code>0</code> when
+     * there is a single blank space.
+     */
+    public static int bitsPerBlank(int blankCount) {
+        return 32 - Integer.numberOfLeadingZeros(blankCount - 1);
+    }
+
+    /**
+     * @param boardSize The length of one side of the board.
+     * @return The number of bytes a single board takes up.
+     */
+    public static int boardBytes(int boardSize) {
+        return BitPacking.packedBytes(boardSize * boardSize, bitsPerTile(boardSize));
+    }
+
+    /**
+     * Reads a board written by {@link #writeBoard(int[], int, ByteBuffer)}.
+     *
+     * @param in        The buffer to read from.
+     * @param boardSize The length of one side of the board.
+     * @param cells     The array to read the values of the board into.
+     */
+    public static void readBoard(ByteBuffer in, int boardSize, int[] cells) {
+        BitPacking.unpack(in, bitsPerTile(boardSize), cells, boardSize * boardSize);
+    }
+
+    /**
+     * Reads and checks a header written by {@link #writeHeader(ByteBuffer, int, int, int)}.
+     *
+     * @param in    The buffer to read from.
+     * @param magic The magic number the header should start with.
+     * @return The board size in the upper 16 bits and
+     * the number of blank spaces in the lower 16 bits.
+     * @throws IOException If the header is not valid.
+     */
+    static int readHeader(ByteBuffer in, int magic) throws IOException {
+
+        if (in.getInt() != magic) {
+            throw new IOException("Unrecognized file format!");
+        }
+
+        byte version = in.get();
+
+        if (version != VERSION) {
+            throw new IOException("Unsupported format version " + version + "!");
+        }
+
+        int boardSize = in.get() & 0xFF;
+        int blankCount = in.get() & 0xFF;
+
+        if (boardSize == 0 || blankCount == 0 || blankCount > boardSize * boardSize) {
+            throw new IOException("Corrupt header!");
+        }
+
+        return (boardSize << 16) | blankCount;
+
+    }
+
+    /**
+     * Writes the values of a board into the buffer.
+     *
+     * @param cells     The values of the board, by cell.
+     * @param boardSize The length of one side of the board.
+     * @param out       The buffer to write into, with at least
+     *                  {@link #boardBytes(int)} bytes remaining.
+     */
+    public static void writeBoard(int[] cells, int boardSize, ByteBuffer out) {
+        BitPacking.pack(cells, boardSize * boardSize, bitsPerTile(boardSize), out);
+    }
+
+    /**
+     * Writes a header into the buffer.
+     *
+     * @param out        The buffer to write into.
+     * @param magic      The magic number of the file.
+     * @param boardSize  The length of one side of the boards in the file.
+     * @param blankCount The number of blank spaces on the boards in the file.
+     */
+    static void writeHeader(ByteBuffer out, int magic, int boardSize, int blankCount) {
+
+        if (boardSize < 1 || boardSize > MAX_BOARD_SIZE || blankCount < 1 || blankCount > 255) {
+            throw new IllegalArgumentException("Board cannot be stored in the binary format!");
+        }
+
+        out.putInt(magic);
+        out.put(VERSION);
+        out.put((byte) boardSize);
+        out.put((byte) blankCount);
+
+    }
+
+}
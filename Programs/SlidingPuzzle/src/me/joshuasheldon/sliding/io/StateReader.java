@@ -0,0 +1,115 @@
+package me.joshuasheldon.sliding.io;
+
+import me.joshuasheldon.sliding.objs.State;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads states written by a {@link StateWriter}.
+ * {@link #readInto(int[])} does not allocate any
+ * objects per state.
+ */
+public class StateReader extends BufferedChannelReader {
+
+    /**
+     * The length of one side of the boards being read.
+     */
+    private final int boardSize;
+
+    /**
+     * The number of blank spaces on the boards being read.
+     */
+    private final int blankCount;
+
+    /**
+     * Create a new reader, immediately reading the header.
+     *
+     * @param channel The channel to read from.
+     * @throws IOException If the header could not be read or is invalid.
+     */
+    public StateReader(ReadableByteChannel channel) throws IOException {
+
+        super(channel);
+
+        if (!fill(StateCodec.HEADER_BYTES)) {
+            throw new IOException("Missing header!");
+        }
+
+        int header = StateCodec.readHeader(this.buffer, StateCodec.STATE_MAGIC);
+        this.boardSize = header >>> 16;
+        this.blankCount = header & 0xFFFF;
+
+    }
+
+    /**
+     * Create a new reader, immediately reading the header.
+     *
+     * @param stream The stream to read from.
+     * @throws IOException If the header could not be read or is invalid.
+     */
+    public StateReader(InputStream stream) throws IOException {
+        this(Channels.newChannel(stream));
+    }
+
+    /**
+     * @return The number of blank spaces on the boards being read.
+     */
+    public int getBlankCount() {
+        return this.blankCount;
+    }
+
+    /**
+     * @return The length of one side of the boards being read.
+     */
+    public int getBoardSize() {
+        return this.boardSize;
+    }
+
+    /**
+     * Reads the next state.
+     *
+     * @return The next state, or <code>null</code> if
+     * there are no more states to read.
+     * @throws IOException If the channel could not be read from,
+     *                     or if the next board is invalid.
+     */
+    public State read() throws IOException {
+
+        int[] cells = new int[this.boardSize * this.boardSize];
+
+        if (!readInto(cells)) {
+            return null;
+        }
+
+        try {
+            return State.fromCells(cells, this.boardSize);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Corrupt board in state file!", ex);
+        }
+
+    }
+
+    /**
+     * Reads the values of the next board, without validating them.
+     *
+     * @param cells The array to read the values into, at
+     *              least <code>boardSize ^ 2</code> long.
+     * @return <code>true</code> if a board was read,
+     * <code>false</code> if there are no more boards to read.
+     * @throws IOException If the channel could not be read from.
+     */
+    public boolean readInto(int[] cells) throws IOException {
+
+        if (!fill(StateCodec.boardBytes(this.boardSize))) {
+            return false;
+        }
+
+        StateCodec.readBoard(this.buffer, this.boardSize, cells);
+        return true;
+
+    }
+
+}
@@ -0,0 +1,93 @@
+package me.joshuasheldon.sliding.io;
+
+import me.joshuasheldon.sliding.objs.State;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes states of a single board size and number of
+ * blank spaces to a channel in the format described in
+ * {@link StateCodec}. No objects are allocated per state.
+ */
+public class StateWriter extends BufferedChannelWriter {
+
+    /**
+     * The length of one side of the boards being written.
+     */
+    private final int boardSize;
+
+    /**
+     * The number of blank spaces on the boards being written.
+     */
+    private final int blankCount;
+
+    /**
+     * Reused to hold the values of each state being written.
+     */
+    private final int[] cells;
+
+    /**
+     * Create a new writer, immediately buffering the header.
+     *
+     * @param channel    The channel to write to.
+     * @param boardSize  The length of one side of the boards to write.
+     * @param blankCount The number of blank spaces on the boards to write.
+     */
+    public StateWriter(WritableByteChannel channel, int boardSize, int blankCount) {
+
+        super(channel);
+
+        this.boardSize = boardSize;
+        this.blankCount = blankCount;
+        this.cells = new int[boardSize * boardSize];
+
+        StateCodec.writeHeader(this.buffer, StateCodec.STATE_MAGIC, boardSize, blankCount);
+
+    }
+
+    /**
+     * Create a new writer, immediately buffering the header.
+     *
+     * @param stream     The stream to write to.
+     * @param boardSize  The length of one side of the boards to write.
+     * @param blankCount The number of blank spaces on the boards to write.
+     */
+    public StateWriter(OutputStream stream, int boardSize, int blankCount) {
+        this(Channels.newChannel(stream), boardSize, blankCount);
+    }
+
+    /**
+     * Writes a board given as the values of its cells.
+     * The board is not validated.
+     *
+     * @param cells The values of the board, by cell.
+     * @throws IOException If the channel could not be written to.
+     */
+    public void write(int[] cells) throws IOException {
+        ensureRemaining(StateCodec.boardBytes(this.boardSize));
+        StateCodec.writeBoard(cells, this.boardSize, this.buffer);
+    }
+
+    /**
+     * Writes a state.
+     *
+     * @param state The state to write.
+     * @throws IOException              If the channel could not be written to.
+     * @throws IllegalArgumentException If the state's board size or number
+     *                                  of blank spaces doesn't match the writer's.
+     */
+    public void write(State state) throws IOException {
+
+        if (state.getBoardSize() != this.boardSize || state.getBlankCount() != this.blankCount) {
+            throw new IllegalArgumentException("State does not match the format of the writer!");
+        }
+
+        state.copyCellsInto(this.cells);
+        write(this.cells);
+
+    }
+
+}
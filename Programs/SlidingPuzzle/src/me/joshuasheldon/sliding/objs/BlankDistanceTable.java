@@ -0,0 +1,194 @@
+package me.joshuasheldon.sliding.objs;
+
+import me.joshuasheldon.sliding.Utilities;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed distances between every cell of a board and
+ * the cells the blank spaces occupy in the goal state, used
+ * to calculate how far the blank spaces of a state are from
+ * their goal positions.<br><br>
+ * <p>
+ * Since blank spaces are interchangeable, the distance of
+ * the blank spaces is the cost of the cheapest assignment
+ * of blank spaces to goal blank cells, rather than the sum
+ * of each blank space's distance to its closest goal blank
+ * cell (which would let two blank spaces claim the same
+ * goal cell).
+ */
+public class BlankDistanceTable {
+
+    /**
+     * The largest number of blank spaces for which the exact
+     * assignment is calculated. Above this, the sum of each
+     * blank space's distance to its closest goal blank cell
+     * is used instead, which never exceeds the exact cost.
+     */
+    private static final int MAX_EXACT_BLANKS = 12;
+
+    /**
+     * The number of blank spaces on the board.
+     */
+    private final int blankCount;
+
+    /**
+     * The distance from every cell to every goal blank cell,
+     * indexed by <code>cell * blankCount + goalBlank</code>.
+     */
+    private final int[] distances;
+
+    /**
+     * The distance from every cell to its closest goal blank cell.
+     */
+    private final int[] minDistances;
+
+    /**
+     * The cheapest assignment of each subset of the goal blank
+     * cells, reused by {@link #assignmentDistance(int[])}. Each
+     * thread has its own, since tables are shared.
+     */
+    private final ThreadLocal<int[]> subsetCosts;
+
+    /**
+     * Build the table for the given board size and number of blank spaces.
+     * Use {@link MoveGenerator#blankDistances(int)} to share the table
+     * rather than building it again.
+     *
+     * @param boardSize  The length of one side of the board.
+     * @param blankCount The number of blank spaces on the board.
+     */
+    BlankDistanceTable(int boardSize, int blankCount) {
+
+        int cellCount = boardSize * boardSize;
+
+        this.blankCount = blankCount;
+        this.distances = new int[cellCount * blankCount];
+        this.minDistances = new int[cellCount];
+        this.subsetCosts = blankCount > 2 && blankCount <= MAX_EXACT_BLANKS ?
+                ThreadLocal.withInitial(() -> new int[1 << blankCount]) : null;
+
+        // In the goal state, the blank spaces are
+        // the first blankCount cells on the board
+        for (int cell = 0; cell < cellCount; cell++) {
+
+            int minDistance = Integer.MAX_VALUE;
+
+            for (int goalBlank = 0; goalBlank < blankCount; goalBlank++) {
+
+                int distance = Utilities.manhattanDistance(
+                        goalBlank % boardSize, goalBlank / boardSize,
+                        cell % boardSize, cell / boardSize);
+
+                this.distances[(cell * blankCount) + goalBlank] = distance;
+                minDistance = Math.min(minDistance, distance);
+
+            }
+
+            this.minDistances[cell] = minDistance;
+
+        }
+
+    }
+
+    /**
+     * Retrieves the table for the given board size and
+     * number of blank spaces, building it on first use.
+     *
+     * @param boardSize  The length of one side of the board.
+     * @param blankCount The number of blank spaces on the board.
+     * @return The table.
+     * @see MoveGenerator#blankDistances(int)
+     */
+    public static BlankDistanceTable forBoard(int boardSize, int blankCount) {
+        return MoveGenerator.forBoardSize(boardSize).blankDistances(blankCount);
+    }
+
+    /**
+     * Calculates the cost of the cheapest assignment of the
+     * given blank cells to the goal blank cells, where the
+     * cost of assigning a blank space to a goal blank cell
+     * is the Manhattan distance between them.
+     *
+     * @param blankCells The cells of the blank spaces. Must
+     *                   contain exactly as many cells as the
+     *                   table was built for.
+     * @return The total distance of the blank spaces from the goal.
+     */
+    public int distance(int[] blankCells) {
+
+        switch (this.blankCount) {
+
+            case 1:
+                return this.minDistances[blankCells[0]];
+
+            case 2: {
+                int a = blankCells[0] * 2;
+                int b = blankCells[1] * 2;
+                return Math.min(
+                        this.distances[a] + this.distances[b + 1],
+                        this.distances[a + 1] + this.distances[b]);
+            }
+
+            default:
+                if (this.blankCount > MAX_EXACT_BLANKS) {
+
+                    int total = 0;
+
+                    for (int cell : blankCells) {
+                        total += this.minDistances[cell];
+                    }
+
+                    return total;
+
+                }
+
+                return assignmentDistance(blankCells);
+
+        }
+
+    }
+
+    /**
+     * Calculates the exact cheapest assignment by dynamic
+     * programming over subsets of the goal blank cells. Blank
+     * space <code>i</code> is assigned to one of the goal cells
+     * not yet used by blank spaces <code>0..i-1</code>, where
+     * <code>i</code> is the number of goal cells already used.
+     *
+     * @param blankCells The cells of the blank spaces.
+     * @return The cost of the cheapest assignment.
+     */
+    private int assignmentDistance(int[] blankCells) {
+
+        int subsets = 1 << this.blankCount;
+        int[] best = this.subsetCosts.get();
+        Arrays.fill(best, Integer.MAX_VALUE);
+        best[0] = 0;
+
+        for (int used = 0; used < subsets - 1; used++) {
+
+            if (best[used] == Integer.MAX_VALUE) {
+                continue;
+            }
+
+            int row = blankCells[Integer.bitCount(used)] * this.blankCount;
+
+            for (int goalBlank = 0; goalBlank < this.blankCount; goalBlank++) {
+
+                if ((used & (1 << goalBlank)) != 0) {
+                    continue;
+                }
+
+                int next = used | (1 << goalBlank);
+                best[next] = Math.min(best[next], best[used] + this.distances[row + goalBlank]);
+
+            }
+
+        }
+
+        return best[subsets - 1];
+
+    }
+
+}
@@ -0,0 +1,236 @@
+package me.joshuasheldon.sliding.objs;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * Symmetries of boards with a single blank space, whose goal
+ * state has the blank space in the top left corner and every
+ * tile on the cell matching its value.<br><br>
+ * <p>
+ * That goal state is symmetric about the main diagonal:
+ * reflecting it, and then relabeling every tile with the
+ * value of the cell it lands on, gives back the goal state.
+ * Doing the same to any other state gives a state that is
+ * exactly as far from the goal, since every move on one
+ * board mirrors a move on the other. So a search only needs
+ * to visit one of the two, and a heuristic can be looked up
+ * for both and the larger value used.<br><br>
+ * <p>
+ * When the blank space is on its goal cell, the dual of a
+ * state, which swaps the roles of tiles and cells, is also
+ * exactly as far from the goal, which gives a third lookup.
+ */
+public class DiagonalSymmetry {
+
+    /**
+     * @param state A state.
+     * @return Whether the symmetries apply to the state,
+     * which is when it has a single blank space.
+     */
+    public static boolean isApplicable(State state) {
+        return state.getBlankCount() == 1;
+    }
+
+    /**
+     * Picks the representative of a state and its reflection,
+     * which is the one whose values, read from left to right,
+     * top to bottom, come first.
+     *
+     * @param state A state with a single blank space.
+     * @return The representative, which is the given state
+     * itself if it is the representative.
+     * @throws IllegalArgumentException If the state doesn't have a single blank space.
+     */
+    public static State canonical(State state) throws IllegalArgumentException {
+
+        int boardSize = state.getBoardSize();
+        int[] cells = new int[boardSize * boardSize];
+
+        requireApplicable(state);
+        state.copyCellsInto(cells);
+
+        if (!isReflectionFirst(cells, boardSize)) {
+            return state;
+        }
+
+        int[] reflected = new int[cells.length];
+        reflect(cells, boardSize, reflected);
+
+        return State.fromCells(reflected, boardSize);
+
+    }
+
+    /**
+     * Checks whether the reflection of a board comes before the
+     * board itself in the order used by {@link #canonical(State)},
+     * comparing cell by cell without building the reflection.
+     *
+     * @param cells     The values of a board with a single
+     *                  blank space, by cell.
+     * @param boardSize The length of one side of the board.
+     * @return <code>true</code> if the reflection is the
+     * representative, <code>false</code> if the board is.
+     */
+    public static boolean isReflectionFirst(int[] cells, int boardSize) {
+
+        for (int cell = 0; cell < cells.length; cell++) {
+
+            int value = cells[((cell % boardSize) * boardSize) + (cell / boardSize)];
+            int reflected = ((value % boardSize) * boardSize) + (value / boardSize);
+
+            if (reflected != cells[cell]) {
+                return reflected < cells[cell];
+            }
+
+        }
+
+        // The board is its own reflection
+        return false;
+
+    }
+
+    /**
+     * Creates the dual of a state, where each tile is placed on
+     * the goal cell of the tile on the cell matching its value.
+     * Only exactly as far from the goal as the given state when
+     * the blank space is on its goal cell.
+     *
+     * @param state A state with a single blank space on its goal cell.
+     * @return The dual state.
+     * @throws IllegalArgumentException If the state doesn't have a single
+     *                                  blank space on its goal cell.
+     */
+    public static State dual(State state) throws IllegalArgumentException {
+
+        int boardSize = state.getBoardSize();
+        int[] cells = new int[boardSize * boardSize];
+        int[] dual = new int[cells.length];
+
+        requireApplicable(state);
+        state.copyCellsInto(cells);
+
+        if (!dual(cells, dual)) {
+            throw new IllegalArgumentException("Dual state requires the blank space on its goal cell!");
+        }
+
+        return State.fromCells(dual, boardSize);
+
+    }
+
+    /**
+     * Reflects a state about the main diagonal and relabels
+     * its tiles, giving a state exactly as far from the goal.
+     *
+     * @param state A state with a single blank space.
+     * @return The reflected state.
+     * @throws IllegalArgumentException If the state doesn't have a single blank space.
+     */
+    public static State reflect(State state) throws IllegalArgumentException {
+
+        int boardSize = state.getBoardSize();
+        int[] cells = new int[boardSize * boardSize];
+        int[] reflected = new int[cells.length];
+
+        requireApplicable(state);
+        state.copyCellsInto(cells);
+        reflect(cells, boardSize, reflected);
+
+        return State.fromCells(reflected, boardSize);
+
+    }
+
+    /**
+     * Writes the reflection of a board about the main diagonal,
+     * with every tile relabeled with the value of the goal cell
+     * its own goal cell is reflected onto.
+     *
+     * @param cells     The values of a board with a single
+     *                  blank space, by cell.
+     * @param boardSize The length of one side of the board.
+     * @param out       The array to write the reflection into.
+     */
+    public static void reflect(int[] cells, int boardSize, int[] out) {
+
+        for (int row = 0; row < boardSize; row++) {
+            for (int col = 0; col < boardSize; col++) {
+
+                int value = cells[(col * boardSize) + row];
+
+                // The goal cell of a tile is its value, which
+                // is reflected by swapping its row and column
+                out[(row * boardSize) + col] = ((value % boardSize) * boardSize) + (value / boardSize);
+
+            }
+        }
+
+    }
+
+    /**
+     * Looks up a heuristic for a state, its reflection, and
+     * its dual if the blank space is on its goal cell, and
+     * takes the largest. Since every one of those states is
+     * exactly as far from the goal, the result never
+     * overestimates if the heuristic doesn't. For a pattern
+     * database, each lookup sees a different set of tiles
+     * through the same table, so the largest is often
+     * larger than the lookup of the state alone.
+     *
+     * @param cells     The values of a board with a single
+     *                  blank space, by cell.
+     * @param boardSize The length of one side of the board.
+     * @param heuristic The heuristic, taking the values of
+     *                  a board by cell.
+     * @return The largest value of the heuristic.
+     */
+    public static int maxOverSymmetries(int[] cells, int boardSize, ToIntFunction<int[]> heuristic) {
+
+        int[] other = new int[cells.length];
+        int best = heuristic.applyAsInt(cells);
+
+        reflect(cells, boardSize, other);
+        best = Math.max(best, heuristic.applyAsInt(other));
+
+        if (dual(cells, other)) {
+            best = Math.max(best, heuristic.applyAsInt(other));
+        }
+
+        return best;
+
+    }
+
+    /**
+     * @param state A state.
+     * @throws IllegalArgumentException If the state doesn't have a single blank space.
+     */
+    private static void requireApplicable(State state) throws IllegalArgumentException {
+        if (!isApplicable(state)) {
+            throw new IllegalArgumentException("Diagonal symmetry requires a single blank space!");
+        }
+    }
+
+    /**
+     * Writes the dual of a board.
+     *
+     * @param cells The values of the board, by cell.
+     * @param out   The array to write the dual into.
+     * @return <code>true</code> if the dual was written,
+     * <code>false</code> if the blank space isn't on its goal cell.
+     */
+    private static boolean dual(int[] cells, int[] out) {
+
+        if (cells[0] != State.BLANK_SPACE_VALUE) {
+            return false;
+        }
+
+        // Each tile is on the cell matching its value in the
+        // goal, so the dual puts the cell of each tile on the
+        // cell matching the tile's value
+        for (int cell = 0; cell < cells.length; cell++) {
+            out[cells[cell]] = cell;
+        }
+
+        return true;
+
+    }
+
+}
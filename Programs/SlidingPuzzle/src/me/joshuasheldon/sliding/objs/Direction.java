@@ -7,6 +7,31 @@ package me.joshuasheldon.sliding.objs;
 public enum Direction {
     UP, DOWN, LEFT, RIGHT;
 
+    /**
+     * Every direction, indexed by ordinal. Cached because
+     * {@link #values()} clones the array on every call.
+     */
+    private static final Direction[] VALUES = values();
+
+    /**
+     * @param code The two-bit code of a direction,
+     *             which is its ordinal.
+     * @return The direction with the given code.
+     */
+    public static Direction fromCode(int code) {
+        return VALUES[code];
+    }
+
+    /**
+     * @return The two-bit code of this direction, which
+     * is its ordinal. Opposite directions only differ
+     * in their lowest bit, so the code of the opposite
+     * direction is <code>code ^ 1</code>.
+     */
+    public int code() {
+        return ordinal();
+    }
+
     /**
      * @return The direction opposite of the given
      * direction.
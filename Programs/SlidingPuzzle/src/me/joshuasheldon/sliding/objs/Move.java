@@ -23,6 +23,29 @@ public record Move(Space space, Direction direction) {
 
     }
 
+    /**
+     * Decodes a move encoded by {@link #encode(int)}.
+     *
+     * @param code      The encoded move.
+     * @param boardSize The length of one side of the board.
+     * @return The decoded move.
+     */
+    public static Move decode(int code, int boardSize) {
+        int cell = MoveGenerator.cellOf(code);
+        return new Move(new Space(cell % boardSize, cell / boardSize), Direction.fromCode(MoveGenerator.directionOf(code)));
+    }
+
+    /**
+     * Encodes this move into a single integer, in the
+     * format used by {@link MoveGenerator}.
+     *
+     * @param boardSize The length of one side of the board.
+     * @return The encoded move.
+     */
+    public int encode(int boardSize) {
+        return MoveGenerator.encode((space.row() * boardSize) + space.col(), direction.code());
+    }
+
     @Override
     public String toString() {
         return "{" + space + " -> " + direction + "}";
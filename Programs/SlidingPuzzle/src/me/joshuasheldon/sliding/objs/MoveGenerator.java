@@ -0,0 +1,247 @@
+package me.joshuasheldon.sliding.objs;
+
+/**
+ * Generates moves for boards of a single size without
+ * allocating any objects. Cells are addressed by their
+ * traversal index (<code>row * boardSize + col</code>),
+ * and the neighbours of every cell in every direction
+ * are precomputed into a flat table.<br><br>
+ * <p>
+ * Moves are encoded into a single integer as
+ * <code>(cell &lt;&lt; 2) | direction</code>, where
+ * <code>cell</code> is the cell of the tile being slid
+ * and <code>direction</code> is the {@link Direction#code()}
+ * of the direction it is slid in, mirroring {@link Move}.
+ */
+public class MoveGenerator {
+
+    /**
+     * The largest board size that has a cached generator.
+     */
+    private static final int MAX_CACHED_BOARD_SIZE = 64;
+
+    /**
+     * Generators that have already been built, indexed by board size.
+     */
+    private static final MoveGenerator[] CACHE = new MoveGenerator[MAX_CACHED_BOARD_SIZE + 1];
+
+    /**
+     * The length of one side of the board.
+     */
+    private final int boardSize;
+
+    /**
+     * The neighbouring cell of every cell in every
+     * direction, indexed by <code>(cell &lt;&lt; 2) | direction</code>,
+     * or <code>-1</code> if the neighbour would be off the board.
+     */
+    private final int[] neighbours;
+
+    /**
+     * The row of every cell, to avoid divisions.
+     */
+    private final int[] rows;
+
+    /**
+     * The column of every cell, to avoid divisions.
+     */
+    private final int[] cols;
+
+    /**
+     * The blank distance table for every number of blank
+     * spaces, indexed by the number and built on first use.
+     */
+    private final BlankDistanceTable[] blankDistances;
+
+    /**
+     * Build the neighbour table for the given board size.
+     *
+     * @param boardSize The length of one side of the board.
+     */
+    private MoveGenerator(int boardSize) {
+
+        this.boardSize = boardSize;
+        this.neighbours = new int[boardSize * boardSize * 4];
+        this.rows = new int[boardSize * boardSize];
+        this.cols = new int[boardSize * boardSize];
+        this.blankDistances = new BlankDistanceTable[(boardSize * boardSize) + 1];
+
+        for (int cell = 0; cell < boardSize * boardSize; cell++) {
+
+            int row = cell / boardSize;
+            int col = cell % boardSize;
+
+            this.rows[cell] = row;
+            this.cols[cell] = col;
+
+            this.neighbours[(cell << 2) | Direction.UP.code()] = row > 0 ? cell - boardSize : -1;
+            this.neighbours[(cell << 2) | Direction.DOWN.code()] = row < boardSize - 1 ? cell + boardSize : -1;
+            this.neighbours[(cell << 2) | Direction.LEFT.code()] = col > 0 ? cell - 1 : -1;
+            this.neighbours[(cell << 2) | Direction.RIGHT.code()] = col < boardSize - 1 ? cell + 1 : -1;
+
+        }
+
+    }
+
+    /**
+     * Retrieves the move generator for the given board
+     * size, building it on first use.
+     *
+     * @param boardSize The length of one side of the board.
+     * @return The move generator for the board size.
+     */
+    public static MoveGenerator forBoardSize(int boardSize) {
+
+        if (boardSize < 1) {
+            throw new IllegalArgumentException("Invalid board size passed into move generator!");
+        }
+
+        if (boardSize > MAX_CACHED_BOARD_SIZE) {
+            return new MoveGenerator(boardSize);
+        }
+
+        // Racing threads may build the same table twice,
+        // which is harmless since the tables are identical
+        MoveGenerator generator = CACHE[boardSize];
+
+        if (generator == null) {
+            generator = new MoveGenerator(boardSize);
+            CACHE[boardSize] = generator;
+        }
+
+        return generator;
+
+    }
+
+    /**
+     * Retrieves the blank distance table for this board
+     * size and the given number of blank spaces, building
+     * it on first use. Boxes nothing, so it can be called
+     * for every state created.
+     *
+     * @param blankCount The number of blank spaces on the board.
+     * @return The table.
+     */
+    public BlankDistanceTable blankDistances(int blankCount) {
+
+        // As with the generators themselves, racing threads
+        // may build the same table twice, which is harmless
+        BlankDistanceTable table = this.blankDistances[blankCount];
+
+        if (table == null) {
+            table = new BlankDistanceTable(this.boardSize, blankCount);
+            this.blankDistances[blankCount] = table;
+        }
+
+        return table;
+
+    }
+
+    /**
+     * @param code An encoded move.
+     * @return The cell of the tile being slid.
+     */
+    public static int cellOf(int code) {
+        return code >>> 2;
+    }
+
+    /**
+     * @param code An encoded move.
+     * @return The code of the direction the tile is slid in.
+     */
+    public static int directionOf(int code) {
+        return code & 3;
+    }
+
+    /**
+     * @param cell      The cell of the tile being slid.
+     * @param direction The code of the direction the tile is slid in.
+     * @return The encoded move.
+     */
+    public static int encode(int cell, int direction) {
+        return (cell << 2) | direction;
+    }
+
+    /**
+     * @param blankCount The number of blank spaces on the board.
+     * @return The size a buffer must be to be able to hold
+     * every move that can be made on a board with the given
+     * number of blank spaces.
+     */
+    public static int maxMoves(int blankCount) {
+        return blankCount * 4;
+    }
+
+    /**
+     * Writes every move that slides a tile into the given
+     * blank cell into the buffer, starting at the given
+     * offset. Calling this for every blank cell on a board
+     * generates every valid move on that board.
+     *
+     * @param board     The board the moves are made on.
+     * @param blankCell The cell of a blank space on the board.
+     * @param buffer    The buffer to write the encoded moves into.
+     * @param offset    The index in the buffer to start writing at.
+     * @return The index in the buffer after the last move written.
+     */
+    public int generate(int[][] board, int blankCell, int[] buffer, int offset) {
+
+        for (int direction = 0; direction < 4; direction++) {
+
+            int neighbour = this.neighbours[(blankCell << 2) | direction];
+
+            // A tile in this direction of the blank space
+            // can be slid in the opposite direction into it
+            if (neighbour >= 0 && board[this.rows[neighbour]][this.cols[neighbour]] != State.BLANK_SPACE_VALUE) {
+                buffer[offset++] = encode(neighbour, direction ^ 1);
+            }
+
+        }
+
+        return offset;
+
+    }
+
+    /**
+     * @param cell A cell on the board.
+     * @return The column of the cell.
+     */
+    public int colOf(int cell) {
+        return this.cols[cell];
+    }
+
+    /**
+     * @param cell A cell on the board.
+     * @return The row of the cell.
+     */
+    public int rowOf(int cell) {
+        return this.rows[cell];
+    }
+
+    /**
+     * @return The length of one side of the board.
+     */
+    public int getBoardSize() {
+        return this.boardSize;
+    }
+
+    /**
+     * @param cell      A cell on the board.
+     * @param direction The code of a direction.
+     * @return The neighbour of the cell in the given
+     * direction, or <code>-1</code> if there is none.
+     */
+    public int neighbour(int cell, int direction) {
+        return this.neighbours[(cell << 2) | direction];
+    }
+
+    /**
+     * @param code An encoded move.
+     * @return The cell the tile lands on after the
+     * move, or <code>-1</code> if it would leave the board.
+     */
+    public int target(int code) {
+        return this.neighbours[code];
+    }
+
+}
@@ -2,6 +2,7 @@ package me.joshuasheldon.sliding.objs;
 
 import me.joshuasheldon.sliding.Utilities;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -21,13 +22,23 @@ public class State implements Comparable<State>, Iterable<Integer> {
 
     /**
      * The 2D array representing the state of the board.
+     * Neither the array nor its rows are ever changed once
+     * the state is created, so rows that a move doesn't
+     * touch are shared with the state the move was
+     * applied to, rather than copied.
      */
     private final int[][] board;
 
     /**
-     * All the blank spaces on the board.
+     * The cells (<code>row * boardSize + col</code>) of
+     * all the blank spaces on the board. The number of
+     * blank spaces never changes, so this is a fixed-size
+     * array that is copied and updated when a move is applied.
+     * Kept in ascending order, so that the order moves are
+     * generated in only depends on the board, and not on
+     * the moves that led to it.
      */
-    private final LinkedList<Space> blankSpaces;
+    private final int[] blankCells;
 
     /**
      * The distance of this state from its goal state,
@@ -38,6 +49,8 @@ public class State implements Comparable<State>, Iterable<Integer> {
 
     /**
      * Create a new state object from a 2D array of integers.
+     * The board is copied, so later changes to the given
+     * array don't affect the state.
      *
      * @param board The 2D array representing the state of the board
      * @throws IllegalArgumentException If the board is invalid
@@ -51,35 +64,53 @@ public class State implements Comparable<State>, Iterable<Integer> {
             throw new IllegalArgumentException("Invalid board passed into State constructor!");
         }
 
-        this.board = board;
-        this.blankSpaces = blankSpaces;
-        this.distanceFromGoal = calculateDistanceFromGoal();
+        this.board = new int[board.length][];
+
+        for (int row = 0; row < board.length; row++) {
+            this.board[row] = board[row].clone();
+        }
+
+        this.blankCells = new int[blankSpaces.size()];
+
+        int i = 0;
+        for (Space space : blankSpaces) {
+            this.blankCells[i++] = (space.row() * board.length) + space.col();
+        }
+
+        Arrays.sort(this.blankCells);
+
+        this.distanceFromGoal = calculateDistanceFromGoal(
+                MoveGenerator.forBoardSize(board.length).blankDistances(this.blankCells.length));
 
     }
 
     /**
      * Clone an existing state. Skips state validation,
      * since for a State object to exist, it must be valid.
+     * States never change once created, so the clone
+     * shares the board and blank cells of the given state.
      *
      * @param state The state to clone
      */
     public State(State state) {
+        this.board = state.board;
+        this.blankCells = state.blankCells;
+        this.distanceFromGoal = state.distanceFromGoal;
+    }
 
-        // Copy board
-        int boardSize = state.getBoardSize();
-        int[][] newBoard = new int[boardSize][boardSize];
-
-        for (int i = 0; i < boardSize; i++) {
-            System.arraycopy(state.board[i], 0, newBoard[i], 0, boardSize);
-        }
-
-        this.board = newBoard;
-
-        // Copy blank spaces
-        this.blankSpaces = new LinkedList<>(state.blankSpaces);
-
-        this.distanceFromGoal = calculateDistanceFromGoal();
-
+    /**
+     * Create a state from a board and its blank cells, as
+     * produced by applying a move to a valid state. Skips
+     * state validation, since moves preserve validity.
+     *
+     * @param board      The 2D array representing the state of the board
+     * @param blankCells The cells of the blank spaces, in ascending order
+     * @param blankTable The blank distance table of the board
+     */
+    private State(int[][] board, int[] blankCells, BlankDistanceTable blankTable) {
+        this.board = board;
+        this.blankCells = blankCells;
+        this.distanceFromGoal = calculateDistanceFromGoal(blankTable);
     }
 
     /**
@@ -92,33 +123,143 @@ public class State implements Comparable<State>, Iterable<Integer> {
      */
     public State apply(Move move) {
 
-        Space originalSpace = move.space();
+        // Check validity of original space
+        if (move == null || !isSpaceValid(move.space())) {
+            return null;
+        }
+
+        return apply(move.encode(getBoardSize()));
+
+    }
+
+    /**
+     * Applies an encoded move to this state.
+     *
+     * @param code The move to be made, encoded as
+     *             described in {@link MoveGenerator}.
+     * @return The state produced as a result of the given
+     * move, or <code>null</code> if the move is invalid.
+     */
+    public State apply(int code) {
+
+        MoveGenerator generator = MoveGenerator.forBoardSize(getBoardSize());
+        int originalCell = MoveGenerator.cellOf(code);
 
         // Check validity of original space
-        if (!isSpaceValid(originalSpace)) {
+        if (originalCell >= getBoardSize() * getBoardSize()) {
             return null;
         }
 
-        Space newSpace = originalSpace.navigate(move.direction());
+        int newCell = generator.target(code);
 
-        // Check if new space is blank (inherently checks
-        // for validity)
-        if (getValue(newSpace) != BLANK_SPACE_VALUE) {
+        // Check if new space is valid and blank
+        if (newCell < 0) {
             return null;
         }
 
-        // Create copy of board
-        State newState = new State(this);
+        int originalRow = generator.rowOf(originalCell);
+        int originalCol = generator.colOf(originalCell);
+        int newRow = generator.rowOf(newCell);
+        int newCol = generator.colOf(newCell);
+
+        if (this.board[newRow][newCol] != BLANK_SPACE_VALUE ||
+                this.board[originalRow][originalCol] == BLANK_SPACE_VALUE) {
+            return null;
+        }
+
+        // Create copy of board, only copying the rows the
+        // move touches and sharing the rest with this state
+        int[][] newBoard = this.board.clone();
+        newBoard[newRow] = this.board[newRow].clone();
+
+        if (originalRow != newRow) {
+            newBoard[originalRow] = this.board[originalRow].clone();
+        }
 
         // Move tile from original space to new space
-        newState.getBoard()[newSpace.row()][newSpace.col()] = newState.getBoard()[originalSpace.row()][originalSpace.col()];
-        newState.getBoard()[originalSpace.row()][originalSpace.col()] = BLANK_SPACE_VALUE;
+        newBoard[newRow][newCol] = newBoard[originalRow][originalCol];
+        newBoard[originalRow][originalCol] = BLANK_SPACE_VALUE;
+
+        // The blank space that the tile moved into
+        // is now where the tile used to be, shifted
+        // along to keep the blank cells in order
+        int[] blankCells = this.blankCells.clone();
+        int i = 0;
+
+        while (blankCells[i] != newCell) {
+            i++;
+        }
+
+        while (i > 0 && blankCells[i - 1] > originalCell) {
+            blankCells[i] = blankCells[i - 1];
+            i--;
+        }
+
+        while (i < blankCells.length - 1 && blankCells[i + 1] < originalCell) {
+            blankCells[i] = blankCells[i + 1];
+            i++;
+        }
+
+        blankCells[i] = originalCell;
+
+        // The distance from the goal is calculated for
+        // the board after the move
+        return new State(newBoard, blankCells, generator.blankDistances(blankCells.length));
+
+    }
+
+    /**
+     * Creates a state from the values of its cells,
+     * read from left to right, top to bottom.
+     *
+     * @param cells     The values of the board, by cell.
+     * @param boardSize The length of one side of the board.
+     * @return The new state.
+     * @throws IllegalArgumentException If the board is invalid
+     *                                  (see Utilities.validateState for conditions that must be met)
+     */
+    public static State fromCells(int[] cells, int boardSize) throws IllegalArgumentException {
+
+        if (cells == null || cells.length != boardSize * boardSize) {
+            throw new IllegalArgumentException("Invalid cells passed into State.fromCells!");
+        }
+
+        int[][] board = new int[boardSize][boardSize];
+
+        for (int row = 0; row < boardSize; row++) {
+            System.arraycopy(cells, row * boardSize, board[row], 0, boardSize);
+        }
+
+        return new State(board);
 
-        // Update blank spaces list
-        newState.getBlankSpaces().remove(newSpace);
-        newState.getBlankSpaces().push(originalSpace);
+    }
+
+    /**
+     * Copies the cells (<code>row * boardSize + col</code>)
+     * of the blank spaces of this state into the given
+     * array, in ascending order.
+     *
+     * @param cells The array to copy into, at least
+     *              {@link #getBlankCount()} long.
+     */
+    public void copyBlankCellsInto(int[] cells) {
+        System.arraycopy(this.blankCells, 0, cells, 0, this.blankCells.length);
+    }
+
+    /**
+     * Copies the values of this state into the given
+     * array, read from left to right, top to bottom.
+     *
+     * @param cells The array to copy into, at least
+     *              <code>boardSize ^ 2</code> long.
+     */
+    public void copyCellsInto(int[] cells) {
+
+        int boardSize = getBoardSize();
 
-        return newState;
+        for (int row = 0; row < boardSize; row++) {
+            System.arraycopy(this.board[row], 0, cells, row * boardSize, boardSize);
+        }
 
     }
 
@@ -137,57 +278,35 @@ public class State implements Comparable<State>, Iterable<Integer> {
 
     /**
      * The sum of the Manhattan distances from every
-     * value in the state to its position on
-     * the goal state.
+     * tile in the state to its position on the goal
+     * state, plus the distance of the blank spaces
+     * from the goal blank spaces, as calculated by
+     * {@link BlankDistanceTable}.
      *
+     * @param blankTable The blank distance table of the board.
      * @return Collective distance of this state
      * from the goal state.
      */
-    private int calculateDistanceFromGoal() {
+    private int calculateDistanceFromGoal(BlankDistanceTable blankTable) {
 
-        int totalDistance = 0;
         int boardSize = getBoardSize();
-        int numOfBlankSpaces = this.blankSpaces.size();
+        int numOfBlankSpaces = this.blankCells.length;
 
-        // Collect all the spaces that will
-        // be blank in the goal state
-        LinkedList<Space> allBlankSpaces = new LinkedList<>();
-
-        for (int index = 0; index < numOfBlankSpaces; index++) {
-            allBlankSpaces.push(Utilities.matrixIndexToSpace(index, boardSize));
-        }
+        // Since blank spaces can technically go to any
+        // of the goal blank spaces, they're measured
+        // as a group rather than one by one
+        int totalDistance = blankTable.distance(this.blankCells);
 
-        // Calculate total distance
+        // Calculate total distance of the tiles
         for (int row = 0; row < boardSize; row++) {
             for (int col = 0; col < boardSize; col++) {
 
                 int val = this.board[row][col];
 
-                if (val != 0) {
-
-                    // Non-blank value
+                if (val != BLANK_SPACE_VALUE) {
                     int goalMatrixIndex = numOfBlankSpaces + val - 1;
-                    Space goalSpace = Utilities.matrixIndexToSpace(goalMatrixIndex, boardSize);
-                    totalDistance += Utilities.manhattanDistance(goalSpace.col(), goalSpace.row(), col, row);
-
-                } else {
-
-                    // Blank value
-                    // Since 0's can technically go anywhere, calculate
-                    // the distance between this space and every
-                    // blank space in the goal, then take the
-                    // minimum of all calculated values.
-                    int minDistance = Integer.MAX_VALUE;
-
-                    for (Space blankSpace : allBlankSpaces) {
-                        int distance = Utilities.manhattanDistance(blankSpace.col(), blankSpace.row(), col, row);
-                        if (distance < minDistance) {
-                            minDistance = distance;
-                        }
-                    }
-
-                    totalDistance += minDistance;
-
+                    totalDistance += Utilities.manhattanDistance(
+                            goalMatrixIndex % boardSize, goalMatrixIndex / boardSize, col, row);
                 }
 
             }
@@ -216,11 +335,18 @@ public class State implements Comparable<State>, Iterable<Integer> {
         }
 
         for (int row = 0; row < this.getBoardSize(); row++) {
+
+            // Shared rows are equal without comparing them
+            if (this.board[row] == other.board[row]) {
+                continue;
+            }
+
             for (int col = 0; col < this.getBoardSize(); col++) {
                 if (this.board[row][col] != other.board[row][col]) {
                     return false;
                 }
             }
+
         }
 
         return true;
@@ -228,17 +354,43 @@ public class State implements Comparable<State>, Iterable<Integer> {
     }
 
     /**
-     * @return The underlying 2D array representing the state of the board.
+     * @return A copy of the 2D array representing the state of
+     * the board. Rows of the underlying array may be shared with
+     * other states, so it is never handed out to be changed.
      */
     public int[][] getBoard() {
-        return this.board;
+
+        int[][] board = new int[this.board.length][];
+
+        for (int row = 0; row < this.board.length; row++) {
+            board[row] = this.board[row].clone();
+        }
+
+        return board;
+
     }
 
     /**
-     * @return The blank spaces on the board.
+     * @return The blank spaces on the board, as a
+     * new list built on every call.
      */
-    public LinkedList<Space> getBlankSpaces() {
-        return this.blankSpaces;
+    public List<Space> getBlankSpaces() {
+
+        LinkedList<Space> blankSpaces = new LinkedList<>();
+
+        for (int cell : this.blankCells) {
+            blankSpaces.add(Utilities.matrixIndexToSpace(cell, getBoardSize()));
+        }
+
+        return blankSpaces;
+
+    }
+
+    /**
+     * @return The number of blank spaces on the board.
+     */
+    public int getBlankCount() {
+        return this.blankCells.length;
     }
 
     /**
@@ -275,6 +427,15 @@ public class State implements Comparable<State>, Iterable<Integer> {
 
     }
 
+    /**
+     * @param cell The cell (<code>row * boardSize + col</code>)
+     *             of the space on the board.
+     * @return The actual value of the space on the board.
+     */
+    public int getValue(int cell) {
+        return this.board[cell / getBoardSize()][cell % getBoardSize()];
+    }
+
     /**
      * Returns the goal state. In this implementation,
      * the goal state is that all blank spaces are
@@ -286,7 +447,7 @@ public class State implements Comparable<State>, Iterable<Integer> {
      */
     public State goalState() {
 
-        int blankSpacesRemaining = this.blankSpaces.size();
+        int blankSpacesRemaining = this.blankCells.length;
         int nextValToSet = 1;
 
         // Create 2D array for goal state
@@ -322,6 +483,15 @@ public class State implements Comparable<State>, Iterable<Integer> {
 
     }
 
+    /**
+     * @return A hash code consistent with {@link #equals(Object)},
+     * so that states can be used as keys in hash tables.
+     */
+    @Override
+    public int hashCode() {
+        return Arrays.deepHashCode(this.board);
+    }
+
     /**
      * @param space The space to check.
      * @return Whether the given space is a
@@ -428,30 +598,41 @@ public class State implements Comparable<State>, Iterable<Integer> {
      */
     public List<Move> validMoves() {
 
-        // Loop through all blank spaces
+        int[] buffer = new int[MoveGenerator.maxMoves(this.blankCells.length)];
+        int count = validMoves(buffer);
+
         LinkedList<Move> validMoves = new LinkedList<>();
 
-        for (Space space : this.blankSpaces) {
-            for (Direction direction : Direction.values()) {
+        for (int i = 0; i < count; i++) {
+            validMoves.push(Move.decode(buffer[i], getBoardSize()));
+        }
 
-                // Check if the space in this direction
-                // of the blank space is valid and not blank
-                Space newSpace = space.navigate(direction);
-                int val = getValue(newSpace);
+        return validMoves;
 
-                if (val == BLANK_SPACE_VALUE || val == -1) {
-                    continue;
-                }
+    }
 
-                // If there's a tile in this new space,
-                // then generate a move to push it into
-                // the blank space
-                validMoves.push(new Move(newSpace, Direction.opposite(direction)));
+    /**
+     * Writes all valid moves that can be performed on
+     * this state into the given buffer, encoded as
+     * described in {@link MoveGenerator}. Does not
+     * allocate any objects, so it is suitable for
+     * calling once per expanded state.
+     *
+     * @param buffer The buffer to write the moves into. Must
+     *               be at least {@link MoveGenerator#maxMoves(int)}
+     *               long for the number of blank spaces on this state.
+     * @return The number of moves written into the buffer.
+     */
+    public int validMoves(int[] buffer) {
 
-            }
+        MoveGenerator generator = MoveGenerator.forBoardSize(getBoardSize());
+        int count = 0;
+
+        for (int blankCell : this.blankCells) {
+            count = generator.generate(this.board, blankCell, buffer, count);
         }
 
-        return validMoves;
+        return count;
 
     }
 
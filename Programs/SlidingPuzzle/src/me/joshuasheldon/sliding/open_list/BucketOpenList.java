@@ -0,0 +1,254 @@
+package me.joshuasheldon.sliding.open_list;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * An open list for searches where <code>f</code> and
+ * <code>h</code> are small, non-negative integers, which
+ * is the case for every heuristic in this project. Handles
+ * are kept in a two-dimensional array of stacks indexed by
+ * <code>f</code>, then by <code>h</code>. Pushing is O(1)
+ * amortized, and popping is O(1) amortized as long as the
+ * lowest <code>f</code> moves in small steps, because the
+ * cursors pointing at the lowest non-empty bucket only
+ * have to skip over the empty buckets in between.
+ */
+public class BucketOpenList implements OpenList {
+
+    /**
+     * Receives the entries of the open list from {@link #forEach(EntryVisitor)}.
+     */
+    @FunctionalInterface
+    public interface EntryVisitor {
+
+        /**
+         * @param handle The handle of the entry.
+         * @param f      The primary priority of the entry.
+         * @param h      The tie-breaking priority of the entry.
+         */
+        void visit(int handle, int f, int h);
+
+    }
+
+    /**
+     * The buckets of the open list, indexed by <code>f</code>,
+     * then by <code>h</code>. Rows and buckets are created
+     * lazily the first time they are pushed into.
+     */
+    private IntStack[][] buckets = new IntStack[16][];
+
+    /**
+     * The number of handles stored under each <code>f</code>.
+     */
+    private int[] countPerF = new int[16];
+
+    /**
+     * For each <code>f</code>, a lower bound on the lowest
+     * <code>h</code> whose bucket is non-empty.
+     */
+    private int[] minHPerF = new int[16];
+
+    /**
+     * A lower bound on the lowest <code>f</code> whose
+     * buckets are non-empty.
+     */
+    private int minF = 0;
+
+    /**
+     * The total number of handles in the open list.
+     */
+    private int size = 0;
+
+    @Override
+    public void clear() {
+
+        for (IntStack[] row : this.buckets) {
+            if (row != null) {
+                for (IntStack bucket : row) {
+                    if (bucket != null) {
+                        bucket.clear();
+                    }
+                }
+            }
+        }
+
+        Arrays.fill(this.countPerF, 0);
+        Arrays.fill(this.minHPerF, 0);
+        this.minF = 0;
+        this.size = 0;
+
+    }
+
+    /**
+     * Passes every entry of the open list to the visitor
+     * without removing it. Entries are visited in an order
+     * such that pushing them into an empty open list in that
+     * order rebuilds an open list that pops them in exactly
+     * the same order as this one, which lets a search be
+     * checkpointed and resumed with identical results.
+     *
+     * @param visitor The visitor of the entries.
+     */
+    public void forEach(EntryVisitor visitor) {
+
+        for (int f = 0; f < this.buckets.length; f++) {
+
+            IntStack[] row = this.buckets[f];
+
+            if (row == null || this.countPerF[f] == 0) {
+                continue;
+            }
+
+            for (int h = 0; h < row.length; h++) {
+
+                IntStack bucket = row[h];
+
+                if (bucket == null) {
+                    continue;
+                }
+
+                // Bottom of the stack first, so the top
+                // is pushed last and popped first again
+                for (int i = 0; i < bucket.size(); i++) {
+                    visitor.visit(bucket.get(i), f, h);
+                }
+
+            }
+
+        }
+
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * @return The lowest <code>f</code> currently in the
+     * open list, or <code>-1</code> if it is empty.
+     */
+    public int peekF() {
+
+        if (this.size == 0) {
+            return -1;
+        }
+
+        while (this.countPerF[this.minF] == 0) {
+            this.minF++;
+        }
+
+        return this.minF;
+
+    }
+
+    @Override
+    public int pop() {
+
+        int f = peekF();
+
+        if (f < 0) {
+            throw new NoSuchElementException("Cannot pop from an empty open list!");
+        }
+
+        // Find the lowest h with a non-empty bucket
+        // under the lowest f
+        IntStack[] row = this.buckets[f];
+        int h = this.minHPerF[f];
+
+        while (row[h] == null || row[h].isEmpty()) {
+            h++;
+        }
+
+        this.minHPerF[f] = h;
+        this.countPerF[f]--;
+        this.size--;
+
+        return row[h].pop();
+
+    }
+
+    /**
+     * Adds a handle to the open list.
+     *
+     * @param handle The handle of the state.
+     * @param f      The primary priority of the state.
+     * @param h      The tie-breaking priority of the state.
+     * @throws IllegalArgumentException If <code>f</code> or
+     *                                  <code>h</code> is negative.
+     */
+    public void push(int handle, int f, int h) {
+
+        if (f < 0 || h < 0) {
+            throw new IllegalArgumentException("Negative priority passed into bucket open list!");
+        }
+
+        // Grow the per-f arrays if needed
+        if (f >= this.buckets.length) {
+            int newLength = Math.max(f + 1, this.buckets.length * 2);
+            this.buckets = Arrays.copyOf(this.buckets, newLength);
+            this.countPerF = Arrays.copyOf(this.countPerF, newLength);
+            this.minHPerF = Arrays.copyOf(this.minHPerF, newLength);
+        }
+
+        // Grow the row for this f if needed
+        IntStack[] row = this.buckets[f];
+
+        if (row == null) {
+            row = new IntStack[Math.max(h + 1, 16)];
+            this.buckets[f] = row;
+        } else if (h >= row.length) {
+            row = Arrays.copyOf(row, Math.max(h + 1, row.length * 2));
+            this.buckets[f] = row;
+        }
+
+        if (row[h] == null) {
+            row[h] = new IntStack();
+        }
+
+        row[h].push(handle);
+
+        // Pull the cursors back if this entry
+        // is better than everything before it
+        if (this.countPerF[f] == 0 || h < this.minHPerF[f]) {
+            this.minHPerF[f] = h;
+        }
+
+        if (this.size == 0 || f < this.minF) {
+            this.minF = f;
+        }
+
+        this.countPerF[f]++;
+        this.size++;
+
+    }
+
+    /**
+     * Adds a handle to the open list.
+     *
+     * @param handle The handle of the state.
+     * @param f      The primary priority of the state, which
+     *               must be a whole number.
+     * @param h      The tie-breaking priority of the state.
+     * @throws IllegalArgumentException If <code>f</code> is not a
+     *                                  whole number, or if either
+     *                                  priority is negative.
+     */
+    @Override
+    public void push(int handle, double f, int h) {
+
+        if (f != Math.rint(f) || f > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Non-integral f passed into bucket open list, use a HeapOpenList instead!");
+        }
+
+        push(handle, (int) f, h);
+
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+}
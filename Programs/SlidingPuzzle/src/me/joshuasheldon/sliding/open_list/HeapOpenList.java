@@ -0,0 +1,216 @@
+package me.joshuasheldon.sliding.open_list;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * An open list backed by a binary min-heap over parallel
+ * primitive arrays, for searches where <code>f</code>
+ * is not a whole number (for instance, when the
+ * heuristic is weighted). Push and pop are O(log n),
+ * and no objects are allocated once the arrays
+ * have grown to the size of the frontier.
+ */
+public class HeapOpenList implements OpenList {
+
+    /**
+     * The handles in heap order.
+     */
+    private int[] handles = new int[64];
+
+    /**
+     * The <code>f</code> of each entry, parallel to <code>handles</code>.
+     */
+    private double[] fs = new double[64];
+
+    /**
+     * The <code>h</code> of each entry, parallel to <code>handles</code>.
+     */
+    private int[] hs = new int[64];
+
+    /**
+     * The insertion number of each entry, parallel
+     * to <code>handles</code>. Used to return entries
+     * that tie on <code>f</code> and <code>h</code>
+     * last-in, first-out.
+     */
+    private long[] sequences = new long[64];
+
+    /**
+     * The insertion number of the next entry.
+     */
+    private long nextSequence = 0;
+
+    /**
+     * The number of entries in the heap.
+     */
+    private int size = 0;
+
+    @Override
+    public void clear() {
+        this.size = 0;
+        this.nextSequence = 0;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * @return The lowest <code>f</code> currently in the
+     * open list, or {@link Double#NaN} if it is empty.
+     */
+    public double peekF() {
+        return this.size == 0 ? Double.NaN : this.fs[0];
+    }
+
+    @Override
+    public int pop() {
+
+        if (this.size == 0) {
+            throw new NoSuchElementException("Cannot pop from an empty open list!");
+        }
+
+        int top = this.handles[0];
+        this.size--;
+
+        // Move the last entry to the root
+        // and sift it down into place
+        if (this.size > 0) {
+            move(this.size, 0);
+            siftDown(0);
+        }
+
+        return top;
+
+    }
+
+    @Override
+    public void push(int handle, double f, int h) {
+
+        if (this.size == this.handles.length) {
+            int newLength = this.handles.length * 2;
+            this.handles = Arrays.copyOf(this.handles, newLength);
+            this.fs = Arrays.copyOf(this.fs, newLength);
+            this.hs = Arrays.copyOf(this.hs, newLength);
+            this.sequences = Arrays.copyOf(this.sequences, newLength);
+        }
+
+        int index = this.size++;
+        this.handles[index] = handle;
+        this.fs[index] = f;
+        this.hs[index] = h;
+        this.sequences[index] = this.nextSequence++;
+
+        siftUp(index);
+
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return Whether the entry at index <code>a</code>
+     * should be popped before the entry at index <code>b</code>.
+     */
+    private boolean isBefore(int a, int b) {
+
+        if (this.fs[a] != this.fs[b]) {
+            return this.fs[a] < this.fs[b];
+        }
+
+        if (this.hs[a] != this.hs[b]) {
+            return this.hs[a] < this.hs[b];
+        }
+
+        return this.sequences[a] > this.sequences[b];
+
+    }
+
+    /**
+     * Copies the entry at index <code>from</code>
+     * over the entry at index <code>to</code>.
+     */
+    private void move(int from, int to) {
+        this.handles[to] = this.handles[from];
+        this.fs[to] = this.fs[from];
+        this.hs[to] = this.hs[from];
+        this.sequences[to] = this.sequences[from];
+    }
+
+    /**
+     * Swaps the entries at the two given indices.
+     */
+    private void swap(int a, int b) {
+
+        int handle = this.handles[a];
+        double f = this.fs[a];
+        int h = this.hs[a];
+        long sequence = this.sequences[a];
+
+        move(b, a);
+
+        this.handles[b] = handle;
+        this.fs[b] = f;
+        this.hs[b] = h;
+        this.sequences[b] = sequence;
+
+    }
+
+    /**
+     * Moves the entry at the given index down
+     * the heap until both of its children
+     * come after it.
+     */
+    private void siftDown(int index) {
+
+        while (true) {
+
+            int left = (index * 2) + 1;
+            int right = left + 1;
+            int best = index;
+
+            if (left < this.size && isBefore(left, best)) {
+                best = left;
+            }
+
+            if (right < this.size && isBefore(right, best)) {
+                best = right;
+            }
+
+            if (best == index) {
+                return;
+            }
+
+            swap(index, best);
+            index = best;
+
+        }
+
+    }
+
+    /**
+     * Moves the entry at the given index up
+     * the heap until its parent comes before it.
+     */
+    private void siftUp(int index) {
+
+        while (index > 0) {
+
+            int parent = (index - 1) / 2;
+
+            if (!isBefore(index, parent)) {
+                return;
+            }
+
+            swap(index, parent);
+            index = parent;
+
+        }
+
+    }
+
+}
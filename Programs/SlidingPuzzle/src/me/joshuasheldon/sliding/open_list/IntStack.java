@@ -0,0 +1,73 @@
+package me.joshuasheldon.sliding.open_list;
+
+import java.util.Arrays;
+
+/**
+ * A growable stack of primitive integers, used as
+ * a single bucket of the {@link BucketOpenList}.
+ */
+class IntStack {
+
+    /**
+     * The backing array of the stack.
+     */
+    private int[] items = new int[8];
+
+    /**
+     * The number of items currently on the stack.
+     */
+    private int size = 0;
+
+    /**
+     * Empties the stack, keeping its backing array
+     * so that it can be reused.
+     */
+    void clear() {
+        this.size = 0;
+    }
+
+    /**
+     * @param index The position to read, where <code>0</code>
+     *              is the bottom of the stack.
+     * @return The item at the given position.
+     */
+    int get(int index) {
+        return this.items[index];
+    }
+
+    /**
+     * @return <code>true</code> if the stack is empty.
+     */
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * @return The item on top of the stack, which
+     * is removed. The stack must not be empty.
+     */
+    int pop() {
+        return this.items[--this.size];
+    }
+
+    /**
+     * @param item The item to place on top of the stack.
+     */
+    void push(int item) {
+
+        if (this.size == this.items.length) {
+            this.items = Arrays.copyOf(this.items, this.items.length * 2);
+        }
+
+        this.items[this.size++] = item;
+
+    }
+
+    /**
+     * @return The number of items on the stack.
+     */
+    int size() {
+        return this.size;
+    }
+
+}
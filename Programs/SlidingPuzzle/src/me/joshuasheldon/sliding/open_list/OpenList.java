@@ -0,0 +1,49 @@
+package me.joshuasheldon.sliding.open_list;
+
+/**
+ * A priority queue of state handles used as the open
+ * list of a search. Handles are plain integers handed
+ * out by a {@link StatePool}, so the open list never
+ * has to compare or even touch the states themselves.
+ * Entries are ordered by ascending <code>f</code>,
+ * then by ascending <code>h</code>, and entries that
+ * tie on both are returned last-in, first-out.
+ */
+public interface OpenList {
+
+    /**
+     * Removes every entry from the open list.
+     */
+    void clear();
+
+    /**
+     * @return <code>true</code> if there are no entries
+     * left in the open list, <code>false</code> otherwise.
+     */
+    boolean isEmpty();
+
+    /**
+     * Removes the best entry from the open list.
+     *
+     * @return The handle of the removed entry.
+     * @throws java.util.NoSuchElementException If the open list is empty.
+     */
+    int pop();
+
+    /**
+     * Adds a handle to the open list.
+     *
+     * @param handle The handle of the state.
+     * @param f      The primary priority of the state. Lower is better.
+     * @param h      The heuristic value of the state, used to break
+     *               ties between entries with equal <code>f</code>.
+     *               Lower is better.
+     */
+    void push(int handle, double f, int h);
+
+    /**
+     * @return The number of entries in the open list.
+     */
+    int size();
+
+}
@@ -0,0 +1,96 @@
+package me.joshuasheldon.sliding.open_list;
+
+import me.joshuasheldon.sliding.objs.State;
+
+import java.util.Arrays;
+
+/**
+ * Hands out integer handles for states, so that
+ * open lists can store primitives instead of object
+ * references. Handles of released states are
+ * recycled, so the pool only grows as large as
+ * the number of states alive at the same time.
+ */
+public class StatePool {
+
+    /**
+     * The states in the pool, indexed by handle.
+     */
+    private State[] states = new State[64];
+
+    /**
+     * Handles that have been released and can be reused.
+     */
+    private final IntStack freeHandles = new IntStack();
+
+    /**
+     * The lowest handle that has never been handed out.
+     */
+    private int nextHandle = 0;
+
+    /**
+     * Stores a state in the pool.
+     *
+     * @param state The state to store.
+     * @return The handle of the state.
+     */
+    public int add(State state) {
+
+        int handle;
+
+        if (!this.freeHandles.isEmpty()) {
+            handle = this.freeHandles.pop();
+        } else {
+
+            handle = this.nextHandle++;
+
+            if (handle == this.states.length) {
+                this.states = Arrays.copyOf(this.states, this.states.length * 2);
+            }
+
+        }
+
+        this.states[handle] = state;
+        return handle;
+
+    }
+
+    /**
+     * Empties the pool, invalidating every handle.
+     */
+    public void clear() {
+        Arrays.fill(this.states, 0, this.nextHandle, null);
+        this.freeHandles.clear();
+        this.nextHandle = 0;
+    }
+
+    /**
+     * @param handle The handle of the state.
+     * @return The state with the given handle.
+     */
+    public State get(int handle) {
+        return this.states[handle];
+    }
+
+    /**
+     * Removes a state from the pool, freeing
+     * its handle to be reused.
+     *
+     * @param handle The handle of the state.
+     * @return The state that had the given handle.
+     */
+    public State release(int handle) {
+        State state = this.states[handle];
+        this.states[handle] = null;
+        this.freeHandles.push(handle);
+        return state;
+    }
+
+    /**
+     * @return The number of states in the pool.
+     */
+    public int size() {
+        return this.nextHandle - this.freeHandles.size();
+    }
+
+}
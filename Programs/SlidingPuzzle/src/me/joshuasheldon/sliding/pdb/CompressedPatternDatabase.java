@@ -0,0 +1,727 @@
+package me.joshuasheldon.sliding.pdb;
+
+import me.joshuasheldon.sliding.Utilities;
+import me.joshuasheldon.sliding.objs.DiagonalSymmetry;
+import me.joshuasheldon.sliding.objs.MoveGenerator;
+import me.joshuasheldon.sliding.objs.State;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A pattern database stored in fewer than eight bits per
+ * placement, which can be written to a file and mapped back
+ * into memory. Mapped databases live outside the Java heap
+ * and are shared through the page cache, so every process
+ * on a machine that loads the same file shares one copy.<br><br>
+ * <p>
+ * Entries are stored in one of three encodings:
+ * <ul>
+ *     <li>{@link #BYTE_ENTRIES}, the distance in a byte.</li>
+ *     <li>{@link #NIBBLE_ENTRIES}, two entries per byte. A pattern
+ *     tile needs at least its Manhattan distance in moves, and
+ *     every other move it makes must be undone, so the distance
+ *     is the Manhattan distance of the pattern tiles plus an even
+ *     number. Only half of that even number is stored, capped at
+ *     15, and the Manhattan distance is added back on lookup.</li>
+ *     <li>{@link #MOD3_ENTRIES}, five entries per byte, storing
+ *     only the distance modulo 3. Every move changes the distance
+ *     of a placement by exactly one, so the distance of a state can
+ *     be recovered from the distance of its parent in the search, or
+ *     from scratch by walking down to the goal one move at a time.</li>
+ * </ul>
+ * Byte and nibble entries can also be min-compressed, where each
+ * run of <code>compression</code> consecutive ranks shares one
+ * entry holding the smallest distance in the run. This divides the
+ * size of the database by <code>compression</code> and keeps it
+ * from ever overestimating, at the cost of some accuracy. Runs of
+ * consecutive ranks only differ in where the last pattern tile is,
+ * so their distances are usually close.
+ */
+public class CompressedPatternDatabase {
+
+    /**
+     * Identifies entries stored in a byte each.
+     */
+    public static final byte BYTE_ENTRIES = 0;
+
+    /**
+     * Identifies entries stored in a nibble each, relative to
+     * the Manhattan distance of the pattern tiles.
+     */
+    public static final byte NIBBLE_ENTRIES = 1;
+
+    /**
+     * Identifies entries stored modulo 3, five to a byte.
+     */
+    public static final byte MOD3_ENTRIES = 2;
+
+    /**
+     * The magic number at the start of a pattern database file ("SPDB").
+     */
+    static final int MAGIC = 0x53504442;
+
+    /**
+     * The version of the file format.
+     */
+    static final byte VERSION = 1;
+
+    /**
+     * Entries are spread over buffers of at most
+     * <code>2^SEGMENT_BITS</code> bytes, since a single
+     * buffer cannot be larger than 2GB.
+     */
+    private static final int SEGMENT_BITS = 30;
+
+    /**
+     * The powers of 3 used to pack five entries into a byte.
+     */
+    private static final int[] POWERS_OF_3 = {1, 3, 9, 27, 81};
+
+    /**
+     * How the entries are stored.
+     */
+    private final byte encoding;
+
+    /**
+     * The number of consecutive ranks sharing each entry.
+     */
+    private final int compression;
+
+    /**
+     * The length of one side of the board.
+     */
+    private final int boardSize;
+
+    /**
+     * The number of blank spaces on the board.
+     */
+    private final int blankCount;
+
+    /**
+     * Ranks placements of the pattern.
+     */
+    private final PatternRanker ranker;
+
+    /**
+     * Finds the neighbours of cells, to recover
+     * distances stored modulo 3.
+     */
+    private final MoveGenerator generator;
+
+    /**
+     * The rank of the goal placement.
+     */
+    private final long goalRank;
+
+    /**
+     * The Manhattan distance of every pattern tile from every
+     * cell, indexed by <code>tileIndex * cellCount + cell</code>.
+     */
+    private final int[] manhattanDistances;
+
+    /**
+     * The number of entries stored.
+     */
+    private final long entryCount;
+
+    /**
+     * The stored entries, in segments of <code>2^SEGMENT_BITS</code> bytes.
+     */
+    private final ByteBuffer[] segments;
+
+    /**
+     * Wrap stored entries.
+     *
+     * @param encoding    How the entries are stored.
+     * @param compression The number of consecutive ranks sharing each entry.
+     * @param boardSize   The length of one side of the board.
+     * @param blankCount  The number of blank spaces on the board.
+     * @param ranker      Ranks placements of the pattern.
+     * @param entryCount  The number of entries stored.
+     * @param segments    The stored entries.
+     */
+    private CompressedPatternDatabase(byte encoding, int compression, int boardSize, int blankCount,
+                                      PatternRanker ranker, long entryCount, ByteBuffer[] segments) {
+
+        this.encoding = encoding;
+        this.compression = compression;
+        this.boardSize = boardSize;
+        this.blankCount = blankCount;
+        this.ranker = ranker;
+        this.generator = MoveGenerator.forBoardSize(boardSize);
+        this.goalRank = ranker.rank(ranker.goalPositions(blankCount));
+        this.entryCount = entryCount;
+        this.segments = segments;
+
+        // Manhattan distance of every pattern tile from every cell
+        int cellCount = ranker.getCellCount();
+        int[] goalPositions = ranker.goalPositions(blankCount);
+        this.manhattanDistances = new int[goalPositions.length * cellCount];
+
+        for (int i = 0; i < goalPositions.length; i++) {
+            for (int cell = 0; cell < cellCount; cell++) {
+                this.manhattanDistances[(i * cellCount) + cell] = Utilities.manhattanDistance(
+                        goalPositions[i] % boardSize, goalPositions[i] / boardSize,
+                        cell % boardSize, cell / boardSize);
+            }
+        }
+
+    }
+
+    /**
+     * Compresses a pattern database in memory.
+     *
+     * @param database    The database to compress.
+     * @param encoding    How to store the entries, one of {@link #BYTE_ENTRIES},
+     *                    {@link #NIBBLE_ENTRIES} or {@link #MOD3_ENTRIES}.
+     * @param compression The number of consecutive ranks to share each entry,
+     *                    which must be <code>1</code> for {@link #MOD3_ENTRIES}.
+     * @return The compressed database.
+     * @throws IllegalArgumentException If the encoding or compression is invalid.
+     */
+    public static CompressedPatternDatabase compress(PatternDatabase database, byte encoding, int compression)
+            throws IllegalArgumentException {
+
+        if (encoding < BYTE_ENTRIES || encoding > MOD3_ENTRIES) {
+            throw new IllegalArgumentException("Unknown pattern database encoding " + encoding + "!");
+        }
+
+        if (compression < 1 || (encoding == MOD3_ENTRIES && compression != 1)) {
+            throw new IllegalArgumentException("Invalid compression for pattern database encoding!");
+        }
+
+        PatternRanker ranker = database.getRanker();
+        long size = database.size();
+        long entryCount = (size + compression - 1) / compression;
+
+        CompressedPatternDatabase compressed = new CompressedPatternDatabase(encoding, compression,
+                database.getBoardSize(), database.getBlankCount(), ranker, entryCount,
+                allocate(dataBytes(encoding, entryCount)));
+
+        int[] positions = new int[ranker.getPatternSize()];
+
+        for (long entry = 0; entry < entryCount; entry++) {
+
+            long first = entry * compression;
+            long last = Math.min(first + compression, size);
+
+            // The smallest value in the run, ignoring
+            // placements that can never be reached
+            int value = Integer.MAX_VALUE;
+
+            for (long rank = first; rank < last; rank++) {
+
+                int distance = database.distance(rank);
+
+                if (distance == PatternDatabase.UNREACHABLE) {
+                    continue;
+                }
+
+                if (encoding == NIBBLE_ENTRIES) {
+                    ranker.unrank(rank, positions);
+                    distance = Math.min(15, (distance - compressed.manhattanDistance(positions)) / 2);
+                } else if (encoding == MOD3_ENTRIES) {
+                    distance %= 3;
+                }
+
+                value = Math.min(value, distance);
+
+            }
+
+            if (value == Integer.MAX_VALUE) {
+                value = encoding == BYTE_ENTRIES ? PatternDatabase.UNREACHABLE : 0;
+            }
+
+            compressed.store(entry, value);
+
+        }
+
+        return compressed;
+
+    }
+
+    /**
+     * Maps a pattern database file written by {@link #write(Path)}
+     * into memory. The entries are read straight from the page
+     * cache and never copied onto the Java heap.
+     *
+     * @param path The file to load.
+     * @return The pattern database.
+     * @throws IOException If the file could not be read or is not valid.
+     */
+    public static CompressedPatternDatabase load(Path path) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+            // The header is at most this long, since the
+            // pattern cannot have more than 63 tiles
+            ByteBuffer header = ByteBuffer.allocate(9 + 63 + 12);
+            channel.read(header, 0);
+            header.flip();
+
+            if (header.remaining() < 9 || header.getInt() != MAGIC) {
+                throw new IOException("Unrecognized file format!");
+            }
+
+            byte version = header.get();
+
+            if (version != VERSION) {
+                throw new IOException("Unsupported format version " + version + "!");
+            }
+
+            byte encoding = header.get();
+            int boardSize = header.get() & 0xFF;
+            int blankCount = header.get() & 0xFF;
+            int[] patternTiles = new int[header.get() & 0xFF];
+
+            if (header.remaining() < patternTiles.length + 12) {
+                throw new IOException("Corrupt header!");
+            }
+
+            for (int i = 0; i < patternTiles.length; i++) {
+                patternTiles[i] = header.get() & 0xFF;
+            }
+
+            int compression = header.getInt();
+            long entryCount = header.getLong();
+
+            PatternRanker ranker;
+
+            try {
+                ranker = new PatternRanker(boardSize, patternTiles);
+            } catch (IllegalArgumentException ex) {
+                throw new IOException("Corrupt header!", ex);
+            }
+
+            if (encoding < BYTE_ENTRIES || encoding > MOD3_ENTRIES || compression < 1 ||
+                    entryCount != (ranker.size() + compression - 1) / compression) {
+                throw new IOException("Corrupt header!");
+            }
+
+            // Map the entries in segments
+            long dataStart = header.position();
+            long dataBytes = dataBytes(encoding, entryCount);
+
+            if (channel.size() < dataStart + dataBytes) {
+                throw new IOException("Pattern database file is truncated!");
+            }
+
+            ByteBuffer[] segments = new ByteBuffer[(int) ((dataBytes + (1L << SEGMENT_BITS) - 1) >>> SEGMENT_BITS)];
+
+            for (int i = 0; i < segments.length; i++) {
+                long offset = (long) i << SEGMENT_BITS;
+                long length = Math.min(1L << SEGMENT_BITS, dataBytes - offset);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, dataStart + offset, length);
+            }
+
+            // The mapping stays valid after the channel is closed
+            return new CompressedPatternDatabase(encoding, compression, boardSize, blankCount, ranker,
+                    entryCount, segments);
+
+        }
+
+    }
+
+    /**
+     * Writes the database to a file, which can be
+     * mapped back into memory with {@link #load(Path)}.
+     *
+     * @param path The file to write, which is replaced if it exists.
+     * @throws IOException If the file could not be written.
+     */
+    public void write(Path path) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            int[] patternTiles = this.ranker.getPatternTiles();
+            ByteBuffer header = ByteBuffer.allocate(9 + patternTiles.length + 12);
+
+            header.putInt(MAGIC);
+            header.put(VERSION);
+            header.put(this.encoding);
+            header.put((byte) this.boardSize);
+            header.put((byte) this.blankCount);
+            header.put((byte) patternTiles.length);
+
+            for (int tile : patternTiles) {
+                header.put((byte) tile);
+            }
+
+            header.putInt(this.compression);
+            header.putLong(this.entryCount);
+            header.flip();
+
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+
+            for (ByteBuffer segment : this.segments) {
+
+                ByteBuffer data = segment.duplicate();
+                data.clear();
+
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Looks up the distance of the pattern tiles on a board. For
+     * {@link #MOD3_ENTRIES}, this walks from the placement down
+     * to the goal, so {@link #distance(int[], int)} should be used
+     * during a search wherever the parent's distance is known.
+     *
+     * @param cells The values of a board, by cell.
+     * @return A lower bound on the distance of the pattern tiles,
+     * which is exact unless the database is min-compressed or
+     * a nibble entry was capped.
+     */
+    public int distance(int[] cells) {
+
+        int[] positions = new int[this.ranker.getPatternSize()];
+        this.ranker.positionsOf(cells, positions);
+
+        if (this.encoding == MOD3_ENTRIES) {
+            return walkToGoal(positions);
+        }
+
+        return decode(this.ranker.rank(positions), positions);
+
+    }
+
+    /**
+     * Looks up the distance of the pattern tiles on a board
+     * one move away from a board whose distance is known.
+     *
+     * @param cells          The values of a board, by cell.
+     * @param parentDistance The distance in this database of
+     *                       a board one move away from it.
+     * @return A lower bound on the distance of the pattern tiles.
+     * @see #distance(int[])
+     */
+    public int distance(int[] cells, int parentDistance) {
+
+        int[] positions = new int[this.ranker.getPatternSize()];
+        this.ranker.positionsOf(cells, positions);
+        long rank = this.ranker.rank(positions);
+
+        if (this.encoding != MOD3_ENTRIES) {
+            return decode(rank, positions);
+        }
+
+        // The distance is one of parentDistance - 1, parentDistance
+        // (if the move was of a tile outside the pattern) or
+        // parentDistance + 1, which all differ modulo 3
+        int residue = load(rank);
+        int distance = parentDistance - 1;
+
+        while (Math.floorMod(distance, 3) != residue) {
+            distance++;
+        }
+
+        return distance;
+
+    }
+
+    /**
+     * @param state A state with the board size and number
+     *              of blank spaces this database was built for.
+     * @return A lower bound on the distance of the pattern tiles in the state.
+     * @see #distance(int[])
+     */
+    public int distance(State state) {
+        int[] cells = new int[this.boardSize * this.boardSize];
+        state.copyCellsInto(cells);
+        return distance(cells);
+    }
+
+    /**
+     * Looks up the distance of the pattern tiles on a board
+     * and on its symmetries, and takes the largest.
+     *
+     * @param cells The values of a board with a single blank space, by cell.
+     * @return The largest lower bound on the distance of the pattern
+     * tiles over the board and its symmetries.
+     * @throws IllegalArgumentException If the database isn't for a single blank space.
+     * @see DiagonalSymmetry#maxOverSymmetries(int[], int, java.util.function.ToIntFunction)
+     */
+    public int distanceWithSymmetries(int[] cells) throws IllegalArgumentException {
+
+        if (this.blankCount != 1) {
+            throw new IllegalArgumentException("Symmetric lookups require a single blank space!");
+        }
+
+        return DiagonalSymmetry.maxOverSymmetries(cells, this.boardSize, this::distance);
+
+    }
+
+    /**
+     * @param state A state with the board size and number
+     *              of blank spaces this database was built for.
+     * @return The largest lower bound on the distance of the pattern
+     * tiles over the board and its symmetries.
+     * @throws IllegalArgumentException If the database isn't for a single blank space.
+     * @see #distanceWithSymmetries(int[])
+     */
+    public int distanceWithSymmetries(State state) throws IllegalArgumentException {
+        int[] cells = new int[this.boardSize * this.boardSize];
+        state.copyCellsInto(cells);
+        return distanceWithSymmetries(cells);
+    }
+
+    /**
+     * @return The number of blank spaces on the board.
+     */
+    public int getBlankCount() {
+        return this.blankCount;
+    }
+
+    /**
+     * @return The length of one side of the board.
+     */
+    public int getBoardSize() {
+        return this.boardSize;
+    }
+
+    /**
+     * @return The number of bytes the entries take up.
+     */
+    public long getByteCount() {
+        return dataBytes(this.encoding, this.entryCount);
+    }
+
+    /**
+     * @return The number of consecutive ranks sharing each entry.
+     */
+    public int getCompression() {
+        return this.compression;
+    }
+
+    /**
+     * @return How the entries are stored.
+     */
+    public byte getEncoding() {
+        return this.encoding;
+    }
+
+    /**
+     * @return The ranker for placements of the pattern.
+     */
+    public PatternRanker getRanker() {
+        return this.ranker;
+    }
+
+    /**
+     * Allocates zeroed segments for the given number of bytes.
+     *
+     * @param bytes The total number of bytes.
+     * @return The segments.
+     */
+    private static ByteBuffer[] allocate(long bytes) {
+
+        ByteBuffer[] segments = new ByteBuffer[(int) ((bytes + (1L << SEGMENT_BITS) - 1) >>> SEGMENT_BITS)];
+
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = ByteBuffer.allocate((int) Math.min(1L << SEGMENT_BITS, bytes - ((long) i << SEGMENT_BITS)));
+        }
+
+        return segments;
+
+    }
+
+    /**
+     * @param encoding   How the entries are stored.
+     * @param entryCount The number of entries.
+     * @return The number of bytes the entries take up.
+     */
+    private static long dataBytes(byte encoding, long entryCount) {
+        return switch (encoding) {
+            case NIBBLE_ENTRIES -> (entryCount + 1) / 2;
+            case MOD3_ENTRIES -> (entryCount + 4) / 5;
+            default -> entryCount;
+        };
+    }
+
+    /**
+     * Turns the entry of a placement back into a distance.
+     *
+     * @param rank      The rank of the placement.
+     * @param positions The cell of every pattern tile.
+     * @return The distance, for byte and nibble entries.
+     */
+    private int decode(long rank, int[] positions) {
+
+        int value = load(rank / this.compression);
+
+        if (this.encoding == NIBBLE_ENTRIES) {
+            return manhattanDistance(positions) + (2 * value);
+        }
+
+        return value;
+
+    }
+
+    /**
+     * @param entry The index of an entry.
+     * @return The value stored in the entry.
+     */
+    private int load(long entry) {
+
+        switch (this.encoding) {
+
+            case NIBBLE_ENTRIES: {
+                int packed = byteAt(entry >>> 1);
+                return (entry & 1) == 0 ? packed & 0xF : packed >>> 4;
+            }
+
+            case MOD3_ENTRIES:
+                return (byteAt(entry / 5) / POWERS_OF_3[(int) (entry % 5)]) % 3;
+
+            default:
+                return byteAt(entry);
+
+        }
+
+    }
+
+    /**
+     * @param offset The offset of a byte in the entries.
+     * @return The unsigned value of the byte.
+     */
+    private int byteAt(long offset) {
+        return this.segments[(int) (offset >>> SEGMENT_BITS)].get((int) (offset & ((1L << SEGMENT_BITS) - 1))) & 0xFF;
+    }
+
+    /**
+     * @param positions The cell of every pattern tile.
+     * @return The sum of the Manhattan distances of the
+     * pattern tiles from their goal cells.
+     */
+    private int manhattanDistance(int[] positions) {
+
+        int cellCount = this.ranker.getCellCount();
+        int total = 0;
+
+        for (int i = 0; i < positions.length; i++) {
+            total += this.manhattanDistances[(i * cellCount) + positions[i]];
+        }
+
+        return total;
+
+    }
+
+    /**
+     * Stores a value into an entry, which must still be zero.
+     *
+     * @param entry The index of the entry.
+     * @param value The value to store.
+     */
+    private void store(long entry, int value) {
+
+        long offset;
+        int packed;
+
+        switch (this.encoding) {
+
+            case NIBBLE_ENTRIES:
+                offset = entry >>> 1;
+                packed = value << ((entry & 1) == 0 ? 0 : 4);
+                break;
+
+            case MOD3_ENTRIES:
+                offset = entry / 5;
+                packed = value * POWERS_OF_3[(int) (entry % 5)];
+                break;
+
+            default:
+                offset = entry;
+                packed = value;
+
+        }
+
+        ByteBuffer segment = this.segments[(int) (offset >>> SEGMENT_BITS)];
+        int index = (int) (offset & ((1L << SEGMENT_BITS) - 1));
+        segment.put(index, (byte) ((segment.get(index) & 0xFF) + packed));
+
+    }
+
+    /**
+     * Recovers the distance of a placement from entries stored
+     * modulo 3. The neighbours of a placement are exactly one move
+     * closer to or further from the goal, and the ones one move
+     * closer are the ones whose entry is one less modulo 3, so
+     * following them always reaches the goal in as many moves
+     * as the placement is from it.
+     *
+     * @param positions The cell of every pattern tile, which is
+     *                  left unchanged.
+     * @return The distance of the placement.
+     * @throws IllegalStateException If the walk gets stuck, which
+     *                               means the entries are corrupt.
+     */
+    private int walkToGoal(int[] positions) throws IllegalStateException {
+
+        positions = positions.clone();
+
+        long rank = this.ranker.rank(positions);
+        long occupied = 0;
+        int distance = 0;
+
+        for (int cell : positions) {
+            occupied |= 1L << cell;
+        }
+
+        while (rank != this.goalRank) {
+
+            int closer = (load(rank) + 2) % 3;
+            boolean moved = false;
+
+            // Move to any neighbour one move closer
+            for (int i = 0; i < positions.length && !moved; i++) {
+
+                int cell = positions[i];
+
+                for (int direction = 0; direction < 4 && !moved; direction++) {
+
+                    int neighbour = this.generator.neighbour(cell, direction);
+
+                    if (neighbour < 0 || (occupied & (1L << neighbour)) != 0) {
+                        continue;
+                    }
+
+                    long neighbourRank = this.ranker.rankAfterMove(rank, positions, i, neighbour);
+
+                    if (load(neighbourRank) == closer) {
+                        positions[i] = neighbour;
+                        occupied ^= (1L << cell) | (1L << neighbour);
+                        rank = neighbourRank;
+                        moved = true;
+                    }
+
+                }
+
+            }
+
+            if (!moved) {
+                throw new IllegalStateException("Corrupt pattern database!");
+            }
+
+            distance++;
+
+        }
+
+        return distance;
+
+    }
+
+}
@@ -0,0 +1,165 @@
+package me.joshuasheldon.sliding.pdb;
+
+import me.joshuasheldon.sliding.objs.DiagonalSymmetry;
+import me.joshuasheldon.sliding.objs.State;
+
+/**
+ * A pattern database, holding for every placement of a
+ * pattern's tiles the fewest moves of pattern tiles needed
+ * to bring them to their goal cells, if every other tile
+ * could be moved freely. Every move slides exactly one tile,
+ * so the distances of databases over disjoint patterns can
+ * be added together to give a heuristic that never
+ * overestimates the distance of a state from the goal.
+ *
+ * @see PatternDatabaseBuilder
+ */
+public class PatternDatabase {
+
+    /**
+     * The entry of a placement that cannot reach the goal.
+     */
+    public static final int UNREACHABLE = 0xFF;
+
+    /**
+     * The length of one side of the board.
+     */
+    private final int boardSize;
+
+    /**
+     * The number of blank spaces on the board.
+     */
+    private final int blankCount;
+
+    /**
+     * Ranks placements of the pattern.
+     */
+    private final PatternRanker ranker;
+
+    /**
+     * The distance of every placement, indexed by rank.
+     */
+    private final byte[] distances;
+
+    /**
+     * Wrap the distances produced by a {@link PatternDatabaseBuilder}.
+     *
+     * @param boardSize  The length of one side of the board.
+     * @param blankCount The number of blank spaces on the board.
+     * @param ranker     Ranks placements of the pattern.
+     * @param distances  The distance of every placement, indexed by rank.
+     */
+    PatternDatabase(int boardSize, int blankCount, PatternRanker ranker, byte[] distances) {
+        this.boardSize = boardSize;
+        this.blankCount = blankCount;
+        this.ranker = ranker;
+        this.distances = distances;
+    }
+
+    /**
+     * @param rank The rank of a placement of the pattern.
+     * @return The distance of the placement, or
+     * {@link #UNREACHABLE} if it cannot reach the goal.
+     */
+    public int distance(long rank) {
+        return this.distances[(int) rank] & 0xFF;
+    }
+
+    /**
+     * @param cells The values of a board, by cell.
+     * @return The distance of the pattern tiles on the board.
+     */
+    public int distance(int[] cells) {
+        return distance(this.ranker.rankCells(cells));
+    }
+
+    /**
+     * @param state A state with the board size and number
+     *              of blank spaces this database was built for.
+     * @return The distance of the pattern tiles in the state.
+     */
+    public int distance(State state) {
+        int[] cells = new int[this.boardSize * this.boardSize];
+        state.copyCellsInto(cells);
+        return distance(cells);
+    }
+
+    /**
+     * Looks up the distance of the pattern tiles on a board
+     * and on its symmetries, and takes the largest.
+     *
+     * @param cells The values of a board with a single blank space, by cell.
+     * @return The largest distance of the pattern tiles over the board and its symmetries.
+     * @throws IllegalArgumentException If the database isn't for a single blank space.
+     * @see DiagonalSymmetry#maxOverSymmetries(int[], int, java.util.function.ToIntFunction)
+     */
+    public int distanceWithSymmetries(int[] cells) throws IllegalArgumentException {
+
+        if (this.blankCount != 1) {
+            throw new IllegalArgumentException("Symmetric lookups require a single blank space!");
+        }
+
+        return DiagonalSymmetry.maxOverSymmetries(cells, this.boardSize, this::distance);
+
+    }
+
+    /**
+     * @param state A state with the board size and number
+     *              of blank spaces this database was built for.
+     * @return The largest distance of the pattern tiles over the board and its symmetries.
+     * @throws IllegalArgumentException If the database isn't for a single blank space.
+     * @see #distanceWithSymmetries(int[])
+     */
+    public int distanceWithSymmetries(State state) throws IllegalArgumentException {
+        int[] cells = new int[this.boardSize * this.boardSize];
+        state.copyCellsInto(cells);
+        return distanceWithSymmetries(cells);
+    }
+
+    /**
+     * @return The number of blank spaces on the board.
+     */
+    public int getBlankCount() {
+        return this.blankCount;
+    }
+
+    /**
+     * @return The length of one side of the board.
+     */
+    public int getBoardSize() {
+        return this.boardSize;
+    }
+
+    /**
+     * @return The largest distance of any placement
+     * that can reach the goal.
+     */
+    public int getMaxDistance() {
+
+        int max = 0;
+
+        for (byte distance : this.distances) {
+            if ((distance & 0xFF) != UNREACHABLE) {
+                max = Math.max(max, distance & 0xFF);
+            }
+        }
+
+        return max;
+
+    }
+
+    /**
+     * @return The ranker for placements of the pattern.
+     */
+    public PatternRanker getRanker() {
+        return this.ranker;
+    }
+
+    /**
+     * @return The number of entries in the database.
+     */
+    public long size() {
+        return this.distances.length;
+    }
+
+}
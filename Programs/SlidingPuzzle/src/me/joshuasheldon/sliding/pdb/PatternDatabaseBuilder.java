@@ -0,0 +1,278 @@
+package me.joshuasheldon.sliding.pdb;
+
+import me.joshuasheldon.sliding.objs.MoveGenerator;
+
+import java.io.Serial;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Builds a {@link PatternDatabase} with a breadth first search
+ * backwards from the goal placement of the pattern tiles.<br><br>
+ * <p>
+ * Every tile outside the pattern is treated as a blank space,
+ * the same way {@link me.joshuasheldon.sliding.objs.State}
+ * supports several blank spaces, so a pattern tile can slide
+ * into any neighbouring cell that isn't taken by another
+ * pattern tile. Since moves can be undone, searching backwards
+ * from the goal reaches every placement in as few moves as it
+ * would take that placement to reach the goal.<br><br>
+ * <p>
+ * The search never stores a frontier. Instead, the distance of
+ * every placement is kept in one byte array indexed by rank, and
+ * each layer of the search scans the array for the placements
+ * at the current depth. The array is split into chunks which are
+ * scanned in parallel, and a placement is claimed for the next
+ * layer by atomically swapping its entry from
+ * {@link PatternDatabase#UNREACHABLE}, so every placement is
+ * recorded exactly once whatever order the threads run in.
+ */
+public class PatternDatabaseBuilder {
+
+    /**
+     * Atomic access to the elements of a byte array.
+     */
+    private static final VarHandle ENTRIES = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    /**
+     * The number of ranks scanned by a single task.
+     */
+    private static final int CHUNK_SIZE = 1 << 15;
+
+    /**
+     * The largest number of entries a database can have,
+     * since the entries are stored in a single array.
+     */
+    private static final long MAX_ENTRIES = Integer.MAX_VALUE - 8;
+
+    /**
+     * The length of one side of the board.
+     */
+    private final int boardSize;
+
+    /**
+     * The number of blank spaces on the board.
+     */
+    private final int blankCount;
+
+    /**
+     * Ranks placements of the pattern.
+     */
+    private final PatternRanker ranker;
+
+    /**
+     * Finds the neighbours of cells.
+     */
+    private final MoveGenerator generator;
+
+    /**
+     * The number of threads used to expand each layer.
+     */
+    private final int parallelism;
+
+    /**
+     * Create a builder that uses every available processor.
+     *
+     * @param boardSize    The length of one side of the board.
+     * @param blankCount   The number of blank spaces on the board.
+     * @param patternTiles The values of the tiles in the pattern.
+     * @throws IllegalArgumentException If the pattern is invalid
+     *                                  or has too many placements
+     *                                  to fit in an array.
+     */
+    public PatternDatabaseBuilder(int boardSize, int blankCount, int... patternTiles)
+            throws IllegalArgumentException {
+        this(boardSize, blankCount, patternTiles, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a builder.
+     *
+     * @param boardSize    The length of one side of the board.
+     * @param blankCount   The number of blank spaces on the board.
+     * @param patternTiles The values of the tiles in the pattern.
+     * @param parallelism  The number of threads used to expand each layer.
+     * @throws IllegalArgumentException If the pattern is invalid
+     *                                  or has too many placements
+     *                                  to fit in an array.
+     */
+    public PatternDatabaseBuilder(int boardSize, int blankCount, int[] patternTiles, int parallelism)
+            throws IllegalArgumentException {
+
+        this.ranker = new PatternRanker(boardSize, patternTiles);
+
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive!");
+        }
+
+        if (blankCount < 1 || blankCount >= this.ranker.getCellCount()) {
+            throw new IllegalArgumentException("Invalid number of blank spaces passed into pattern database builder!");
+        }
+
+        for (int tile : patternTiles) {
+            if (tile > this.ranker.getCellCount() - blankCount) {
+                throw new IllegalArgumentException("Tile " + tile + " is not on a board with " + blankCount +
+                        " blank spaces!");
+            }
+        }
+
+        if (this.ranker.size() > MAX_ENTRIES) {
+            throw new IllegalArgumentException("Pattern has too many placements to fit in a pattern database!");
+        }
+
+        this.boardSize = boardSize;
+        this.blankCount = blankCount;
+        this.generator = MoveGenerator.forBoardSize(boardSize);
+        this.parallelism = parallelism;
+
+    }
+
+    /**
+     * Runs the search and builds the database.
+     *
+     * @return The pattern database.
+     * @throws IllegalStateException If a placement is more
+     *                               than 254 moves from the goal.
+     */
+    public PatternDatabase build() throws IllegalStateException {
+
+        byte[] distances = new byte[(int) this.ranker.size()];
+        Arrays.fill(distances, (byte) PatternDatabase.UNREACHABLE);
+
+        // The search starts from the goal placement
+        distances[(int) this.ranker.rank(this.ranker.goalPositions(this.blankCount))] = 0;
+
+        ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+
+        try {
+
+            // Expand one layer at a time until
+            // a layer finds nothing new
+            for (int depth = 0; ; depth++) {
+
+                if (depth + 1 == PatternDatabase.UNREACHABLE) {
+                    throw new IllegalStateException("Pattern database is too deep to be stored in bytes!");
+                }
+
+                long found = pool.invoke(new LayerTask(distances, depth, 0, distances.length));
+
+                if (found == 0) {
+                    break;
+                }
+
+            }
+
+        } finally {
+            pool.shutdown();
+        }
+
+        return new PatternDatabase(this.boardSize, this.blankCount, this.ranker, distances);
+
+    }
+
+    /**
+     * Expands every placement at the given depth in a range
+     * of ranks, claiming their unvisited neighbours for the
+     * next layer.
+     *
+     * @param distances The distance of every placement.
+     * @param depth     The depth of the layer being expanded.
+     * @param from      The first rank in the range.
+     * @param to        The rank after the last rank in the range.
+     * @return The number of placements claimed.
+     */
+    private long expand(byte[] distances, int depth, int from, int to) {
+
+        int[] positions = new int[this.ranker.getPatternSize()];
+        byte current = (byte) depth;
+        byte next = (byte) (depth + 1);
+        long found = 0;
+
+        for (int rank = from; rank < to; rank++) {
+
+            if (distances[rank] != current) {
+                continue;
+            }
+
+            this.ranker.unrank(rank, positions);
+
+            long occupied = 0;
+
+            for (int cell : positions) {
+                occupied |= 1L << cell;
+            }
+
+            // Slide each pattern tile into each free neighbour
+            for (int i = 0; i < positions.length; i++) {
+
+                int cell = positions[i];
+
+                for (int direction = 0; direction < 4; direction++) {
+
+                    int neighbour = this.generator.neighbour(cell, direction);
+
+                    if (neighbour < 0 || (occupied & (1L << neighbour)) != 0) {
+                        continue;
+                    }
+
+                    int neighbourRank = (int) this.ranker.rankAfterMove(rank, positions, i, neighbour);
+
+                    // Cheap check first, then claim it atomically
+                    if (distances[neighbourRank] == (byte) PatternDatabase.UNREACHABLE &&
+                            ENTRIES.compareAndSet(distances, neighbourRank, (byte) PatternDatabase.UNREACHABLE, next)) {
+                        found++;
+                    }
+
+                }
+
+            }
+
+        }
+
+        return found;
+
+    }
+
+    /**
+     * Splits a range of ranks in half until it is
+     * small enough to expand on a single thread.
+     */
+    private class LayerTask extends RecursiveTask<Long> {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] distances;
+        private final int depth;
+        private final int from;
+        private final int to;
+
+        LayerTask(byte[] distances, int depth, int from, int to) {
+            this.distances = distances;
+            this.depth = depth;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+
+            if (this.to - this.from <= CHUNK_SIZE) {
+                return expand(this.distances, this.depth, this.from, this.to);
+            }
+
+            int middle = (this.from + this.to) >>> 1;
+            LayerTask lower = new LayerTask(this.distances, this.depth, this.from, middle);
+            lower.fork();
+            long upper = new LayerTask(this.distances, this.depth, middle, this.to).compute();
+
+            return upper + lower.join();
+
+        }
+
+    }
+
+}
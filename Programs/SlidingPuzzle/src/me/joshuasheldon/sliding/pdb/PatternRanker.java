@@ -0,0 +1,284 @@
+package me.joshuasheldon.sliding.pdb;
+
+import java.util.Arrays;
+
+/**
+ * Numbers every placement of a pattern's tiles on the board
+ * with a dense rank from <code>0</code> to {@link #size()}
+ * <code>- 1</code>, so that a pattern database can be stored
+ * as a flat array indexed by rank.<br><br>
+ * <p>
+ * A placement is the cell of each pattern tile, in the order
+ * the tiles were given. It is ranked as a number in a mixed
+ * radix, where the digit of tile <code>i</code> is the number
+ * of free cells before its cell once the cells of tiles
+ * <code>0..i-1</code> are taken, and has a base of
+ * <code>cellCount - i</code>. Every other tile on the board,
+ * and every blank space, is ignored.
+ */
+public class PatternRanker {
+
+    /**
+     * The number of cells on the board.
+     */
+    private final int cellCount;
+
+    /**
+     * The values of the tiles in the pattern.
+     */
+    private final int[] patternTiles;
+
+    /**
+     * The index of every tile value in the pattern,
+     * or <code>-1</code> if the tile is not in it.
+     */
+    private final int[] tileIndices;
+
+    /**
+     * The place value of the digit of every pattern tile,
+     * which is the product of the bases of the digits after it.
+     */
+    private final long[] weights;
+
+    /**
+     * The number of placements of the pattern.
+     */
+    private final long size;
+
+    /**
+     * Create a ranker for the given pattern.
+     *
+     * @param boardSize    The length of one side of the board.
+     *                     Boards can have at most 64 cells.
+     * @param patternTiles The values of the tiles in the pattern.
+     * @throws IllegalArgumentException If the board is too large,
+     *                                  or the pattern is empty or
+     *                                  contains an invalid or
+     *                                  repeated tile.
+     */
+    public PatternRanker(int boardSize, int... patternTiles) throws IllegalArgumentException {
+
+        this.cellCount = boardSize * boardSize;
+
+        if (boardSize < 1 || this.cellCount > 64) {
+            throw new IllegalArgumentException("Pattern databases support boards of up to 64 cells!");
+        }
+
+        if (patternTiles.length == 0 || patternTiles.length >= this.cellCount) {
+            throw new IllegalArgumentException("Pattern must contain at least one tile and leave a cell free!");
+        }
+
+        this.patternTiles = patternTiles.clone();
+        this.tileIndices = new int[this.cellCount];
+        Arrays.fill(this.tileIndices, -1);
+
+        long size = 1;
+
+        for (int i = 0; i < patternTiles.length; i++) {
+
+            int tile = patternTiles[i];
+
+            if (tile < 1 || tile >= this.cellCount || this.tileIndices[tile] != -1) {
+                throw new IllegalArgumentException("Invalid or repeated tile " + tile + " in pattern!");
+            }
+
+            this.tileIndices[tile] = i;
+            size *= this.cellCount - i;
+
+        }
+
+        this.size = size;
+        this.weights = new long[patternTiles.length];
+
+        long weight = 1;
+
+        for (int i = patternTiles.length - 1; i >= 0; i--) {
+            this.weights[i] = weight;
+            weight *= this.cellCount - i;
+        }
+
+    }
+
+    /**
+     * @return The number of cells on the board.
+     */
+    public int getCellCount() {
+        return this.cellCount;
+    }
+
+    /**
+     * @return The number of tiles in the pattern.
+     */
+    public int getPatternSize() {
+        return this.patternTiles.length;
+    }
+
+    /**
+     * @return A copy of the values of the tiles in the pattern.
+     */
+    public int[] getPatternTiles() {
+        return this.patternTiles.clone();
+    }
+
+    /**
+     * @param blankCount The number of blank spaces on the board.
+     * @return The cells the pattern tiles occupy in the goal
+     * state, where the blank spaces fill the first cells and
+     * tile <code>t</code> is in cell <code>blankCount + t - 1</code>.
+     */
+    public int[] goalPositions(int blankCount) {
+
+        int[] positions = new int[this.patternTiles.length];
+
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = blankCount + this.patternTiles[i] - 1;
+        }
+
+        return positions;
+
+    }
+
+    /**
+     * Calculates the rank of a placement after one pattern tile
+     * moves, from the rank before it moved, without re-ranking the
+     * whole placement. Only the digit of the moved tile and the
+     * digits of later tiles in cells between its old and new cell
+     * change, so a move between horizontal neighbours costs O(1).
+     *
+     * @param rank      The rank of the placement before the move.
+     * @param positions The cell of every pattern tile before the move.
+     * @param index     The index in the pattern of the tile that moves.
+     * @param to        The free cell the tile moves to.
+     * @return The rank of the placement after the move.
+     */
+    public long rankAfterMove(long rank, int[] positions, int index, int to) {
+
+        int from = positions[index];
+        int low = Math.min(from, to);
+        int high = Math.max(from, to);
+        int sign = to > from ? 1 : -1;
+
+        // Tiles before this one that it passes over
+        // are no longer (or now) free cells before it
+        long digitChange = to - from;
+
+        for (int j = 0; j < positions.length; j++) {
+
+            int cell = positions[j];
+
+            if (j == index || cell <= low || cell >= high) {
+                continue;
+            }
+
+            if (j < index) {
+                digitChange -= sign;
+            } else {
+                rank += sign * this.weights[j];
+            }
+
+        }
+
+        return rank + (digitChange * this.weights[index]);
+
+    }
+
+    /**
+     * @param positions The cell of every pattern tile.
+     * @return The rank of the placement.
+     */
+    public long rank(int[] positions) {
+
+        long rank = 0;
+        long used = 0;
+
+        for (int i = 0; i < this.patternTiles.length; i++) {
+
+            int cell = positions[i];
+            int digit = cell - Long.bitCount(used & ((1L << cell) - 1));
+
+            rank = (rank * (this.cellCount - i)) + digit;
+            used |= 1L << cell;
+
+        }
+
+        return rank;
+
+    }
+
+    /**
+     * Finds the placement of the pattern tiles on a board.
+     *
+     * @param cells     The values of the board, by cell.
+     * @param positions The array to write the cell of
+     *                  every pattern tile into.
+     */
+    public void positionsOf(int[] cells, int[] positions) {
+
+        for (int cell = 0; cell < this.cellCount; cell++) {
+
+            int index = this.tileIndices[cells[cell]];
+
+            if (index >= 0) {
+                positions[index] = cell;
+            }
+
+        }
+
+    }
+
+    /**
+     * Ranks the placement of the pattern tiles on a board.
+     *
+     * @param cells The values of the board, by cell.
+     * @return The rank of the placement of the pattern tiles.
+     */
+    public long rankCells(int[] cells) {
+        int[] positions = new int[this.patternTiles.length];
+        positionsOf(cells, positions);
+        return rank(positions);
+    }
+
+    /**
+     * @return The number of placements of the pattern,
+     * which is also one more than the largest rank.
+     */
+    public long size() {
+        return this.size;
+    }
+
+    /**
+     * Recovers a placement from its rank.
+     *
+     * @param rank      The rank of the placement.
+     * @param positions The array to write the cell of
+     *                  every pattern tile into.
+     */
+    public void unrank(long rank, int[] positions) {
+
+        // Peel the digits off, last tile first
+        for (int i = this.patternTiles.length - 1; i >= 0; i--) {
+            int base = this.cellCount - i;
+            positions[i] = (int) (rank % base);
+            rank /= base;
+        }
+
+        // Turn each digit back into the cell it counts free cells up to
+        long used = 0;
+
+        for (int i = 0; i < this.patternTiles.length; i++) {
+
+            long free = ~used;
+
+            for (int remaining = positions[i]; remaining > 0; remaining--) {
+                free &= free - 1;
+            }
+
+            int cell = Long.numberOfTrailingZeros(free);
+            positions[i] = cell;
+            used |= 1L << cell;
+
+        }
+
+    }
+
+}
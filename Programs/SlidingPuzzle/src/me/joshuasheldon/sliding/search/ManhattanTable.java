@@ -0,0 +1,114 @@
+package me.joshuasheldon.sliding.search;
+
+import me.joshuasheldon.sliding.Utilities;
+import me.joshuasheldon.sliding.objs.State;
+
+/**
+ * Precomputed Manhattan distances from every cell of a board
+ * to the goal cell of every tile. Unlike
+ * {@link State#getDistanceFromGoal()}, the distance of a
+ * state here only counts the tiles and leaves out the blank
+ * spaces. Every move slides one tile by one space, so it
+ * changes the distance by exactly one, which means the
+ * distance never overestimates the number of moves left
+ * and can be used wherever a search needs a bound on the
+ * cost of its solutions.
+ */
+public class ManhattanTable {
+
+    /**
+     * The number of cells on the board.
+     */
+    private final int cellCount;
+
+    /**
+     * The distance of every tile from its goal cell,
+     * indexed by <code>value * cellCount + cell</code>.
+     * Blank spaces have a distance of <code>0</code>
+     * from every cell.
+     */
+    private final int[] distances;
+
+    /**
+     * Build the table for the given board size and number of blank spaces.
+     *
+     * @param boardSize  The length of one side of the board.
+     * @param blankCount The number of blank spaces on the board.
+     * @throws IllegalArgumentException If the board has no blank
+     *                                  spaces, or nothing but blank spaces.
+     */
+    public ManhattanTable(int boardSize, int blankCount) throws IllegalArgumentException {
+
+        this.cellCount = boardSize * boardSize;
+
+        if (boardSize < 2 || blankCount < 1 || blankCount >= this.cellCount) {
+            throw new IllegalArgumentException("Invalid board passed into Manhattan table!");
+        }
+
+        int tileCount = this.cellCount - blankCount;
+        this.distances = new int[(tileCount + 1) * this.cellCount];
+
+        for (int value = 1; value <= tileCount; value++) {
+
+            // Tiles are placed in order after the blank spaces
+            int goalCell = blankCount + value - 1;
+
+            for (int cell = 0; cell < this.cellCount; cell++) {
+                this.distances[(value * this.cellCount) + cell] = Utilities.manhattanDistance(
+                        goalCell % boardSize, goalCell / boardSize, cell % boardSize, cell / boardSize);
+            }
+
+        }
+
+    }
+
+    /**
+     * @param state A state with the board size and number
+     *              of blank spaces the table was built for.
+     * @return A table for the board size and number
+     * of blank spaces of the given state.
+     */
+    public static ManhattanTable forState(State state) {
+        return new ManhattanTable(state.getBoardSize(), state.getBlankCount());
+    }
+
+    /**
+     * @param value The value of a tile, or a blank space.
+     * @param from  The cell the tile is slid from.
+     * @param to    The cell the tile is slid into.
+     * @return How much sliding the tile changes the
+     * distance of the state, which is <code>-1</code>,
+     * <code>0</code> for a blank space, or <code>1</code>.
+     */
+    public int delta(int value, int from, int to) {
+        int base = value * this.cellCount;
+        return this.distances[base + to] - this.distances[base + from];
+    }
+
+    /**
+     * @param value The value of a tile, or a blank space.
+     * @param cell  The cell the tile is on.
+     * @return The distance of the tile from its goal cell.
+     */
+    public int distance(int value, int cell) {
+        return this.distances[(value * this.cellCount) + cell];
+    }
+
+    /**
+     * @param state The state to measure.
+     * @return The sum of the distances of every
+     * tile of the state from its goal cell.
+     */
+    public int distance(State state) {
+
+        int total = 0;
+
+        for (int cell = 0; cell < this.cellCount; cell++) {
+            total += distance(state.getValue(cell), cell);
+        }
+
+        return total;
+
+    }
+
+}
@@ -0,0 +1,622 @@
+package me.joshuasheldon.sliding.search;
+
+import me.joshuasheldon.sliding.objs.Move;
+import me.joshuasheldon.sliding.objs.MoveGenerator;
+import me.joshuasheldon.sliding.objs.State;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Iterative deepening A* (IDA*) spread across several threads.
+ * IDA* runs a depth first search that gives up on any state
+ * whose <code>f</code> exceeds a threshold, raising the
+ * threshold to the smallest <code>f</code> that exceeded it
+ * until the goal is found. It only ever holds the current
+ * path in memory, and since {@link ManhattanTable} never
+ * overestimates, the first solution it finds is the shortest.
+ * <br><br>
+ * <p>
+ * For each threshold, the states near the start are expanded
+ * breadth first until there are at least
+ * {@link #TARGET_SUBTREES} of them, and the depth first
+ * searches below them are handed to a {@link ForkJoinPool},
+ * whose idle threads steal halves of the remaining range from
+ * busy ones. The threads share the next threshold and the
+ * earliest subtree a solution was found in through atomics.
+ * A thread stops searching a subtree as soon as a solution is
+ * known in an earlier one, but subtrees before it are always
+ * searched to the end, so the solution returned is the first
+ * one in the order a single thread would find them in, no
+ * matter how many threads there are.
+ */
+public class ParallelIDAStar {
+
+    /**
+     * The fewest subtrees to split each iteration into.
+     */
+    public static final int TARGET_SUBTREES = 1 << 12;
+
+    /**
+     * The number of states a thread expands between checks
+     * for a solution in an earlier subtree.
+     */
+    private static final int CANCEL_CHECK_INTERVAL = 1 << 12;
+
+    /**
+     * The state to search from.
+     */
+    private final State start;
+
+    /**
+     * The number of threads to search with.
+     */
+    private final int parallelism;
+
+    /**
+     * Used to measure the distance of states from the goal.
+     */
+    private final ManhattanTable table;
+
+    /**
+     * Used to find the neighbours of cells.
+     */
+    private final MoveGenerator generator;
+
+    /**
+     * The number of states expanded over every iteration.
+     */
+    private final LongAdder expanded = new LongAdder();
+
+    /**
+     * The number of thresholds searched.
+     */
+    private int iterations = 0;
+
+    /**
+     * Create a new search from the given state, using
+     * as many threads as there are processors.
+     *
+     * @param start The state to search from.
+     */
+    public ParallelIDAStar(State start) {
+        this(start, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a new search from the given state.
+     *
+     * @param start       The state to search from.
+     * @param parallelism The number of threads to search with.
+     * @throws IllegalArgumentException If the parallelism is less than <code>1</code>.
+     */
+    public ParallelIDAStar(State start, int parallelism) throws IllegalArgumentException {
+
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Invalid parallelism passed into parallel IDA*!");
+        }
+
+        this.start = start;
+        this.parallelism = parallelism;
+        this.table = ManhattanTable.forState(start);
+        this.generator = MoveGenerator.forBoardSize(start.getBoardSize());
+
+    }
+
+    /**
+     * Searches for the shortest solution.
+     *
+     * @return The solution, or <code>null</code> if the goal
+     * cannot be reached from the starting state.
+     */
+    public Solution search() {
+
+        this.expanded.reset();
+        this.iterations = 0;
+
+        if (!isSolvable()) {
+            return null;
+        }
+
+        int cellCount = this.start.getBoardSize() * this.start.getBoardSize();
+        int[] cells = new int[cellCount];
+        int[] blanks = new int[this.start.getBlankCount()];
+
+        this.start.copyCellsInto(cells);
+        this.start.copyBlankCellsInto(blanks);
+
+        Subtree root = new Subtree(cells, blanks, new int[0], this.table.distance(this.start), -1, -1);
+        int threshold = root.h;
+
+        ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+
+        try {
+
+            while (true) {
+
+                this.iterations++;
+
+                Iteration iteration = new Iteration(threshold);
+                List<Subtree> subtrees = iteration.split(root);
+
+                // The goal may be found while splitting
+                if (iteration.splitSolution != null) {
+                    return solution(iteration.splitSolution);
+                }
+
+                if (!subtrees.isEmpty()) {
+
+                    iteration.subtrees = subtrees;
+                    iteration.solutions = new int[subtrees.size()][];
+                    pool.invoke(new SubtreeTask(iteration, 0, subtrees.size()));
+
+                    int best = iteration.bestSubtree.get();
+
+                    if (best < subtrees.size()) {
+                        return solution(iteration.solutions[best]);
+                    }
+
+                }
+
+                threshold = iteration.nextThreshold.get();
+
+            }
+
+        } finally {
+            pool.shutdown();
+        }
+
+    }
+
+    /**
+     * @return The number of states expanded over every iteration.
+     */
+    public long getExpanded() {
+        return this.expanded.sum();
+    }
+
+    /**
+     * @return The number of thresholds searched.
+     */
+    public int getIterations() {
+        return this.iterations;
+    }
+
+    /**
+     * Checks whether the goal can be reached at all, since
+     * IDA* would otherwise raise its threshold forever. With
+     * more than one blank space, two blank spaces can always
+     * be used to swap any two tiles, so every state can be
+     * solved. With a single blank space, every move changes
+     * both the parity of the arrangement of the board and the
+     * parity of the blank space's distance from its goal cell,
+     * so the two must match.
+     *
+     * @return Whether the goal can be reached from the start.
+     */
+    private boolean isSolvable() {
+
+        if (this.start.getBlankCount() > 1) {
+            return true;
+        }
+
+        int boardSize = this.start.getBoardSize();
+        int[] cells = new int[boardSize * boardSize];
+        this.start.copyCellsInto(cells);
+
+        // Count the swaps needed to sort the board, in which
+        // every value belongs on the cell matching it
+        int swaps = 0;
+        int blank = -1;
+
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (cells[cell] == State.BLANK_SPACE_VALUE) {
+                blank = cell;
+            }
+        }
+
+        int blankDistance = (blank / boardSize) + (blank % boardSize);
+
+        for (int cell = 0; cell < cells.length; cell++) {
+            while (cells[cell] != cell) {
+                int value = cells[cell];
+                cells[cell] = cells[value];
+                cells[value] = value;
+                swaps++;
+            }
+        }
+
+        return (swaps % 2) == (blankDistance % 2);
+
+    }
+
+    /**
+     * @param path The encoded moves of a solution.
+     * @return The solution.
+     */
+    private Solution solution(int[] path) {
+
+        ArrayList<Move> moves = new ArrayList<>(path.length);
+
+        for (int code : path) {
+            moves.add(Move.decode(code, this.start.getBoardSize()));
+        }
+
+        return new Solution(this.start, moves, 1);
+
+    }
+
+    /**
+     * A board at the top of a subtree, along with the
+     * path that leads to it from the start.
+     *
+     * @param cells    The values of the board, by cell.
+     * @param blanks   The cells of the blank spaces.
+     * @param path     The encoded moves leading to the board.
+     * @param h        The distance of the board from the goal.
+     * @param lastFrom The cell the last tile moved from, or <code>-1</code>.
+     * @param lastTo   The cell the last tile moved to, or <code>-1</code>.
+     */
+    private record Subtree(int[] cells, int[] blanks, int[] path, int h, int lastFrom, int lastTo) {
+    }
+
+    /**
+     * The search below a single threshold.
+     */
+    private final class Iteration {
+
+        /**
+         * The largest <code>f</code> searched below.
+         */
+        final int threshold;
+
+        /**
+         * The smallest <code>f</code> above the threshold,
+         * which is the threshold of the next iteration.
+         */
+        final AtomicInteger nextThreshold = new AtomicInteger(Integer.MAX_VALUE);
+
+        /**
+         * The earliest subtree a solution has been found in,
+         * or the number of subtrees if none has.
+         */
+        final AtomicInteger bestSubtree = new AtomicInteger(Integer.MAX_VALUE);
+
+        /**
+         * The subtrees to search, in the order
+         * a single thread would search them in.
+         */
+        List<Subtree> subtrees;
+
+        /**
+         * The path of the solution found in each subtree, if any.
+         */
+        int[][] solutions;
+
+        /**
+         * A solution found while splitting, if any.
+         */
+        int[] splitSolution = null;
+
+        Iteration(int threshold) {
+            this.threshold = threshold;
+        }
+
+        /**
+         * Expands the tree breadth first, in the same order
+         * as the depth first search would visit it, until
+         * there are enough subtrees to spread across threads.
+         *
+         * @param root The start.
+         * @return The subtrees, in order.
+         */
+        List<Subtree> split(Subtree root) {
+
+            List<Subtree> layer = new ArrayList<>();
+
+            if (root.h > this.threshold) {
+                this.nextThreshold.accumulateAndGet(root.h, Math::min);
+                return layer;
+            }
+
+            if (root.h == 0) {
+                this.splitSolution = root.path;
+                return layer;
+            }
+
+            layer.add(root);
+
+            while (!layer.isEmpty() && layer.size() < TARGET_SUBTREES) {
+
+                List<Subtree> next = new ArrayList<>();
+
+                for (Subtree subtree : layer) {
+
+                    expanded.increment();
+                    int g = subtree.path.length + 1;
+
+                    for (int i = 0; i < subtree.blanks.length; i++) {
+
+                        int blank = subtree.blanks[i];
+
+                        for (int direction = 0; direction < 4; direction++) {
+
+                            int from = generator.neighbour(blank, direction);
+
+                            if (from < 0 || subtree.cells[from] == State.BLANK_SPACE_VALUE ||
+                                    (from == subtree.lastTo && blank == subtree.lastFrom)) {
+                                continue;
+                            }
+
+                            int value = subtree.cells[from];
+                            int h = subtree.h + table.delta(value, from, blank);
+
+                            if (g + h > this.threshold) {
+                                this.nextThreshold.accumulateAndGet(g + h, Math::min);
+                                continue;
+                            }
+
+                            int[] cells = subtree.cells.clone();
+                            cells[blank] = value;
+                            cells[from] = State.BLANK_SPACE_VALUE;
+
+                            int[] blanks = subtree.blanks.clone();
+                            blanks[i] = from;
+
+                            int[] path = Arrays.copyOf(subtree.path, g);
+                            path[g - 1] = MoveGenerator.encode(from, direction ^ 1);
+
+                            // The first goal in this order is the one
+                            // the depth first search would find first
+                            if (h == 0) {
+                                this.splitSolution = path;
+                                return List.of();
+                            }
+
+                            next.add(new Subtree(cells, blanks, path, h, from, blank));
+
+                        }
+
+                    }
+
+                }
+
+                layer = next;
+
+            }
+
+            return layer;
+
+        }
+
+    }
+
+    /**
+     * Searches a range of subtrees, splitting the range in
+     * half for idle threads to steal until it is a single
+     * subtree.
+     */
+    private final class SubtreeTask extends RecursiveAction {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The iteration being searched.
+         */
+        private final Iteration iteration;
+
+        /**
+         * The first subtree in the range.
+         */
+        private final int from;
+
+        /**
+         * The subtree after the last in the range.
+         */
+        private final int to;
+
+        SubtreeTask(Iteration iteration, int from, int to) {
+            this.iteration = iteration;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (this.to - this.from > 1) {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(new SubtreeTask(this.iteration, this.from, middle),
+                        new SubtreeTask(this.iteration, middle, this.to));
+                return;
+            }
+
+            // Subtrees after one with a solution don't matter
+            if (this.iteration.bestSubtree.get() < this.from) {
+                return;
+            }
+
+            new DepthFirstSearch(this.iteration, this.from).run();
+
+        }
+
+    }
+
+    /**
+     * The depth first search below a single subtree, on a
+     * board that is changed in place and changed back.
+     */
+    private final class DepthFirstSearch {
+
+        /**
+         * The iteration being searched.
+         */
+        private final Iteration iteration;
+
+        /**
+         * The index of the subtree.
+         */
+        private final int index;
+
+        /**
+         * The values of the board, by cell.
+         */
+        private final int[] cells;
+
+        /**
+         * The cells of the blank spaces.
+         */
+        private final int[] blanks;
+
+        /**
+         * The encoded moves leading to the current board,
+         * starting with the path to the subtree.
+         */
+        private int[] path;
+
+        /**
+         * The length of the path when a solution was found.
+         */
+        private int pathLength = 0;
+
+        /**
+         * The smallest <code>f</code> above the
+         * threshold seen in this subtree.
+         */
+        private int nextThreshold = Integer.MAX_VALUE;
+
+        /**
+         * The states expanded since the last check
+         * for a solution in an earlier subtree.
+         */
+        private int sinceCheck = 0;
+
+        /**
+         * The states expanded in this subtree.
+         */
+        private long expandedHere = 0;
+
+        /**
+         * Whether a solution was found in an earlier
+         * subtree, so this one can be abandoned.
+         */
+        private boolean cancelled = false;
+
+        DepthFirstSearch(Iteration iteration, int index) {
+
+            Subtree subtree = iteration.subtrees.get(index);
+
+            this.iteration = iteration;
+            this.index = index;
+            this.cells = subtree.cells.clone();
+            this.blanks = subtree.blanks.clone();
+            this.path = Arrays.copyOf(subtree.path, Math.max(16, subtree.path.length * 2));
+
+        }
+
+        /**
+         * Searches the subtree, recording any solution
+         * and the smallest <code>f</code> above the threshold.
+         */
+        void run() {
+
+            Subtree subtree = this.iteration.subtrees.get(this.index);
+
+            if (search(subtree.path.length, subtree.h, subtree.lastFrom, subtree.lastTo)) {
+                this.iteration.solutions[this.index] = Arrays.copyOf(this.path, this.pathLength);
+                this.iteration.bestSubtree.accumulateAndGet(this.index, Math::min);
+            }
+
+            expanded.add(this.expandedHere);
+
+            if (this.nextThreshold != Integer.MAX_VALUE) {
+                this.iteration.nextThreshold.accumulateAndGet(this.nextThreshold, Math::min);
+            }
+
+        }
+
+        /**
+         * @param g        The number of moves made to reach the current board.
+         * @param h        The distance of the current board from the goal.
+         * @param lastFrom The cell the last tile moved from, or <code>-1</code>.
+         * @param lastTo   The cell the last tile moved to, or <code>-1</code>.
+         * @return <code>true</code> if the goal was found below the current board.
+         */
+        private boolean search(int g, int h, int lastFrom, int lastTo) {
+
+            int f = g + h;
+
+            if (f > this.iteration.threshold) {
+                this.nextThreshold = Math.min(this.nextThreshold, f);
+                return false;
+            }
+
+            if (h == 0) {
+                this.pathLength = g;
+                return true;
+            }
+
+            if (++this.sinceCheck == CANCEL_CHECK_INTERVAL) {
+                this.sinceCheck = 0;
+                this.cancelled = this.iteration.bestSubtree.get() < this.index;
+            }
+
+            if (this.cancelled) {
+                return false;
+            }
+
+            this.expandedHere++;
+
+            if (g == this.path.length) {
+                this.path = Arrays.copyOf(this.path, this.path.length * 2);
+            }
+
+            for (int i = 0; i < this.blanks.length; i++) {
+
+                int blank = this.blanks[i];
+
+                for (int direction = 0; direction < 4; direction++) {
+
+                    int from = generator.neighbour(blank, direction);
+
+                    // Don't undo the move that led here
+                    if (from < 0 || this.cells[from] == State.BLANK_SPACE_VALUE ||
+                            (from == lastTo && blank == lastFrom)) {
+                        continue;
+                    }
+
+                    int value = this.cells[from];
+
+                    this.cells[blank] = value;
+                    this.cells[from] = State.BLANK_SPACE_VALUE;
+                    this.blanks[i] = from;
+                    this.path[g] = MoveGenerator.encode(from, direction ^ 1);
+
+                    boolean found = search(g + 1, h + table.delta(value, from, blank), from, blank);
+
+                    this.blanks[i] = blank;
+                    this.cells[from] = value;
+                    this.cells[blank] = State.BLANK_SPACE_VALUE;
+
+                    if (found) {
+                        return true;
+                    }
+
+                }
+
+            }
+
+            return false;
+
+        }
+
+    }
+
+}
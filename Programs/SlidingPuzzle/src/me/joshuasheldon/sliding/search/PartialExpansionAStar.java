@@ -0,0 +1,296 @@
+package me.joshuasheldon.sliding.search;
+
+import me.joshuasheldon.sliding.objs.Move;
+import me.joshuasheldon.sliding.objs.MoveGenerator;
+import me.joshuasheldon.sliding.objs.State;
+import me.joshuasheldon.sliding.open_list.BucketOpenList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+
+/**
+ * A* search with enhanced partial expansion (EPEA*), which
+ * finds the shortest solution while keeping far fewer states
+ * in the open list than plain A*.<br><br>
+ * <p>
+ * Plain A* adds every child of an expanded state to the open
+ * list, even though most of them have a larger <code>f</code>
+ * than the solution and are never expanded. Here, each state
+ * in the open list has a stored value, starting at its own
+ * <code>f</code>. When it is expanded, only the children whose
+ * <code>f</code> equals the stored value are created, and the
+ * state goes back into the open list with the next larger
+ * <code>f</code> among its other children, if there is one.
+ * Children are never created just to find their <code>f</code>:
+ * every move slides one tile, so how much it changes the
+ * heuristic is read from a {@link ManhattanTable} by the
+ * tile's value and the cells it slides between.
+ */
+public class PartialExpansionAStar {
+
+    /**
+     * The state to search from.
+     */
+    private final State start;
+
+    /**
+     * Used to measure the distance of states from the goal,
+     * and how much each move changes it.
+     */
+    private final ManhattanTable table;
+
+    /**
+     * Used to find the cells tiles are slid into.
+     */
+    private final MoveGenerator generator;
+
+    /**
+     * Every state created so far, mapped to its node.
+     */
+    private final HashMap<State, Node> nodes = new HashMap<>();
+
+    /**
+     * Every node created so far, indexed by id, so
+     * that the open list can hold ids instead of nodes.
+     */
+    private final ArrayList<Node> nodesById = new ArrayList<>();
+
+    /**
+     * The ids of the nodes waiting to be expanded, ordered by
+     * their stored value. A node is pushed again whenever its
+     * stored value changes, and only the entry matching its
+     * current stored value is expanded.
+     */
+    private final BucketOpenList open = new BucketOpenList();
+
+    /**
+     * The number of times a node was expanded, counting
+     * every partial expansion of the same node.
+     */
+    private long expansions = 0;
+
+    /**
+     * The most entries the open list has held at once.
+     */
+    private int largestOpenList = 0;
+
+    /**
+     * Create a new search from the given state.
+     *
+     * @param start The state to search from.
+     */
+    public PartialExpansionAStar(State start) {
+        this.start = start;
+        this.table = ManhattanTable.forState(start);
+        this.generator = MoveGenerator.forBoardSize(start.getBoardSize());
+    }
+
+    /**
+     * Searches for the shortest solution.
+     *
+     * @return The solution, or <code>null</code> if the goal
+     * cannot be reached from the starting state.
+     */
+    public Solution search() {
+
+        this.nodes.clear();
+        this.nodesById.clear();
+        this.open.clear();
+        this.expansions = 0;
+        this.largestOpenList = 0;
+
+        Node root = new Node(this.start, 0, this.table.distance(this.start));
+        root.g = 0;
+        root.stored = root.h;
+        this.nodes.put(this.start, root);
+        this.nodesById.add(root);
+        push(root);
+
+        int[] moveBuffer = new int[MoveGenerator.maxMoves(this.start.getBlankCount())];
+
+        while (!this.open.isEmpty()) {
+
+            int f = this.open.peekF();
+            Node current = this.nodesById.get(this.open.pop());
+
+            // Skip entries left behind by a change to the stored value
+            if (current.closed || current.stored != f) {
+                continue;
+            }
+
+            // The goal's stored value is its g, and nothing left
+            // in the open list can lead anywhere sooner
+            if (current.h == 0) {
+                return solution(current);
+            }
+
+            this.expansions++;
+
+            int baseF = current.g + current.h;
+            int nextStored = Integer.MAX_VALUE;
+            int moveCount = current.state.validMoves(moveBuffer);
+
+            for (int i = 0; i < moveCount; i++) {
+
+                int code = moveBuffer[i];
+                int cell = MoveGenerator.cellOf(code);
+                int target = this.generator.target(code);
+
+                // Predict the child's f from the tile that moves
+                int childH = current.h + this.table.delta(current.state.getValue(cell), cell, target);
+                int childF = baseF + 1 + (childH - current.h);
+
+                if (childF > current.stored) {
+                    nextStored = Math.min(nextStored, childF);
+                    continue;
+                }
+
+                // Children with a smaller f were created by an
+                // earlier expansion of this node
+                if (childF < current.stored) {
+                    continue;
+                }
+
+                State next = current.state.apply(code);
+                Node node = this.nodes.get(next);
+                int g = current.g + 1;
+
+                if (node == null) {
+                    node = new Node(next, this.nodesById.size(), childH);
+                    this.nodes.put(next, node);
+                    this.nodesById.add(node);
+                } else if (g >= node.g) {
+                    continue;
+                }
+
+                node.g = g;
+                node.parent = current;
+                node.move = code;
+                node.stored = g + node.h;
+                node.closed = false;
+                push(node);
+
+            }
+
+            // Put the node back for its remaining children, if any
+            if (nextStored == Integer.MAX_VALUE) {
+                current.closed = true;
+            } else {
+                current.stored = nextStored;
+                push(current);
+            }
+
+        }
+
+        return null;
+
+    }
+
+    /**
+     * @return The number of times a node was expanded,
+     * counting every partial expansion of the same node.
+     */
+    public long getExpansions() {
+        return this.expansions;
+    }
+
+    /**
+     * @return The most entries the open list has held at once.
+     */
+    public int getLargestOpenList() {
+        return this.largestOpenList;
+    }
+
+    /**
+     * @return The number of distinct states created.
+     */
+    public int getReached() {
+        return this.nodesById.size();
+    }
+
+    /**
+     * Adds a node to the open list with its stored value.
+     *
+     * @param node The node to add.
+     */
+    private void push(Node node) {
+        this.open.push(node.id, node.stored, node.h);
+        this.largestOpenList = Math.max(this.largestOpenList, this.open.size());
+    }
+
+    /**
+     * @param goal The node of the goal state.
+     * @return The path to the goal node.
+     */
+    private Solution solution(Node goal) {
+
+        ArrayList<Move> moves = new ArrayList<>(goal.g);
+
+        for (Node node = goal; node.parent != null; node = node.parent) {
+            moves.add(Move.decode(node.move, this.start.getBoardSize()));
+        }
+
+        Collections.reverse(moves);
+
+        return new Solution(this.start, moves, 1);
+
+    }
+
+    /**
+     * A state created by the search, along with the
+     * best known way of reaching it.
+     */
+    private static final class Node {
+
+        /**
+         * The state.
+         */
+        final State state;
+
+        /**
+         * The index of the node in {@link #nodesById}.
+         */
+        final int id;
+
+        /**
+         * The distance of the state from the goal.
+         */
+        final int h;
+
+        /**
+         * The fewest moves known to reach the state.
+         */
+        int g = Integer.MAX_VALUE;
+
+        /**
+         * The <code>f</code> of the children the next
+         * expansion of the node will create.
+         */
+        int stored;
+
+        /**
+         * The node the state is reached from in the fewest
+         * known moves, or <code>null</code> for the start.
+         */
+        Node parent = null;
+
+        /**
+         * The encoded move made from the parent.
+         */
+        int move = -1;
+
+        /**
+         * Whether every child of the node has been created.
+         */
+        boolean closed = false;
+
+        Node(State state, int id, int h) {
+            this.state = state;
+            this.id = id;
+            this.h = h;
+        }
+
+    }
+
+}
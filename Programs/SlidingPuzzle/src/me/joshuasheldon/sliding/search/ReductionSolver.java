@@ -0,0 +1,821 @@
+package me.joshuasheldon.sliding.search;
+
+import me.joshuasheldon.sliding.objs.Direction;
+import me.joshuasheldon.sliding.objs.Move;
+import me.joshuasheldon.sliding.objs.MoveGenerator;
+import me.joshuasheldon.sliding.objs.State;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Solves boards of any size in polynomial time and memory by
+ * placing tiles one line at a time, the way a person would,
+ * rather than by searching. The solutions are far from the
+ * shortest, but take <code>O(boardSize ^ 3)</code> moves, and
+ * a 50x50 board, far too large to search, is solved in well
+ * under a second.
+ * <br><br>
+ * <p>
+ * The goal state has its blank spaces in the top left corner,
+ * so the board is reduced from the other side: the bottom row
+ * and the right column of the unsolved region are placed in
+ * turn, shrinking the region by one row or column each time,
+ * until only the top left 3x3 region is left. That region
+ * holds every goal blank space, and is finished with an exact
+ * breadth first search over its at most 181440 arrangements.
+ * <br><br>
+ * <p>
+ * Each tile is walked along a shortest path to its goal cell,
+ * by bringing the nearest blank space in front of it without
+ * disturbing placed tiles. The last two tiles of a line can't
+ * be placed that way, since placing the first would block the
+ * second, so the last tile is parked in the second to last
+ * cell and the second to last tile next to it, and then both
+ * are slid in together.
+ */
+public class ReductionSolver {
+
+    /**
+     * The most blank spaces the solver supports. The goal
+     * blank spaces have to fit in the top row of the
+     * 3x3 region that is finished by search.
+     */
+    public static final int MAX_BLANK_COUNT = 3;
+
+    /**
+     * The length of one side of the region that is
+     * finished with an exact search.
+     */
+    private static final int FINAL_REGION_SIZE = 3;
+
+    /**
+     * The length of one side of the board.
+     */
+    private final int boardSize;
+
+    /**
+     * The number of blank spaces on the board.
+     */
+    private final int blankCount;
+
+    /**
+     * Used to find the neighbours of cells.
+     */
+    private final MoveGenerator generator;
+
+    /**
+     * The values of the board as it is being solved,
+     * read from left to right, top to bottom.
+     */
+    private final int[] cells;
+
+    /**
+     * Whether each cell holds a placed tile
+     * that must not be moved again.
+     */
+    private final boolean[] locked;
+
+    /**
+     * The encoded moves made so far.
+     */
+    private final ArrayList<Integer> moves = new ArrayList<>();
+
+    /**
+     * Reused by breadth first searches over cells
+     * to record the cell each cell was reached from.
+     */
+    private final int[] previous;
+
+    /**
+     * Reused by breadth first searches over cells
+     * to hold the cells waiting to be visited.
+     */
+    private final int[] queue;
+
+    /**
+     * Create a solver for the given state.
+     *
+     * @param state The state to solve.
+     */
+    private ReductionSolver(State state) {
+
+        this.boardSize = state.getBoardSize();
+        this.blankCount = state.getBlankCount();
+        this.generator = MoveGenerator.forBoardSize(this.boardSize);
+
+        int cellCount = this.boardSize * this.boardSize;
+        this.cells = new int[cellCount];
+        this.locked = new boolean[cellCount];
+        this.previous = new int[cellCount];
+        this.queue = new int[cellCount];
+
+        state.copyCellsInto(this.cells);
+
+    }
+
+    /**
+     * Finds a solution for the given state.
+     *
+     * @param state The state to solve, with at most
+     *              {@link #MAX_BLANK_COUNT} blank spaces.
+     * @return The moves that lead from the state to its goal
+     * state, in order, or <code>null</code> if the goal
+     * state cannot be reached from the state.
+     * @throws IllegalArgumentException If the state has too many blank spaces.
+     */
+    public static List<Move> solve(State state) throws IllegalArgumentException {
+
+        if (state.getBlankCount() > MAX_BLANK_COUNT) {
+            throw new IllegalArgumentException("Reduction solver supports at most " + MAX_BLANK_COUNT +
+                    " blank spaces!");
+        }
+
+        ReductionSolver solver = new ReductionSolver(state);
+
+        if (!solver.solve()) {
+            return null;
+        }
+
+        ArrayList<Move> moves = new ArrayList<>(solver.moves.size());
+
+        for (int code : solver.moves) {
+            moves.add(Move.decode(code, state.getBoardSize()));
+        }
+
+        return moves;
+
+    }
+
+    /**
+     * Reduces the board down to the final region,
+     * then finishes the final region.
+     *
+     * @return <code>true</code> if the board was solved,
+     * <code>false</code> if it cannot be solved.
+     */
+    private boolean solve() {
+
+        int rows = this.boardSize;
+        int cols = this.boardSize;
+
+        while (rows > FINAL_REGION_SIZE || cols > FINAL_REGION_SIZE) {
+
+            if (rows >= cols) {
+
+                // Place the bottom row, left to right
+                int[] line = new int[cols];
+
+                for (int col = 0; col < cols; col++) {
+                    line[col] = ((rows - 1) * this.boardSize) + col;
+                }
+
+                placeLine(line, -this.boardSize);
+                rows--;
+
+            } else {
+
+                // Place the right column, top to bottom
+                int[] line = new int[rows];
+
+                for (int row = 0; row < rows; row++) {
+                    line[row] = (row * this.boardSize) + cols - 1;
+                }
+
+                placeLine(line, -1);
+                cols--;
+
+            }
+
+        }
+
+        return finish();
+
+    }
+
+    /**
+     * Places the tiles of a line of the unsolved region, then
+     * locks them. Every cell of the line has the rest of the
+     * unsolved region on the same side of it.
+     *
+     * @param line   The cells of the line, in the order to place
+     *               them in. The last cell must be at the end
+     *               of the line that is closed off.
+     * @param inward The offset from a cell of the line
+     *               to its neighbour in the unsolved region.
+     */
+    private void placeLine(int[] line, int inward) {
+
+        for (int i = 0; i < line.length - 2; i++) {
+            moveTile(goalValue(line[i]), line[i]);
+            this.locked[line[i]] = true;
+        }
+
+        int a = line[line.length - 2];
+        int b = line[line.length - 1];
+
+        // Nothing to do if they happen to be in place
+        if (this.cells[a] == goalValue(a) && this.cells[b] == goalValue(b)) {
+            this.locked[a] = true;
+            this.locked[b] = true;
+            return;
+        }
+
+        // Bring both tiles into the corner at the end of the line,
+        // keeping the second to last tile out of the way of the last
+        int along = b - a;
+        int parking = b - along + (2 * inward);
+
+        moveTile(goalValue(a), parking);
+        this.locked[parking] = true;
+
+        moveTile(goalValue(b), a);
+        this.locked[a] = true;
+
+        routeBlank(b + inward, -1);
+
+        this.locked[parking] = false;
+        this.locked[a] = false;
+
+        // Then place them together by searching the corner
+        int[] corner = new int[9];
+        int size = 0;
+
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+
+                int cell = b - (i * along) + (j * inward);
+
+                if (!this.locked[cell]) {
+                    corner[size++] = cell;
+                }
+
+            }
+        }
+
+        placePair(Arrays.copyOf(corner, size), a, b);
+
+        this.locked[a] = true;
+        this.locked[b] = true;
+
+    }
+
+    /**
+     * Places two tiles at once by searching over the positions
+     * of both tiles and a blank space within a small region.
+     * Both tiles and a blank space must already be in the region.
+     *
+     * @param region The cells of the region.
+     * @param a      The cell to place the first tile on.
+     * @param b      The cell to place the second tile on.
+     * @throws IllegalStateException If the tiles cannot be placed.
+     */
+    private void placePair(int[] region, int a, int b) throws IllegalStateException {
+
+        int size = region.length;
+        int first = -1;
+        int second = -1;
+        int blank = -1;
+
+        for (int i = 0; i < size; i++) {
+
+            int value = this.cells[region[i]];
+
+            if (value == goalValue(a)) {
+                first = i;
+            } else if (value == goalValue(b)) {
+                second = i;
+            } else if (value == State.BLANK_SPACE_VALUE) {
+                blank = i;
+            }
+
+        }
+
+        // States are (first * size + second) * size + blank
+        int[] parents = new int[size * size * size];
+        Arrays.fill(parents, -1);
+
+        int start = (((first * size) + second) * size) + blank;
+        int[] frontier = new int[parents.length];
+        frontier[0] = start;
+        parents[start] = start;
+
+        int head = 0;
+        int tail = 1;
+        int found = -1;
+
+        while (head < tail && found < 0) {
+
+            int current = frontier[head++];
+            int free = current % size;
+            int firstAt = current / (size * size);
+            int secondAt = (current / size) % size;
+
+            if (region[firstAt] == a && region[secondAt] == b) {
+                found = current;
+                break;
+            }
+
+            for (int next = 0; next < size; next++) {
+
+                if (!isAdjacent(region[free], region[next])) {
+                    continue;
+                }
+
+                // Moving the blank space onto a tile swaps them
+                int newFirst = next == firstAt ? free : firstAt;
+                int newSecond = next == secondAt ? free : secondAt;
+                int state = (((newFirst * size) + newSecond) * size) + next;
+
+                if (parents[state] < 0) {
+                    parents[state] = current;
+                    frontier[tail++] = state;
+                }
+
+            }
+
+        }
+
+        if (found < 0) {
+            throw new IllegalStateException("Could not place the end of a line!");
+        }
+
+        // Replay the path of the blank space
+        ArrayList<Integer> blanks = new ArrayList<>();
+
+        for (int state = found; state != start; state = parents[state]) {
+            blanks.add(region[state % size]);
+        }
+
+        Collections.reverse(blanks);
+
+        int free = region[blank];
+
+        for (int next : blanks) {
+            slide(next, free);
+            free = next;
+        }
+
+    }
+
+    /**
+     * Moves a tile to a cell along a shortest path, without
+     * moving any locked tiles.
+     *
+     * @param value  The value of the tile.
+     * @param target The cell to move it to.
+     */
+    private void moveTile(int value, int target) {
+
+        int position = indexOf(value);
+
+        if (position == target) {
+            return;
+        }
+
+        // Find the path of the tile, walking back from the target
+        int count = search(target, -1, position);
+        int[] path = new int[count];
+
+        for (int i = 0, cell = position; i < count; i++) {
+            cell = this.previous[cell];
+            path[i] = cell;
+        }
+
+        for (int next : path) {
+
+            // The tile may be walled in with no blank space
+            // on the right side of it, in which case the
+            // tile and a blank space are moved together
+            if (!routeBlank(next, position)) {
+                moveTileWithBlank(position, target);
+                return;
+            }
+
+            slide(position, next);
+            position = next;
+
+        }
+
+    }
+
+    /**
+     * Moves a tile to a cell by searching over the positions
+     * of the tile and a single blank space together, for when
+     * there is no room to move the blank space around it.
+     *
+     * @param position The cell of the tile.
+     * @param target   The cell to move it to.
+     * @throws IllegalStateException If the tile cannot be moved to the cell.
+     */
+    private void moveTileWithBlank(int position, int target) throws IllegalStateException {
+
+        int cellCount = this.cells.length;
+        int blank = nearestBlank(position);
+
+        // States are tile * cellCount + blank
+        HashMap<Long, Long> parents = new HashMap<>();
+        ArrayDeque<Long> frontier = new ArrayDeque<>();
+
+        long start = ((long) position * cellCount) + blank;
+        parents.put(start, -1L);
+        frontier.add(start);
+
+        long found = -1;
+
+        while (!frontier.isEmpty() && found < 0) {
+
+            long current = frontier.poll();
+            int tile = (int) (current / cellCount);
+            int free = (int) (current % cellCount);
+
+            for (int direction = 0; direction < 4; direction++) {
+
+                int neighbour = this.generator.neighbour(free, direction);
+
+                if (neighbour < 0 || this.locked[neighbour]) {
+                    continue;
+                }
+
+                // Moving the blank space onto the tile swaps them
+                int newTile = neighbour == tile ? free : tile;
+                long next = ((long) newTile * cellCount) + neighbour;
+
+                if (parents.putIfAbsent(next, current) == null) {
+
+                    if (newTile == target) {
+                        found = next;
+                        break;
+                    }
+
+                    frontier.add(next);
+
+                }
+
+            }
+
+        }
+
+        if (found < 0) {
+            throw new IllegalStateException("Could not move tile into place!");
+        }
+
+        // Replay the path of the blank space
+        ArrayList<Integer> blanks = new ArrayList<>();
+
+        for (long state = found; state != start; state = parents.get(state)) {
+            blanks.add((int) (state % cellCount));
+        }
+
+        Collections.reverse(blanks);
+
+        int free = blank;
+
+        for (int next : blanks) {
+            slide(next, free);
+            free = next;
+        }
+
+    }
+
+    /**
+     * Brings a blank space to a cell along a shortest path,
+     * without moving any locked tiles or the given tile.
+     *
+     * @param target  The cell to bring a blank space to.
+     * @param avoided A cell whose tile must not be moved,
+     *                or <code>-1</code> if there is none.
+     * @return <code>true</code> if a blank space was brought
+     * to the cell, <code>false</code> if no blank space can
+     * reach the cell.
+     */
+    private boolean routeBlank(int target, int avoided) {
+
+        if (this.cells[target] == State.BLANK_SPACE_VALUE) {
+            return true;
+        }
+
+        int count = search(target, avoided, -1);
+
+        if (count < 0) {
+            return false;
+        }
+
+        // Walk the blank space from where it was found to
+        // the target, sliding each tile along the way into it
+        int blank = this.queue[count];
+
+        while (blank != target) {
+            int next = this.previous[blank];
+            slide(next, blank);
+            blank = next;
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Breadth first search over the unlocked cells, outwards
+     * from a cell, until a given cell or a blank space is found.
+     * Afterwards, following {@link #previous} from the cell
+     * found leads back to the starting cell.
+     *
+     * @param from    The cell to search from.
+     * @param avoided A cell to treat as locked, or <code>-1</code>.
+     * @param to      The cell to search for, or <code>-1</code>
+     *                to search for the nearest blank space.
+     * @return When searching for a cell, the distance to it.
+     * When searching for a blank space, its index in
+     * {@link #queue}. <code>-1</code> if nothing was found.
+     */
+    private int search(int from, int avoided, int to) {
+
+        Arrays.fill(this.previous, -2);
+        this.previous[from] = -1;
+        this.queue[0] = from;
+
+        int head = 0;
+        int tail = 1;
+
+        while (head < tail) {
+
+            int cell = this.queue[head];
+
+            if (to < 0 ? head > 0 && this.cells[cell] == State.BLANK_SPACE_VALUE : cell == to) {
+
+                if (to < 0) {
+                    return head;
+                }
+
+                int distance = 0;
+
+                for (int step = cell; step != from; step = this.previous[step]) {
+                    distance++;
+                }
+
+                return distance;
+
+            }
+
+            head++;
+
+            for (int direction = 0; direction < 4; direction++) {
+
+                int neighbour = this.generator.neighbour(cell, direction);
+
+                if (neighbour >= 0 && !this.locked[neighbour] && neighbour != avoided &&
+                        this.previous[neighbour] == -2) {
+                    this.previous[neighbour] = cell;
+                    this.queue[tail++] = neighbour;
+                }
+
+            }
+
+        }
+
+        return -1;
+
+    }
+
+    /**
+     * Finishes the unlocked region with an exact breadth first
+     * search over its arrangements.
+     *
+     * @return <code>true</code> if the region was solved,
+     * <code>false</code> if it cannot be solved.
+     */
+    private boolean finish() {
+
+        // The unlocked cells, in ascending order
+        int[] region = new int[FINAL_REGION_SIZE * FINAL_REGION_SIZE];
+        int size = 0;
+
+        for (int cell = 0; cell < this.cells.length; cell++) {
+            if (!this.locked[cell]) {
+                region[size++] = cell;
+            }
+        }
+
+        region = Arrays.copyOf(region, size);
+
+        long start = packRegion(region, this.cells);
+        int[] goal = new int[this.cells.length];
+
+        for (int cell : region) {
+            goal[cell] = goalValue(cell);
+        }
+
+        long end = packRegion(region, goal);
+
+        // Arrangements are packed 4 bits per cell, so that the
+        // tile that moved can be found from the difference
+        HashMap<Long, Long> parents = new HashMap<>();
+        ArrayDeque<Long> frontier = new ArrayDeque<>();
+        parents.put(start, -1L);
+        frontier.add(start);
+
+        while (!frontier.isEmpty() && !parents.containsKey(end)) {
+
+            long current = frontier.poll();
+
+            for (int i = 0; i < size; i++) {
+
+                if (nibble(current, i) != 0) {
+                    continue;
+                }
+
+                for (int j = 0; j < size; j++) {
+
+                    if (nibble(current, j) == 0 || !isAdjacent(region[i], region[j])) {
+                        continue;
+                    }
+
+                    long next = current + (nibble(current, j) << (4 * i)) - (nibble(current, j) << (4 * j));
+
+                    if (parents.putIfAbsent(next, current) == null) {
+                        frontier.add(next);
+                    }
+
+                }
+
+            }
+
+        }
+
+        if (!parents.containsKey(end)) {
+            return false;
+        }
+
+        ArrayList<Long> path = new ArrayList<>();
+
+        for (long arrangement = end; arrangement != start; arrangement = parents.get(arrangement)) {
+            path.add(arrangement);
+        }
+
+        Collections.reverse(path);
+
+        long current = start;
+
+        for (long next : path) {
+
+            int from = -1;
+            int to = -1;
+
+            for (int i = 0; i < size; i++) {
+                if (nibble(current, i) != 0 && nibble(next, i) == 0) {
+                    from = region[i];
+                } else if (nibble(current, i) == 0 && nibble(next, i) != 0) {
+                    to = region[i];
+                }
+            }
+
+            slide(from, to);
+            current = next;
+
+        }
+
+        return true;
+
+    }
+
+    /**
+     * @param cell A cell of the board.
+     * @return The value of the cell in the goal state.
+     */
+    private int goalValue(int cell) {
+        return cell < this.blankCount ? State.BLANK_SPACE_VALUE : cell - this.blankCount + 1;
+    }
+
+    /**
+     * @param value The value of a tile.
+     * @return The cell the tile is on.
+     */
+    private int indexOf(int value) {
+
+        for (int cell = 0; cell < this.cells.length; cell++) {
+            if (this.cells[cell] == value) {
+                return cell;
+            }
+        }
+
+        throw new IllegalStateException("Tile " + value + " is missing from the board!");
+
+    }
+
+    /**
+     * @param a A cell of the board.
+     * @param b A cell of the board.
+     * @return Whether the two cells are next to each other.
+     */
+    private boolean isAdjacent(int a, int b) {
+
+        for (int direction = 0; direction < 4; direction++) {
+            if (this.generator.neighbour(a, direction) == b) {
+                return true;
+            }
+        }
+
+        return false;
+
+    }
+
+    /**
+     * @param cell A cell of the board.
+     * @return The nearest blank space reachable from
+     * the cell without moving a locked tile.
+     */
+    private int nearestBlank(int cell) {
+
+        int index = search(cell, -1, -1);
+
+        if (index < 0) {
+            throw new IllegalStateException("No blank space can reach the tile!");
+        }
+
+        return this.queue[index];
+
+    }
+
+    /**
+     * Slides whatever is on a cell into a neighbouring blank
+     * space. If both cells are blank spaces, nothing needs to
+     * be done, since blank spaces are interchangeable.
+     *
+     * @param from The cell to slide from.
+     * @param to   The neighbouring blank space to slide into.
+     */
+    private void slide(int from, int to) {
+
+        if (this.cells[from] == State.BLANK_SPACE_VALUE) {
+            return;
+        }
+
+        Direction direction;
+
+        if (to == from - this.boardSize) {
+            direction = Direction.UP;
+        } else if (to == from + this.boardSize) {
+            direction = Direction.DOWN;
+        } else if (to == from - 1) {
+            direction = Direction.LEFT;
+        } else {
+            direction = Direction.RIGHT;
+        }
+
+        this.moves.add(MoveGenerator.encode(from, direction.code()));
+        this.cells[to] = this.cells[from];
+        this.cells[from] = State.BLANK_SPACE_VALUE;
+
+    }
+
+    /**
+     * @param arrangement A packed arrangement of the final region.
+     * @param index       The index of a cell in the region.
+     * @return The packed value of the cell.
+     */
+    private static long nibble(long arrangement, int index) {
+        return (arrangement >>> (4 * index)) & 0xF;
+    }
+
+    /**
+     * Packs the values of the final region into a single
+     * <code>long</code>, with each value replaced by its
+     * rank among the goal values of the region, so that
+     * it fits in 4 bits.
+     *
+     * @param region The cells of the region, in ascending order.
+     * @param values The values of the board.
+     * @return The packed arrangement.
+     */
+    private long packRegion(int[] region, int[] values) {
+
+        // The goal values of the region, in ascending order
+        int[] goalValues = new int[region.length];
+
+        for (int i = 0; i < region.length; i++) {
+            goalValues[i] = goalValue(region[i]);
+        }
+
+        Arrays.sort(goalValues);
+
+        long packed = 0;
+
+        for (int i = 0; i < region.length; i++) {
+
+            int value = values[region[i]];
+            long rank = value == State.BLANK_SPACE_VALUE ? 0 : Arrays.binarySearch(goalValues, value);
+
+            packed |= rank << (4 * i);
+
+        }
+
+        return packed;
+
+    }
+
+}
@@ -0,0 +1,41 @@
+package me.joshuasheldon.sliding.search;
+
+import me.joshuasheldon.sliding.objs.Move;
+import me.joshuasheldon.sliding.objs.State;
+
+import java.util.List;
+
+/**
+ * A path from a state to its goal state, found by a search.
+ *
+ * @param start The state the path starts from.
+ * @param moves The moves of the path, in order.
+ * @param bound How many times longer than the shortest
+ *              possible path this path can be at most.
+ *              <code>1</code> means the path is optimal.
+ */
+public record Solution(State start, List<Move> moves, double bound) {
+
+    public Solution {
+
+        // Make sure objects are valid
+        if (start == null || moves == null) {
+            throw new IllegalArgumentException("Null start or moves passed into Solution constructor!");
+        }
+
+        if (bound < 1) {
+            throw new IllegalArgumentException("Invalid bound passed into Solution constructor!");
+        }
+
+        moves = List.copyOf(moves);
+
+    }
+
+    /**
+     * @return The number of moves in the path.
+     */
+    public int cost() {
+        return this.moves.size();
+    }
+
+}
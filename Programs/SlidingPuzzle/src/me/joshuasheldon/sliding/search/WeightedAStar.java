@@ -0,0 +1,501 @@
+package me.joshuasheldon.sliding.search;
+
+import me.joshuasheldon.sliding.objs.Move;
+import me.joshuasheldon.sliding.objs.MoveGenerator;
+import me.joshuasheldon.sliding.objs.State;
+import me.joshuasheldon.sliding.open_list.HeapOpenList;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.function.Consumer;
+
+/**
+ * Weighted A* search, which orders states by
+ * <code>g + weight * h</code>, where <code>g</code> is the
+ * number of moves made to reach a state and <code>h</code> is
+ * its distance from the goal as measured by a
+ * {@link ManhattanTable}. Since that distance never
+ * overestimates, the solutions found are at most
+ * <code>weight</code> times longer than the shortest
+ * solution, and larger weights find them faster by
+ * trusting the heuristic more.<br><br>
+ * <p>
+ * The search can also run as an anytime search (ARA*), which
+ * finds a first solution with a large weight, then keeps
+ * lowering the weight and improving the solution until the
+ * solution is proven optimal or a deadline passes. Each
+ * round reuses the states reached in the rounds before it.
+ * States whose <code>g</code> improves after they were already
+ * expanded in the current round are set aside rather than
+ * expanded again, and only rejoin the open list when the
+ * weight is next lowered, which keeps every round about as
+ * cheap as a single weighted search.
+ */
+public class WeightedAStar {
+
+    /**
+     * The number of expansions between checks of the deadline.
+     */
+    private static final int DEADLINE_CHECK_INTERVAL = 1 << 10;
+
+    /**
+     * The state to search from.
+     */
+    private final State start;
+
+    /**
+     * Used to measure the distance of states from the goal.
+     */
+    private final ManhattanTable table;
+
+    /**
+     * Used to find the cells tiles are slid into.
+     */
+    private final MoveGenerator generator;
+
+    /**
+     * Every state reached so far, mapped to its node.
+     */
+    private final HashMap<State, Node> nodes = new HashMap<>();
+
+    /**
+     * Every node reached so far, indexed by id, so
+     * that the open list can hold ids instead of nodes.
+     */
+    private final ArrayList<Node> nodesById = new ArrayList<>();
+
+    /**
+     * Nodes whose <code>g</code> improved after they were
+     * expanded in the current round.
+     */
+    private final ArrayList<Node> inconsistent = new ArrayList<>();
+
+    /**
+     * The ids of the nodes waiting to be expanded, ordered by
+     * <code>g + weight * h</code>. Improving the <code>g</code>
+     * of a node pushes it again, so a node can appear more than
+     * once, and only its first appearance is expanded.
+     */
+    private HeapOpenList open = new HeapOpenList();
+
+    /**
+     * The weight of the current round.
+     */
+    private double weight;
+
+    /**
+     * The current round, used to tell which nodes
+     * were expanded in this round.
+     */
+    private int round = 0;
+
+    /**
+     * The node of the goal state, or <code>null</code>
+     * if it hasn't been reached yet.
+     */
+    private Node goal = null;
+
+    /**
+     * The number of states expanded over every round.
+     */
+    private long expanded = 0;
+
+    /**
+     * Create a new search from the given state.
+     *
+     * @param start The state to search from.
+     */
+    public WeightedAStar(State start) {
+        this.start = start;
+        this.table = ManhattanTable.forState(start);
+        this.generator = MoveGenerator.forBoardSize(start.getBoardSize());
+    }
+
+    /**
+     * Searches for a solution with the given weight.
+     *
+     * @param weight How many times longer than the shortest
+     *               solution the solution may be, at least
+     *               <code>1</code>.
+     * @return The solution, or <code>null</code> if the goal
+     * cannot be reached from the starting state.
+     * @throws IllegalArgumentException If the weight is less than <code>1</code>.
+     */
+    public Solution search(double weight) throws IllegalArgumentException {
+
+        if (!(weight >= 1)) {
+            throw new IllegalArgumentException("Invalid weight passed into weighted A*!");
+        }
+
+        reset(weight);
+        improve(Long.MAX_VALUE);
+
+        return this.goal == null ? null : solution();
+
+    }
+
+    /**
+     * Searches for a solution with the given weight, then
+     * keeps lowering the weight and searching for a better
+     * solution until the solution is proven optimal or the
+     * time limit is reached. The time limit is checked between
+     * expansions, so the search may run slightly over it.
+     *
+     * @param initialWeight The weight to find the first solution with,
+     *                      at least <code>1</code>.
+     * @param weightStep    How much to lower the weight by after each
+     *                      round, more than <code>0</code>.
+     * @param timeLimit     How long to keep searching for.
+     * @param onSolution    Called with every solution found, each of
+     *                      which is shorter than the one before it.
+     * @return The best solution found, or <code>null</code> if none was
+     * found in time or the goal cannot be reached from the starting state.
+     * @throws IllegalArgumentException If the weight or weight step is invalid.
+     */
+    public Solution searchAnytime(double initialWeight, double weightStep, Duration timeLimit,
+                                  Consumer<Solution> onSolution) throws IllegalArgumentException {
+
+        if (!(initialWeight >= 1) || !(weightStep > 0)) {
+            throw new IllegalArgumentException("Invalid weights passed into weighted A*!");
+        }
+
+        long deadline = System.nanoTime() + timeLimit.toNanos();
+
+        reset(initialWeight);
+
+        Solution best = null;
+
+        while (true) {
+
+            improve(deadline);
+
+            // Either out of time before the first solution,
+            // or searched everything without reaching the goal
+            if (this.goal == null) {
+                return null;
+            }
+
+            // Publish the solution if this round improved it
+            if (best == null || this.goal.g < best.cost()) {
+                best = solution();
+                onSolution.accept(best);
+            } else if (bound() < best.bound()) {
+                best = new Solution(this.start, best.moves(), bound());
+            }
+
+            if (best.bound() <= 1 || System.nanoTime() - deadline >= 0) {
+                return best;
+            }
+
+            // Start the next round with a lower weight
+            this.weight = Math.max(1, Math.min(this.weight - weightStep, best.bound()));
+            this.round++;
+            reorder();
+
+        }
+
+    }
+
+    /**
+     * @return The number of states expanded so far,
+     * over every round.
+     */
+    public long getExpanded() {
+        return this.expanded;
+    }
+
+    /**
+     * @return The number of distinct states reached so far.
+     */
+    public int getReached() {
+        return this.nodesById.size();
+    }
+
+    /**
+     * Calculates how many times longer than the shortest
+     * solution the current solution can be at most. Every
+     * state that hasn't been expanded yet has a lower bound of
+     * <code>g + h</code> on the solutions through it, so the
+     * shortest solution is at least the smallest of those.
+     *
+     * @return The bound, which is at most the current weight.
+     */
+    private double bound() {
+
+        if (this.goal.g == 0) {
+            return 1;
+        }
+
+        double lowest = this.goal.g;
+
+        for (int id = 0; id < this.nodesById.size(); id++) {
+
+            Node node = this.nodesById.get(id);
+
+            if (node.open || node.inconsistent) {
+                lowest = Math.min(lowest, node.g + node.h);
+            }
+
+        }
+
+        return Math.max(1, Math.min(this.weight, this.goal.g / lowest));
+
+    }
+
+    /**
+     * Expands nodes in order until the goal has been reached
+     * and no node on the open list could lead to a solution
+     * shorter than the current one with the current weight.
+     *
+     * @param deadline The {@link System#nanoTime()} to stop at.
+     * @return <code>true</code> if the round finished,
+     * <code>false</code> if it ran out of time.
+     */
+    private boolean improve(long deadline) {
+
+        int[] moveBuffer = new int[MoveGenerator.maxMoves(this.start.getBlankCount())];
+        int sinceCheck = 0;
+
+        while (!this.open.isEmpty() && (this.goal == null || this.goal.g > this.open.peekF())) {
+
+            Node current = this.nodesById.get(this.open.pop());
+
+            // Skip nodes already expanded through a better entry
+            if (!current.open) {
+                continue;
+            }
+
+            current.open = false;
+            current.closedIn = this.round;
+            this.expanded++;
+
+            if (++sinceCheck == DEADLINE_CHECK_INTERVAL) {
+
+                sinceCheck = 0;
+
+                if (System.nanoTime() - deadline >= 0) {
+                    // Leave the node to be expanded later
+                    push(current);
+                    return false;
+                }
+
+            }
+
+            int moveCount = current.state.validMoves(moveBuffer);
+
+            for (int i = 0; i < moveCount; i++) {
+
+                int code = moveBuffer[i];
+
+                // Don't undo the move that led here
+                if (current.parent != null && code == reverse(current.move)) {
+                    continue;
+                }
+
+                State next = current.state.apply(code);
+                Node node = this.nodes.get(next);
+                int g = current.g + 1;
+
+                if (node == null) {
+
+                    int cell = MoveGenerator.cellOf(code);
+                    int h = current.h + this.table.delta(current.state.getValue(cell), cell, this.generator.target(code));
+
+                    node = new Node(next, this.nodesById.size(), h);
+                    this.nodes.put(next, node);
+                    this.nodesById.add(node);
+
+                    if (h == 0) {
+                        this.goal = node;
+                    }
+
+                } else if (g >= node.g) {
+                    continue;
+                }
+
+                node.g = g;
+                node.parent = current;
+                node.move = code;
+
+                if (node.closedIn != this.round) {
+                    push(node);
+                } else if (!node.inconsistent) {
+                    node.inconsistent = true;
+                    this.inconsistent.add(node);
+                }
+
+            }
+
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Adds a node to the open list with the current weight.
+     *
+     * @param node The node to add.
+     */
+    private void push(Node node) {
+        node.open = true;
+        this.open.push(node.id, node.g + (this.weight * node.h), node.h);
+    }
+
+    /**
+     * Rebuilds the open list with the current weight, adding
+     * the nodes that were set aside in the last round.
+     */
+    private void reorder() {
+
+        HeapOpenList previous = this.open;
+        this.open = new HeapOpenList();
+
+        BitSet added = new BitSet(this.nodesById.size());
+
+        while (!previous.isEmpty()) {
+
+            int id = previous.pop();
+            Node node = this.nodesById.get(id);
+
+            if (node.open && !added.get(id)) {
+                added.set(id);
+                push(node);
+            }
+
+        }
+
+        for (Node node : this.inconsistent) {
+
+            node.inconsistent = false;
+
+            if (!added.get(node.id)) {
+                added.set(node.id);
+                push(node);
+            }
+
+        }
+
+        this.inconsistent.clear();
+
+    }
+
+    /**
+     * Forgets every state reached so far and starts
+     * again from the starting state.
+     *
+     * @param weight The weight of the first round.
+     */
+    private void reset(double weight) {
+
+        this.nodes.clear();
+        this.nodesById.clear();
+        this.inconsistent.clear();
+        this.open.clear();
+        this.weight = weight;
+        this.round = 0;
+        this.goal = null;
+        this.expanded = 0;
+
+        Node root = new Node(this.start, 0, this.table.distance(this.start));
+        root.g = 0;
+        this.nodes.put(this.start, root);
+        this.nodesById.add(root);
+
+        if (root.h == 0) {
+            this.goal = root;
+        }
+
+        push(root);
+
+    }
+
+    /**
+     * @param code An encoded move.
+     * @return The encoded move that slides the tile back.
+     */
+    private int reverse(int code) {
+        return MoveGenerator.encode(this.generator.target(code), MoveGenerator.directionOf(code) ^ 1);
+    }
+
+    /**
+     * @return The path to the goal node, with the current bound.
+     */
+    private Solution solution() {
+
+        ArrayList<Move> moves = new ArrayList<>(this.goal.g);
+
+        for (Node node = this.goal; node.parent != null; node = node.parent) {
+            moves.add(Move.decode(node.move, this.start.getBoardSize()));
+        }
+
+        Collections.reverse(moves);
+
+        return new Solution(this.start, moves, bound());
+
+    }
+
+    /**
+     * A state reached by the search, along with the
+     * best known way of reaching it.
+     */
+    private static final class Node {
+
+        /**
+         * The state.
+         */
+        final State state;
+
+        /**
+         * The index of the node in {@link #nodesById}.
+         */
+        final int id;
+
+        /**
+         * The distance of the state from the goal.
+         */
+        final int h;
+
+        /**
+         * The fewest moves known to reach the state.
+         */
+        int g = Integer.MAX_VALUE;
+
+        /**
+         * The node the state is reached from in the fewest
+         * known moves, or <code>null</code> for the start.
+         */
+        Node parent = null;
+
+        /**
+         * The encoded move made from the parent.
+         */
+        int move = -1;
+
+        /**
+         * The last round the node was expanded in.
+         */
+        int closedIn = -1;
+
+        /**
+         * Whether the node is waiting to be expanded.
+         */
+        boolean open = false;
+
+        /**
+         * Whether the node has been set aside until the next round.
+         */
+        boolean inconsistent = false;
+
+        Node(State state, int id, int h) {
+            this.state = state;
+            this.id = id;
+            this.h = h;
+        }
+
+    }
+
+}
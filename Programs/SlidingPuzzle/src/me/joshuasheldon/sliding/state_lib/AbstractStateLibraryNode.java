@@ -1,5 +1,7 @@
 package me.joshuasheldon.sliding.state_lib;
 
+import java.util.function.Consumer;
+
 /**
  * Node object used for the tree structure of the StateLibrary.
  * Nodes can either be "branches" or "leaves". Branches
@@ -10,6 +12,49 @@ package me.joshuasheldon.sliding.state_lib;
  */
 public abstract class AbstractStateLibraryNode {
 
+    /*
+     * Object sizes used to estimate memory use, for a 64-bit
+     * JVM with compressed references, where objects are
+     * aligned to 8 bytes.
+     */
+
+    /**
+     * The size of a reference.
+     */
+    static final int REFERENCE_BYTES = 4;
+
+    /**
+     * The size of the header of an array, including its length.
+     */
+    static final int ARRAY_HEADER_BYTES = 16;
+
+    /**
+     * The size of a node object: a 12 byte header
+     * and the <code>children</code> and
+     * <code>parameters</code> references.
+     */
+    static final int NODE_BYTES = 24;
+
+    /**
+     * The size of an empty <code>HashMap</code>, excluding its table.
+     */
+    static final int HASH_MAP_BYTES = 48;
+
+    /**
+     * The size of each entry in a <code>HashMap</code>.
+     */
+    static final int HASH_MAP_ENTRY_BYTES = 32;
+
+    /**
+     * The size of an empty <code>TreeMap</code>.
+     */
+    static final int TREE_MAP_BYTES = 48;
+
+    /**
+     * The size of each entry in a <code>TreeMap</code>.
+     */
+    static final int TREE_MAP_ENTRY_BYTES = 40;
+
     /**
      * The children of this node. <code>null</code>
      * if this node is a leaf.
@@ -99,6 +144,14 @@ public abstract class AbstractStateLibraryNode {
         return addChild(index, true);
     }
 
+    /**
+     * @param length The length of an array of references.
+     * @return The size of the array, aligned to 8 bytes.
+     */
+    static long arrayBytes(long length) {
+        return (ARRAY_HEADER_BYTES + (REFERENCE_BYTES * length) + 7) & ~7L;
+    }
+
     /**
      * Because we don't know the parameters of the
      * constructor of the subclass, we leave the
@@ -111,6 +164,26 @@ public abstract class AbstractStateLibraryNode {
      */
     abstract AbstractStateLibraryNode createNode(boolean isLeaf, Object[] parameters);
 
+    /**
+     * Estimates the memory used by this node, not counting
+     * its children. Subclasses add the memory used by the data
+     * structure that <code>children</code> is implemented with.
+     *
+     * @return The estimated number of bytes.
+     */
+    long footprintBytes() {
+        return NODE_BYTES + arrayBytes(this.parameters.length);
+    }
+
+    /**
+     * Implementation-specific method for the subclass to
+     * pass every child of this node to the given action.
+     * Must only be called on branches.
+     *
+     * @param action The action to perform on every child.
+     */
+    abstract void forEachChild(Consumer<AbstractStateLibraryNode> action);
+
     /**
      * Gets the child of this node with the given index.
      *
@@ -0,0 +1,132 @@
+package me.joshuasheldon.sliding.state_lib;
+
+/**
+ * Picks the kind of node for each depth of the tree that
+ * uses the least memory for the number of children the
+ * branches at that depth actually have.<br><br>
+ * <p>
+ * Near the root, almost every value has been seen below
+ * every branch, so arrays, which need no per-child entries,
+ * are the most compact as well as the fastest. Deeper
+ * down, branches have few children, and on larger boards
+ * an array with a slot for every value costs more than a
+ * map with an entry for each child. The fan-out of each
+ * depth is measured as the library grows. Until enough
+ * branches exist at a depth to measure it, the fan-out is
+ * assumed to be the number of values not yet placed, which
+ * is the most children a branch at that depth can have.
+ * Ties go to arrays, then HashMaps, since they are faster.
+ */
+public class AdaptiveNodeFactory implements StateLibraryNodeFactory {
+
+    /**
+     * The number of branches a depth needs before
+     * its measured fan-out is trusted.
+     */
+    private static final int MIN_MEASURED_BRANCHES = 64;
+
+    /**
+     * The size of the board, meaning the length
+     * of each side of the board.
+     */
+    private final int boardSize;
+
+    /**
+     * The number of branches created at each depth.
+     */
+    private final long[] branchesPerDepth;
+
+    /**
+     * The number of children added to branches at each depth.
+     */
+    private final long[] childrenPerDepth;
+
+    /**
+     * The leaf shared by every branch.
+     */
+    private final AbstractStateLibraryNode leaf = new TreeMapStateLibraryNode(true);
+
+    /**
+     * Create a factory for a library of boards of the given size.
+     *
+     * @param boardSize The size of the boards that will be
+     *                  stored in the library.
+     */
+    public AdaptiveNodeFactory(int boardSize) {
+        this.boardSize = boardSize;
+        this.branchesPerDepth = new long[(boardSize * boardSize) + 1];
+        this.childrenPerDepth = new long[(boardSize * boardSize) + 1];
+    }
+
+    /**
+     * Creates a branch of whichever kind is estimated
+     * to use the least memory at the given depth.
+     *
+     * @param depth The depth of the new branch in the tree,
+     *              where the root is at depth <code>0</code>.
+     * @return The new branch.
+     */
+    @Override
+    public AbstractStateLibraryNode createBranch(int depth) {
+
+        int cellCount = this.boardSize * this.boardSize;
+        double fanOut = expectedFanOut(depth);
+        this.branchesPerDepth[depth]++;
+
+        // Bytes used by the children of each kind of
+        // branch, on top of the node itself
+        long arrayBytes = AbstractStateLibraryNode.arrayBytes(cellCount);
+
+        int hashMapCapacity = (int) Math.ceil(fanOut / 0.75);
+        long hashMapBytes = AbstractStateLibraryNode.HASH_MAP_BYTES +
+                AbstractStateLibraryNode.arrayBytes(Integer.highestOneBit(Math.max(1, hashMapCapacity - 1)) << 1) +
+                (long) Math.ceil(AbstractStateLibraryNode.HASH_MAP_ENTRY_BYTES * fanOut);
+
+        long treeMapBytes = AbstractStateLibraryNode.TREE_MAP_BYTES +
+                (long) Math.ceil(AbstractStateLibraryNode.TREE_MAP_ENTRY_BYTES * fanOut);
+
+        if (arrayBytes <= hashMapBytes && arrayBytes <= treeMapBytes) {
+            return new ArrayStateLibraryNode(false, this.boardSize);
+        }
+
+        if (hashMapBytes <= treeMapBytes) {
+            return new HashMapStateLibraryNode(false, hashMapCapacity);
+        }
+
+        return new TreeMapStateLibraryNode(false);
+
+    }
+
+    /**
+     * @return The leaf shared by every branch.
+     */
+    @Override
+    public AbstractStateLibraryNode createLeaf() {
+        return this.leaf;
+    }
+
+    /**
+     * @param depth The depth of the branch the child was added to.
+     */
+    @Override
+    public void childAdded(int depth) {
+        this.childrenPerDepth[depth]++;
+    }
+
+    /**
+     * @param depth A depth in the tree.
+     * @return The average number of children of the branches
+     * at that depth, or the most children they can have if
+     * too few branches exist there yet to measure it.
+     */
+    private double expectedFanOut(int depth) {
+
+        if (this.branchesPerDepth[depth] < MIN_MEASURED_BRANCHES) {
+            return Math.max(1, (this.boardSize * this.boardSize) - depth);
+        }
+
+        return Math.max(1, (double) this.childrenPerDepth[depth] / this.branchesPerDepth[depth]);
+
+    }
+
+}
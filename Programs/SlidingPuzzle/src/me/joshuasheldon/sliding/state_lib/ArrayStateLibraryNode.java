@@ -1,5 +1,7 @@
 package me.joshuasheldon.sliding.state_lib;
 
+import java.util.function.Consumer;
+
 /**
  * A node in the state library that uses an array
  * to store its children. This is the fastest
@@ -32,13 +34,13 @@ public class ArrayStateLibraryNode extends AbstractStateLibraryNode {
     @Override
     void addChild(int index, AbstractStateLibraryNode node) {
 
-        ArrayStateLibraryNode[] children = (ArrayStateLibraryNode[]) this.children;
+        AbstractStateLibraryNode[] children = (AbstractStateLibraryNode[]) this.children;
 
         if (index >= children.length) {
             return;
         }
 
-        children[index] = (ArrayStateLibraryNode) node;
+        children[index] = node;
 
     }
 
@@ -53,6 +55,37 @@ public class ArrayStateLibraryNode extends AbstractStateLibraryNode {
         return new ArrayStateLibraryNode(isLeaf, (int) parameters[0]);
     }
 
+    /**
+     * Estimates the memory used by this node and its
+     * array, which has a slot for every possible child.
+     *
+     * @return The estimated number of bytes.
+     */
+    @Override
+    long footprintBytes() {
+
+        long bytes = super.footprintBytes();
+
+        if (!isLeaf()) {
+            bytes += arrayBytes(((AbstractStateLibraryNode[]) this.children).length);
+        }
+
+        return bytes;
+
+    }
+
+    /**
+     * @param action The action to perform on every child.
+     */
+    @Override
+    void forEachChild(Consumer<AbstractStateLibraryNode> action) {
+        for (AbstractStateLibraryNode child : (AbstractStateLibraryNode[]) this.children) {
+            if (child != null) {
+                action.accept(child);
+            }
+        }
+    }
+
     /**
      * @param index   The index of the child to get.
      * @param discard A dummy variable to allow for
@@ -64,7 +97,7 @@ public class ArrayStateLibraryNode extends AbstractStateLibraryNode {
     @Override
     public AbstractStateLibraryNode getChild(int index, Object discard) {
 
-        ArrayStateLibraryNode[] children = (ArrayStateLibraryNode[]) this.children;
+        AbstractStateLibraryNode[] children = (AbstractStateLibraryNode[]) this.children;
 
         if (index >= children.length) {
             return null;
@@ -81,7 +114,7 @@ public class ArrayStateLibraryNode extends AbstractStateLibraryNode {
     @Override
     void instantiateChildrenVariable() {
         int boardSize = (int) this.parameters[0];
-        this.children = new ArrayStateLibraryNode[boardSize * boardSize];
+        this.children = new AbstractStateLibraryNode[boardSize * boardSize];
     }
 
 }
@@ -0,0 +1,509 @@
+package me.joshuasheldon.sliding.state_lib;
+
+import me.joshuasheldon.sliding.objs.State;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * A library of states stored as a minimal acyclic automaton
+ * rather than a tree. Like {@link StateLibrary}, states are
+ * followed value by value from the root, but the structure
+ * is compressed in two ways:
+ * <ul>
+ *     <li>Chains of nodes with a single child are collapsed
+ *     into one node with a packed label of the values along
+ *     the chain, so a node only exists where states diverge.</li>
+ *     <li>Nodes are hash-consed: a node is only ever created
+ *     once for each combination of label and children, so
+ *     identical subtrees are shared. Since every subtree is
+ *     built from shared subtrees, two nodes are the same
+ *     object exactly when they lead to the same set of
+ *     endings, which makes the automaton minimal.</li>
+ * </ul>
+ * States near the goal end in the same values, so their
+ * endings collapse into a handful of shared nodes instead
+ * of a separate chain of nodes per state.<br><br>
+ * <p>
+ * Nodes are immutable, so adding a state rebuilds the nodes
+ * along its path from the bottom up and shares everything
+ * else. The nodes it replaces are dropped from the table of
+ * unique nodes once the table has grown to twice the size of
+ * the automaton, by keeping only the nodes still reachable
+ * from the root.
+ */
+public class CompressedStateLibrary {
+
+    /**
+     * The size of the table of unique nodes below
+     * which unreachable nodes are never cleaned up.
+     */
+    private static final int MIN_COLLECTION_SIZE = 1 << 12;
+
+    /**
+     * The node marking the end of a state.
+     */
+    private static final Node END = new Node(new byte[0], new byte[0], new Node[0]);
+
+    /**
+     * The size of the board, meaning the length
+     * of each side of the board.
+     */
+    private final int boardSize;
+
+    /**
+     * The number of values followed for each state. The
+     * last value of a state is decided by the ones before
+     * it, so it is left out.
+     */
+    private final int length;
+
+    /**
+     * Reused to hold the values of the state being
+     * added or looked up.
+     */
+    private final int[] cells;
+
+    /**
+     * Every node created so far, mapped to itself,
+     * so an identical node can be found and shared.
+     */
+    private HashMap<Node, Node> unique = new HashMap<>();
+
+    /**
+     * The number of nodes reachable from the root
+     * the last time unreachable nodes were dropped.
+     */
+    private int liveNodes = 0;
+
+    /**
+     * The root of the automaton, or <code>null</code>
+     * if the library is empty.
+     */
+    private Node root = null;
+
+    /**
+     * The number of states in the library.
+     */
+    private long size = 0;
+
+    /**
+     * Create a new, empty library of states.
+     *
+     * @param boardSize The size of the boards that
+     *                  will be stored in this library,
+     *                  which can be at most 16.
+     */
+    public CompressedStateLibrary(int boardSize) {
+
+        if (boardSize < 2 || boardSize > 16) {
+            throw new IllegalArgumentException("Invalid board size passed into state library!");
+        }
+
+        this.boardSize = boardSize;
+        this.length = (boardSize * boardSize) - 1;
+        this.cells = new int[boardSize * boardSize];
+
+    }
+
+    /**
+     * Adds a new state to the library.
+     *
+     * @param state The state to add to the library.
+     * @return <code>true</code> if the state was added to
+     * the library, <code>false</code> if the state was not
+     * added to the library because its board size did not
+     * match the board size of the library.
+     */
+    public boolean addStateToLibrary(State state) {
+
+        if (state.getBoardSize() != this.boardSize) {
+            return false;
+        }
+
+        state.copyCellsInto(this.cells);
+
+        Node newRoot = insert(this.root, 0);
+
+        if (newRoot != this.root) {
+
+            this.root = newRoot;
+            this.size++;
+
+            if (this.unique.size() > Math.max(MIN_COLLECTION_SIZE, 2 * this.liveNodes)) {
+                collect();
+            }
+
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Empties the library.
+     */
+    public void clear() {
+        this.unique = new HashMap<>();
+        this.liveNodes = 0;
+        this.root = null;
+        this.size = 0;
+    }
+
+    /**
+     * Estimates the memory used by the library, assuming a
+     * 64-bit JVM with compressed references. Drops any nodes
+     * that are no longer reachable first.
+     *
+     * @return The estimated number of bytes used by the
+     * nodes, their labels, keys and children, and the
+     * table of unique nodes.
+     */
+    public long footprintBytes() {
+
+        collect();
+
+        // The table of unique nodes
+        long bytes = AbstractStateLibraryNode.HASH_MAP_BYTES +
+                AbstractStateLibraryNode.arrayBytes(Integer.highestOneBit(Math.max(1, this.liveNodes * 4 / 3)) << 1) +
+                ((long) AbstractStateLibraryNode.HASH_MAP_ENTRY_BYTES * this.liveNodes);
+
+        for (Node node : this.unique.keySet()) {
+
+            // A 12 byte header, three references and the hash
+            bytes += 32;
+            bytes += (AbstractStateLibraryNode.ARRAY_HEADER_BYTES + node.label.length + 7) & ~7L;
+            bytes += (AbstractStateLibraryNode.ARRAY_HEADER_BYTES + node.keys.length + 7) & ~7L;
+            bytes += AbstractStateLibraryNode.arrayBytes(node.children.length);
+
+        }
+
+        return bytes;
+
+    }
+
+    /**
+     * @return The number of nodes in the automaton, not
+     * counting the node marking the end of a state. Drops
+     * any nodes that are no longer reachable first.
+     */
+    public int getNodeCount() {
+        collect();
+        return this.liveNodes;
+    }
+
+    /**
+     * Checks if a state is present in the library by
+     * following its values from the root. Makes
+     * <code>(boardSize ^ 2) - 1</code> comparisons at most.
+     *
+     * @param state The state to search for in the library.
+     * @return <code>true</code> if the state is present
+     * in the library, <code>false</code> if the state is
+     * not present in the library, or if the state's board
+     * size does not match the board size of the library.
+     */
+    public boolean isStateInLibrary(State state) {
+
+        if (state.getBoardSize() != this.boardSize || this.root == null) {
+            return false;
+        }
+
+        state.copyCellsInto(this.cells);
+
+        Node node = this.root;
+        int position = 0;
+
+        while (true) {
+
+            // Match the packed label
+            for (byte value : node.label) {
+                if ((value & 0xFF) != this.cells[position++]) {
+                    return false;
+                }
+            }
+
+            if (node.keys.length == 0) {
+                return true;
+            }
+
+            int index = node.indexOf(this.cells[position++]);
+
+            if (index < 0) {
+                return false;
+            }
+
+            node = node.children[index];
+
+        }
+
+    }
+
+    /**
+     * @return The number of states in the library.
+     */
+    public long size() {
+        return this.size;
+    }
+
+    /**
+     * Drops every node that is not reachable from the root
+     * from the table of unique nodes, so that it can be
+     * garbage collected.
+     */
+    private void collect() {
+
+        HashMap<Node, Node> reachable = new HashMap<>();
+
+        if (this.root != null) {
+
+            IdentityHashMap<Node, Boolean> seen = new IdentityHashMap<>();
+            ArrayDeque<Node> stack = new ArrayDeque<>();
+            stack.push(this.root);
+            seen.put(this.root, Boolean.TRUE);
+
+            while (!stack.isEmpty()) {
+
+                Node node = stack.pop();
+                reachable.put(node, node);
+
+                for (Node child : node.children) {
+                    if (child != END && seen.put(child, Boolean.TRUE) == null) {
+                        stack.push(child);
+                    }
+                }
+
+            }
+
+        }
+
+        this.unique = reachable;
+        this.liveNodes = reachable.size();
+
+    }
+
+    /**
+     * Returns the shared node with the given contents,
+     * creating it if it doesn't exist yet.
+     *
+     * @param label    The packed values before the node branches.
+     * @param keys     The values the node branches on, ascending.
+     * @param children The child for each key.
+     * @return The shared node.
+     */
+    private Node intern(byte[] label, byte[] keys, Node[] children) {
+
+        if (label.length == 0 && keys.length == 0) {
+            return END;
+        }
+
+        Node node = new Node(label, keys, children);
+        Node existing = this.unique.putIfAbsent(node, node);
+        return existing == null ? node : existing;
+
+    }
+
+    /**
+     * @param position The first value of the current state to include.
+     * @return The node leading only to the rest of the current state.
+     */
+    private Node chain(int position) {
+
+        byte[] label = new byte[this.length - position];
+
+        for (int i = 0; i < label.length; i++) {
+            label[i] = (byte) this.cells[position + i];
+        }
+
+        return intern(label, new byte[0], new Node[0]);
+
+    }
+
+    /**
+     * Adds the rest of the current state below a node.
+     *
+     * @param node     The node, or <code>null</code> if there is none.
+     * @param position The first value of the current state
+     *                 the node is reached at.
+     * @return The node that replaces the given node, which
+     * is the same node if the state was already present.
+     */
+    private Node insert(Node node, int position) {
+
+        if (node == null) {
+            return chain(position);
+        }
+
+        // Find how much of the label the state matches
+        byte[] label = node.label;
+        int matched = 0;
+
+        while (matched < label.length && (label[matched] & 0xFF) == this.cells[position + matched]) {
+            matched++;
+        }
+
+        if (matched < label.length) {
+
+            // The state leaves the label part way through, so split
+            // it into a node branching between the old remainder of
+            // the label and the rest of the state
+            Node oldRest = intern(Arrays.copyOfRange(label, matched + 1, label.length), node.keys, node.children);
+            Node newRest = chain(position + matched + 1);
+
+            byte oldKey = label[matched];
+            byte newKey = (byte) this.cells[position + matched];
+            boolean oldFirst = (oldKey & 0xFF) < (newKey & 0xFF);
+
+            return intern(Arrays.copyOf(label, matched),
+                    oldFirst ? new byte[]{oldKey, newKey} : new byte[]{newKey, oldKey},
+                    oldFirst ? new Node[]{oldRest, newRest} : new Node[]{newRest, oldRest});
+
+        }
+
+        // The whole label matched, and every state
+        // has the same length, so it's already here
+        if (node.keys.length == 0) {
+            return node;
+        }
+
+        position += label.length;
+        int value = this.cells[position];
+        int index = node.indexOf(value);
+
+        if (index >= 0) {
+
+            Node child = insert(node.children[index], position + 1);
+
+            if (child == node.children[index]) {
+                return node;
+            }
+
+            Node[] children = node.children.clone();
+            children[index] = child;
+            return intern(label, node.keys, children);
+
+        }
+
+        // Add a new branch, keeping the keys in order
+        int insertAt = -(index + 1);
+
+        byte[] keys = new byte[node.keys.length + 1];
+        System.arraycopy(node.keys, 0, keys, 0, insertAt);
+        keys[insertAt] = (byte) value;
+        System.arraycopy(node.keys, insertAt, keys, insertAt + 1, node.keys.length - insertAt);
+
+        Node[] children = new Node[node.children.length + 1];
+        System.arraycopy(node.children, 0, children, 0, insertAt);
+        children[insertAt] = chain(position + 1);
+        System.arraycopy(node.children, insertAt, children, insertAt + 1, node.children.length - insertAt);
+
+        return intern(label, keys, children);
+
+    }
+
+    /**
+     * An immutable node of the automaton. A node either
+     * ends the state after its label, when it has no keys,
+     * or branches on at least two keys after its label.
+     * Nodes are equal when their labels and keys are equal
+     * and their children are the same objects.
+     */
+    private static final class Node {
+
+        /**
+         * The values matched before the node branches.
+         */
+        final byte[] label;
+
+        /**
+         * The values the node branches on, in ascending order.
+         */
+        final byte[] keys;
+
+        /**
+         * The child for each key.
+         */
+        final Node[] children;
+
+        /**
+         * The hash code, calculated once.
+         */
+        private final int hash;
+
+        Node(byte[] label, byte[] keys, Node[] children) {
+
+            this.label = label;
+            this.keys = keys;
+            this.children = children;
+
+            int hash = (31 * Arrays.hashCode(label)) + Arrays.hashCode(keys);
+
+            for (Node child : children) {
+                hash = (31 * hash) + System.identityHashCode(child);
+            }
+
+            this.hash = hash;
+
+        }
+
+        /**
+         * @param value A value to branch on.
+         * @return The index of the key, or <code>-(insertion point) - 1</code>
+         * if the node doesn't branch on the value.
+         */
+        int indexOf(int value) {
+
+            int low = 0;
+            int high = this.keys.length - 1;
+
+            while (low <= high) {
+
+                int middle = (low + high) >>> 1;
+                int key = this.keys[middle] & 0xFF;
+
+                if (key < value) {
+                    low = middle + 1;
+                } else if (key > value) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+
+            }
+
+            return -(low + 1);
+
+        }
+
+        @Override
+        public boolean equals(Object o) {
+
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof Node other) || this.hash != other.hash ||
+                    !Arrays.equals(this.label, other.label) || !Arrays.equals(this.keys, other.keys)) {
+                return false;
+            }
+
+            for (int i = 0; i < this.children.length; i++) {
+                if (this.children[i] != other.children[i]) {
+                    return false;
+                }
+            }
+
+            return true;
+
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+    }
+
+}
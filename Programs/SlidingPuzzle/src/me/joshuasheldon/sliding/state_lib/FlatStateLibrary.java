@@ -0,0 +1,239 @@
+package me.joshuasheldon.sliding.state_lib;
+
+import me.joshuasheldon.sliding.objs.State;
+
+import java.util.Arrays;
+
+/**
+ * The same tree of states as {@link StateLibrary} with
+ * {@link ArrayStateLibraryNode}s, but with every node laid
+ * out in a single <code>int[]</code> instead of as separate
+ * objects. A branch is a block of <code>boardSize ^ 2</code>
+ * slots starting at its base index, and the slot for the
+ * child with value <code>v</code> is at <code>base + v</code>.
+ * A slot holds the base of the child branch, <code>0</code>
+ * if there is no child (the root is the only branch at base
+ * <code>0</code>, and is nobody's child), or {@link #LEAF}
+ * if the child is a leaf.<br><br>
+ * <p>
+ * Compared to the node objects, this drops the object header,
+ * the <code>parameters</code> array and the array header of
+ * every branch, and halves the size of each slot on JVMs
+ * without compressed references. Branches created one after
+ * another are also next to each other in memory, so a lookup
+ * follows indices through one array instead of chasing
+ * references across the heap. The pool can be cleared and
+ * reused between solves without giving its memory back.
+ */
+public class FlatStateLibrary {
+
+    /**
+     * The slot value marking a child that is a leaf.
+     */
+    private static final int LEAF = -1;
+
+    /**
+     * The size of the board, meaning the length
+     * of each side of the board.
+     */
+    private final int boardSize;
+
+    /**
+     * The number of slots in a branch, one for every
+     * value a space on the board can have.
+     */
+    private final int branchSize;
+
+    /**
+     * Reused to hold the values of the state being
+     * added or looked up.
+     */
+    private final int[] cells;
+
+    /**
+     * Every branch in the tree, one after another.
+     * The root is the branch at base <code>0</code>.
+     */
+    private int[] pool;
+
+    /**
+     * The index after the last slot in use.
+     */
+    private int used;
+
+    /**
+     * The number of states in the library.
+     */
+    private long size = 0;
+
+    /**
+     * Create a new, empty library of states.
+     *
+     * @param boardSize The size of the boards that
+     *                  will be stored in this library.
+     */
+    public FlatStateLibrary(int boardSize) {
+
+        if (boardSize < 2) {
+            throw new IllegalArgumentException("Invalid board size passed into state library!");
+        }
+
+        this.boardSize = boardSize;
+        this.branchSize = boardSize * boardSize;
+        this.cells = new int[this.branchSize];
+        this.pool = new int[this.branchSize * 64];
+        this.used = this.branchSize;
+
+    }
+
+    /**
+     * Add a new state to the library by following its
+     * values from the root, creating any branches that
+     * don't exist yet along the way. The last value of a
+     * state is decided by the ones before it, so the
+     * second-to-last value is the one marked as a leaf.
+     *
+     * @param state The state to add to the library.
+     * @return <code>true</code> if the state was added to
+     * the library, <code>false</code> if the state was not
+     * added to the library because its board size did not
+     * match the board size of the library.
+     * @throws IllegalStateException If the library has grown
+     *                               too large for a single array.
+     */
+    public boolean addStateToLibrary(State state) throws IllegalStateException {
+
+        if (state.getBoardSize() != this.boardSize) {
+            return false;
+        }
+
+        state.copyCellsInto(this.cells);
+
+        int base = 0;
+        int last = this.branchSize - 2;
+
+        for (int i = 0; i < last; i++) {
+
+            int slot = base + this.cells[i];
+            int child = this.pool[slot];
+
+            // Create the branch if it doesn't exist
+            if (child == 0) {
+                child = allocateBranch();
+                this.pool[slot] = child;
+            }
+
+            base = child;
+
+        }
+
+        int slot = base + this.cells[last];
+
+        if (this.pool[slot] != LEAF) {
+            this.pool[slot] = LEAF;
+            this.size++;
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Empties the library, keeping the memory
+     * it has already allocated for reuse.
+     */
+    public void clear() {
+        Arrays.fill(this.pool, 0, this.used, 0);
+        this.used = this.branchSize;
+        this.size = 0;
+    }
+
+    /**
+     * @return The number of bytes taken up by the pool,
+     * including slots that have been allocated but not
+     * yet handed out to a branch.
+     */
+    public long footprintBytes() {
+        return 4L * this.pool.length;
+    }
+
+    /**
+     * @return The number of branches in the tree,
+     * including the root.
+     */
+    public int getNodeCount() {
+        return this.used / this.branchSize;
+    }
+
+    /**
+     * Checks if a state is present in the library by
+     * following its values from the root. Makes
+     * <code>(boardSize ^ 2) - 1</code> hops at most,
+     * each of which is a single array read.
+     *
+     * @param state The state to search for in the library.
+     * @return <code>true</code> if the state is present
+     * in the library, <code>false</code> if the state is
+     * not present in the library, or if the state's board
+     * size does not match the board size of the library.
+     */
+    public boolean isStateInLibrary(State state) {
+
+        if (state.getBoardSize() != this.boardSize) {
+            return false;
+        }
+
+        state.copyCellsInto(this.cells);
+
+        int base = 0;
+        int last = this.branchSize - 2;
+
+        for (int i = 0; i < last; i++) {
+
+            base = this.pool[base + this.cells[i]];
+
+            if (base == 0) {
+                return false;
+            }
+
+        }
+
+        return this.pool[base + this.cells[last]] == LEAF;
+
+    }
+
+    /**
+     * @return The number of states in the library.
+     */
+    public long size() {
+        return this.size;
+    }
+
+    /**
+     * Hands out the next free branch in the
+     * pool, growing the pool if it is full.
+     *
+     * @return The base of the new branch.
+     * @throws IllegalStateException If the pool cannot grow any further.
+     */
+    private int allocateBranch() throws IllegalStateException {
+
+        if (this.used + this.branchSize > this.pool.length) {
+
+            long newLength = Math.min((long) this.pool.length * 2, Integer.MAX_VALUE - 8);
+
+            if (newLength < (long) this.used + this.branchSize) {
+                throw new IllegalStateException("State library has grown too large for a single array!");
+            }
+
+            this.pool = Arrays.copyOf(this.pool, (int) newLength);
+
+        }
+
+        int base = this.used;
+        this.used += this.branchSize;
+        return base;
+
+    }
+
+}
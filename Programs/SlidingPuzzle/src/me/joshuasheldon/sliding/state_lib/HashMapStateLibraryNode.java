@@ -1,6 +1,7 @@
 package me.joshuasheldon.sliding.state_lib;
 
 import java.util.HashMap;
+import java.util.function.Consumer;
 
 /**
  * A node in the state library that uses a HashMap
@@ -34,8 +35,7 @@ public class HashMapStateLibraryNode extends AbstractStateLibraryNode {
      */
     @Override
     void addChild(int index, AbstractStateLibraryNode node) {
-        HashMap<Integer, HashMapStateLibraryNode> children = (HashMap<Integer, HashMapStateLibraryNode>) this.children;
-        children.put(index, (HashMapStateLibraryNode) node);
+        children().put(index, node);
     }
 
     /**
@@ -49,6 +49,52 @@ public class HashMapStateLibraryNode extends AbstractStateLibraryNode {
         return new HashMapStateLibraryNode(isLeaf, (int) parameters[0]);
     }
 
+    /**
+     * Estimates the memory used by this node and its HashMap,
+     * whose table starts at the initial capacity (rounded up
+     * to a power of two) and doubles whenever it is more than
+     * three quarters full.
+     *
+     * @return The estimated number of bytes.
+     */
+    @Override
+    long footprintBytes() {
+
+        long bytes = super.footprintBytes();
+
+        if (!isLeaf()) {
+
+            HashMap<Integer, AbstractStateLibraryNode> children = children();
+            int size = children.size();
+
+            if (size > 0) {
+
+                long tableLength = Integer.highestOneBit(Math.max(1, ((int) this.parameters[0]) - 1)) << 1;
+
+                while (size > tableLength * 3 / 4) {
+                    tableLength <<= 1;
+                }
+
+                bytes += arrayBytes(tableLength);
+
+            }
+
+            bytes += HASH_MAP_BYTES + ((long) HASH_MAP_ENTRY_BYTES * size);
+
+        }
+
+        return bytes;
+
+    }
+
+    /**
+     * @param action The action to perform on every child.
+     */
+    @Override
+    void forEachChild(Consumer<AbstractStateLibraryNode> action) {
+        children().values().forEach(action);
+    }
+
     /**
      * Retrieves the child node with the given index.
      *
@@ -60,8 +106,7 @@ public class HashMapStateLibraryNode extends AbstractStateLibraryNode {
      */
     @Override
     AbstractStateLibraryNode getChild(int index, Object discard) {
-        HashMap<Integer, HashMapStateLibraryNode> children = (HashMap<Integer, HashMapStateLibraryNode>) this.children;
-        return children.get(index);
+        return children().get(index);
     }
 
     /**
@@ -72,7 +117,16 @@ public class HashMapStateLibraryNode extends AbstractStateLibraryNode {
     @Override
     void instantiateChildrenVariable() {
         int initialCapacity = (int) this.parameters[0];
-        this.children = new HashMap<Integer, HashMapStateLibraryNode>(initialCapacity);
+        this.children = new HashMap<Integer, AbstractStateLibraryNode>(initialCapacity);
+    }
+
+    /**
+     * @return The children variable as the HashMap it was
+     * instantiated as by {@link #instantiateChildrenVariable()}.
+     */
+    @SuppressWarnings("unchecked")
+    private HashMap<Integer, AbstractStateLibraryNode> children() {
+        return (HashMap<Integer, AbstractStateLibraryNode>) this.children;
     }
 
 }
@@ -2,6 +2,7 @@ package me.joshuasheldon.sliding.state_lib;
 
 import me.joshuasheldon.sliding.objs.State;
 
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 
 /**
@@ -33,6 +34,13 @@ public class StateLibrary {
      */
     private final AbstractStateLibraryNode root;
 
+    /**
+     * Creates the nodes of the tree, or <code>null</code>
+     * if every node is created by its parent as the same
+     * kind of node as the root.
+     */
+    private final StateLibraryNodeFactory factory;
+
     /**
      * Create a new library of states.
      *
@@ -47,6 +55,7 @@ public class StateLibrary {
 
         this.boardSize = boardSize;
         this.root = root;
+        this.factory = null;
 
         if (root.isLeaf()) {
             throw new IllegalArgumentException("Root node of state library cannot be a leaf node!");
@@ -54,6 +63,42 @@ public class StateLibrary {
 
     }
 
+    /**
+     * Create a new library of states whose nodes are
+     * created by the given factory, so that the kind of
+     * node can be chosen separately for every depth.
+     *
+     * @param boardSize The size of the boards that
+     *                  will be stored in this library.
+     * @param factory   Creates the nodes of the library.
+     */
+    public StateLibrary(int boardSize, StateLibraryNodeFactory factory) {
+
+        this.boardSize = boardSize;
+        this.root = factory.createBranch(0);
+        this.factory = factory;
+
+        if (this.root.isLeaf()) {
+            throw new IllegalArgumentException("Root node of state library cannot be a leaf node!");
+        }
+
+    }
+
+    /**
+     * Create a new library of states that picks the kind
+     * of node for each depth of the tree based on the
+     * board size and how many children the branches at
+     * that depth turn out to have.
+     *
+     * @param boardSize The size of the boards that
+     *                  will be stored in this library.
+     * @return The new library.
+     * @see AdaptiveNodeFactory
+     */
+    public static StateLibrary createAdaptive(int boardSize) {
+        return new StateLibrary(boardSize, new AdaptiveNodeFactory(boardSize));
+    }
+
     /**
      * Add a new state to the library by iterating through
      * each of its values, and either navigating to an
@@ -97,6 +142,7 @@ public class StateLibrary {
         Iterator<Integer> iterator = state.iterator();
         AbstractStateLibraryNode nav = this.root;
         int val = -1;
+        int depth = 0;
 
         // Loop through all spaces of the state
         while (iterator.hasNext()) {
@@ -113,20 +159,120 @@ public class StateLibrary {
             AbstractStateLibraryNode newNav = nav.getChild(val);
 
             if (newNav == null) {
-                newNav = nav.addBranch(val);
+                newNav = addChild(nav, val, depth, false);
             }
 
             nav = newNav;
+            depth++;
 
         }
 
         // Add a leaf node at the end of the tree
-        nav.addLeaf(val);
+        if (this.factory == null) {
+            nav.addLeaf(val);
+        } else if (nav.getChild(val) == null) {
+            addChild(nav, val, depth, true);
+        }
 
         return true;
 
     }
 
+    /**
+     * Adds a board to the library, in the same way as
+     * {@link #addStateToLibrary(State)}, but given as its
+     * values by cell, so that no state has to be built.
+     *
+     * @param cells The values of a board of the library's
+     *              size, read from left to right, top to bottom.
+     */
+    void addCellsToLibrary(int[] cells) {
+
+        AbstractStateLibraryNode nav = this.root;
+        int last = cells.length - 1;
+
+        for (int depth = 0; depth < last; depth++) {
+
+            AbstractStateLibraryNode newNav = nav.getChild(cells[depth]);
+
+            if (newNav == null) {
+                newNav = addChild(nav, cells[depth], depth, false);
+            }
+
+            nav = newNav;
+
+        }
+
+        if (this.factory == null) {
+            nav.addLeaf(cells[last]);
+        } else if (nav.getChild(cells[last]) == null) {
+            addChild(nav, cells[last], last, true);
+        }
+
+    }
+
+    /**
+     * Adds a new child to a branch, either through
+     * the factory or by the branch itself.
+     *
+     * @param branch The branch to add the child to.
+     * @param index  The index of the new child.
+     * @param depth  The depth of the branch.
+     * @param isLeaf Whether the new child is a leaf.
+     * @return The new child node.
+     */
+    private AbstractStateLibraryNode addChild(AbstractStateLibraryNode branch, int index, int depth, boolean isLeaf) {
+
+        if (this.factory == null) {
+            return isLeaf ? branch.addLeaf(index) : branch.addBranch(index);
+        }
+
+        AbstractStateLibraryNode child = isLeaf ? this.factory.createLeaf() : this.factory.createBranch(depth + 1);
+        branch.addChild(index, child);
+        this.factory.childAdded(depth);
+        return child;
+
+    }
+
+    /**
+     * Estimates the memory used by the library, by walking
+     * the whole tree and adding up the estimated size of
+     * every node and the data structure holding its
+     * children. Leaves shared between branches are only
+     * counted once.
+     *
+     * @return The estimated number of bytes.
+     */
+    public long footprintBytes() {
+        return walk()[4];
+    }
+
+    /**
+     * @return A summary of the nodes in the library by kind,
+     * and the memory they are estimated to use.
+     */
+    public String getFootprintReport() {
+
+        long[] totals = walk();
+
+        return (totals[0] + totals[1] + totals[2] + totals[3]) + " nodes (" + totals[0] + " array, " +
+                totals[1] + " HashMap and " + totals[2] + " TreeMap branches, " + totals[3] + " leaves), " +
+                "using around " + totals[4] + " bytes";
+
+    }
+
+    /**
+     * Counts the nodes in the library, walking the whole
+     * tree. Leaves shared between branches are only
+     * counted once.
+     *
+     * @return The number of nodes in the library.
+     */
+    public long getNodeCount() {
+        long[] totals = walk();
+        return totals[0] + totals[1] + totals[2] + totals[3];
+    }
+
     /**
      * Checks if a state is present in the library
      * by navigating through the tree, and checking
@@ -184,4 +330,76 @@ public class StateLibrary {
 
     }
 
+    /**
+     * Checks if a board is present in the library, in the
+     * same way as {@link #isStateInLibrary(State)}, but given
+     * as its values by cell, so that no state has to be built.
+     *
+     * @param cells The values of a board of the library's
+     *              size, read from left to right, top to bottom.
+     * @return <code>true</code> if the board is present
+     * in the library, <code>false</code> otherwise.
+     */
+    boolean areCellsInLibrary(int[] cells) {
+
+        AbstractStateLibraryNode nav = this.root;
+
+        for (int val : cells) {
+
+            nav = nav.getChild(val);
+
+            if (nav == null) {
+                return false;
+            }
+
+        }
+
+        return nav.isLeaf();
+
+    }
+
+    /**
+     * Walks the whole tree.
+     *
+     * @return The number of array, HashMap and TreeMap
+     * branches, the number of distinct leaves, and the
+     * estimated number of bytes used, in that order.
+     */
+    private long[] walk() {
+        long[] totals = new long[5];
+        walk(this.root, new IdentityHashMap<>(), totals);
+        return totals;
+    }
+
+    /**
+     * Adds a node and everything below it to the totals.
+     *
+     * @param node   The node to walk from.
+     * @param leaves The leaves counted so far.
+     * @param totals The totals to add to, laid out as in {@link #walk()}.
+     */
+    private void walk(AbstractStateLibraryNode node, IdentityHashMap<AbstractStateLibraryNode, Boolean> leaves,
+                      long[] totals) {
+
+        if (node.isLeaf()) {
+            if (leaves.put(node, Boolean.TRUE) == null) {
+                totals[3]++;
+                totals[4] += node.footprintBytes();
+            }
+            return;
+        }
+
+        if (node instanceof ArrayStateLibraryNode) {
+            totals[0]++;
+        } else if (node instanceof HashMapStateLibraryNode) {
+            totals[1]++;
+        } else {
+            totals[2]++;
+        }
+
+        totals[4] += node.footprintBytes();
+        node.forEachChild(child -> walk(child, leaves, totals));
+
+    }
+
 }
@@ -0,0 +1,37 @@
+package me.joshuasheldon.sliding.state_lib;
+
+/**
+ * Creates the nodes of a {@link StateLibrary}, allowing
+ * a different kind of node to be used at every depth of
+ * the tree instead of the kind of node the root is.
+ */
+public interface StateLibraryNodeFactory {
+
+    /**
+     * Creates a new branch.
+     *
+     * @param depth The depth of the new branch in the tree,
+     *              where the root is at depth <code>0</code>.
+     * @return The new branch.
+     */
+    AbstractStateLibraryNode createBranch(int depth);
+
+    /**
+     * Creates a new leaf. Leaves never change, so the
+     * same leaf may be returned every time.
+     *
+     * @return The leaf.
+     */
+    AbstractStateLibraryNode createLeaf();
+
+    /**
+     * Called whenever a child is added to a branch,
+     * so the factory can learn how many children the
+     * branches at each depth end up with.
+     *
+     * @param depth The depth of the branch the child was added to.
+     */
+    default void childAdded(int depth) {
+    }
+
+}
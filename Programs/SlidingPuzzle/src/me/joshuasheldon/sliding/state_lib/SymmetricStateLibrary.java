@@ -0,0 +1,135 @@
+package me.joshuasheldon.sliding.state_lib;
+
+import me.joshuasheldon.sliding.objs.DiagonalSymmetry;
+import me.joshuasheldon.sliding.objs.State;
+
+/**
+ * A {@link StateLibrary} that treats a state and its reflection
+ * about the main diagonal as the same state, by only ever
+ * storing the representative picked by
+ * {@link DiagonalSymmetry#canonical(State)}. Both are exactly as
+ * far from the goal, so a search that has visited one has no
+ * need to visit the other, and the library holds about half
+ * as many states. States with more than one blank space have
+ * no such symmetry, and are stored as they are.<br><br>
+ * <p>
+ * Every state is copied into a buffer owned by the library and
+ * reflected into another, so adding and looking up states
+ * allocates nothing, but a library must not be used by more
+ * than one thread at a time.
+ */
+public class SymmetricStateLibrary {
+
+    /**
+     * The library holding the representatives.
+     */
+    private final StateLibrary library;
+
+    /**
+     * The length of one side of the boards in the library.
+     */
+    private final int boardSize;
+
+    /**
+     * Reused to hold the values of each state, by cell.
+     */
+    private final int[] cells;
+
+    /**
+     * Reused to hold the reflection of each state.
+     */
+    private final int[] reflected;
+
+    /**
+     * Create a new, empty library of states, with
+     * nodes picked by an {@link AdaptiveNodeFactory}.
+     *
+     * @param boardSize The size of the boards that
+     *                  will be stored in this library.
+     */
+    public SymmetricStateLibrary(int boardSize) {
+        this.library = StateLibrary.createAdaptive(boardSize);
+        this.boardSize = boardSize;
+        this.cells = new int[boardSize * boardSize];
+        this.reflected = new int[boardSize * boardSize];
+    }
+
+    /**
+     * Adds the representative of a state to the library.
+     *
+     * @param state The state to add to the library.
+     * @return <code>true</code> if the state was added to
+     * the library, <code>false</code> if the state was not
+     * added to the library because its board size did not
+     * match the board size of the library.
+     */
+    public boolean addStateToLibrary(State state) {
+
+        if (state.getBoardSize() != this.boardSize) {
+            return false;
+        }
+
+        this.library.addCellsToLibrary(canonical(state));
+        return true;
+
+    }
+
+    /**
+     * @return The estimated number of bytes used by the library.
+     * @see StateLibrary#footprintBytes()
+     */
+    public long footprintBytes() {
+        return this.library.footprintBytes();
+    }
+
+    /**
+     * @return A description of the nodes in the library.
+     * @see StateLibrary#getFootprintReport()
+     */
+    public String getFootprintReport() {
+        return this.library.getFootprintReport();
+    }
+
+    /**
+     * @return The number of nodes in the library.
+     * @see StateLibrary#getNodeCount()
+     */
+    public long getNodeCount() {
+        return this.library.getNodeCount();
+    }
+
+    /**
+     * Checks if a state, or its reflection, is present in the library.
+     *
+     * @param state The state to search for in the library.
+     * @return <code>true</code> if the state or its reflection
+     * is present in the library, <code>false</code> otherwise.
+     */
+    public boolean isStateInLibrary(State state) {
+        return state.getBoardSize() == this.boardSize && this.library.areCellsInLibrary(canonical(state));
+    }
+
+    /**
+     * Picks the representative of a state in the same way as
+     * {@link DiagonalSymmetry#canonical(State)}, without
+     * building a state for it.
+     *
+     * @param state A state with the board size of the library.
+     * @return One of the library's buffers, holding the values
+     * of the representative of the state by cell, or of the
+     * state itself if it has more than one blank space.
+     */
+    private int[] canonical(State state) {
+
+        state.copyCellsInto(this.cells);
+
+        if (!DiagonalSymmetry.isApplicable(state) || !DiagonalSymmetry.isReflectionFirst(this.cells, this.boardSize)) {
+            return this.cells;
+        }
+
+        DiagonalSymmetry.reflect(this.cells, this.boardSize, this.reflected);
+        return this.reflected;
+
+    }
+
+}
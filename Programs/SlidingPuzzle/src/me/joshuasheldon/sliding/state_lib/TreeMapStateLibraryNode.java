@@ -1,6 +1,7 @@
 package me.joshuasheldon.sliding.state_lib;
 
 import java.util.TreeMap;
+import java.util.function.Consumer;
 
 /**
  * A node in the state library that uses a TreeMap
@@ -31,8 +32,7 @@ public class TreeMapStateLibraryNode extends AbstractStateLibraryNode {
      */
     @Override
     void addChild(int index, AbstractStateLibraryNode node) {
-        TreeMap<Integer, TreeMapStateLibraryNode> children = (TreeMap<Integer, TreeMapStateLibraryNode>) this.children;
-        children.put(index, (TreeMapStateLibraryNode) node);
+        children().put(index, node);
     }
 
     /**
@@ -45,6 +45,34 @@ public class TreeMapStateLibraryNode extends AbstractStateLibraryNode {
         return new TreeMapStateLibraryNode(isLeaf);
     }
 
+    /**
+     * Estimates the memory used by this node and its
+     * TreeMap, which allocates an entry for every child.
+     *
+     * @return The estimated number of bytes.
+     */
+    @Override
+    long footprintBytes() {
+
+        long bytes = super.footprintBytes();
+
+        if (!isLeaf()) {
+            TreeMap<Integer, AbstractStateLibraryNode> children = children();
+            bytes += TREE_MAP_BYTES + ((long) TREE_MAP_ENTRY_BYTES * children.size());
+        }
+
+        return bytes;
+
+    }
+
+    /**
+     * @param action The action to perform on every child.
+     */
+    @Override
+    void forEachChild(Consumer<AbstractStateLibraryNode> action) {
+        children().values().forEach(action);
+    }
+
     /**
      * Retrieves the child node with the given index.
      *
@@ -56,8 +84,7 @@ public class TreeMapStateLibraryNode extends AbstractStateLibraryNode {
      */
     @Override
     AbstractStateLibraryNode getChild(int index, Object discard) {
-        TreeMap<Integer, TreeMapStateLibraryNode> children = (TreeMap<Integer, TreeMapStateLibraryNode>) this.children;
-        return children.get(index);
+        return children().get(index);
     }
 
     /**
@@ -65,7 +92,16 @@ public class TreeMapStateLibraryNode extends AbstractStateLibraryNode {
      */
     @Override
     void instantiateChildrenVariable() {
-        this.children = new TreeMap<Integer, TreeMapStateLibraryNode>();
+        this.children = new TreeMap<Integer, AbstractStateLibraryNode>();
+    }
+
+    /**
+     * @return The children variable as the TreeMap it was
+     * instantiated as by {@link #instantiateChildrenVariable()}.
+     */
+    @SuppressWarnings("unchecked")
+    private TreeMap<Integer, AbstractStateLibraryNode> children() {
+        return (TreeMap<Integer, AbstractStateLibraryNode>) this.children;
     }
 
 }